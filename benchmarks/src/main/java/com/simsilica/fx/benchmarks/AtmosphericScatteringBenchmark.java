@@ -0,0 +1,122 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+
+import com.simsilica.fx.sky.AtmosphericParameters;
+
+
+/**
+ *  Measures the CPU-side ground scattering calculations of the
+ *  AtmosphericParameters for a fixed set of view rays.  Like the shaders
+ *  and ObjectScatteringControl, each ray's direction is the unnormalized
+ *  camera-to-point offset scaled into scattering-model units.
+ *
+ *  @author    Paul Speed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AtmosphericScatteringBenchmark {
+
+    private static final int RAY_COUNT = 1024;
+
+    private AtmosphericParameters parms;
+    private Vector3f[] directions;
+    private float[] distances;
+    private float[] scaledDistances;
+    private float elevation;
+    private float scaledElevation;
+    private int next;
+
+    private final ColorRGBA groundColor = new ColorRGBA(0.2f, 0.4f, 0.1f, 1);
+    private final ColorRGBA color = new ColorRGBA();
+    private final Vector3f[] inAtmosphere = { new Vector3f(), new Vector3f() };
+
+    @Setup
+    public void setup() {
+        parms = new AtmosphericParameters();
+        parms.setSkyDomeRadius(2000 * 1.025f);
+        parms.setPlanetRadius(6378100 * 0.01f);
+        parms.setLightDirection(new Vector3f(-0.3f, -0.6f, 0.2f).normalizeLocal());
+
+        // Points on and around the default ground disc as seen from a
+        // camera a little above it
+        float scale = parms.getSnapshot().getGroundPlanetScale();
+        elevation = 10;
+        scaledElevation = elevation * scale;
+        Random random = new Random(42);
+        directions = new Vector3f[RAY_COUNT];
+        distances = new float[RAY_COUNT];
+        scaledDistances = new float[RAY_COUNT];
+        for( int i = 0; i < RAY_COUNT; i++ ) {
+            float angle = random.nextFloat() * FastMath.TWO_PI;
+            float range = 20 + random.nextFloat() * 1980;
+            Vector3f offset = new Vector3f(FastMath.cos(angle) * range, -elevation,
+                                           FastMath.sin(angle) * range);
+            distances[i] = offset.length();
+            directions[i] = offset.multLocal(scale);
+            scaledDistances[i] = offset.length();
+        }
+    }
+
+    @Benchmark
+    public ColorRGBA calculateGroundColor() {
+        int i = next;
+        next = (next + 1) % RAY_COUNT;
+        // Takes the distance and elevation in geometry units
+        return parms.calculateGroundColor(groundColor, directions[i], distances[i], elevation, color);
+    }
+
+    @Benchmark
+    public Vector3f[] calculateGroundInAtmosphere() {
+        int i = next;
+        next = (next + 1) % RAY_COUNT;
+        return parms.calculateGroundInAtmosphere(directions[i], scaledDistances[i], scaledElevation, inAtmosphere);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.queue.GeometryList;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+
+import com.simsilica.fx.shadow.DropShadowFilter;
+
+
+/**
+ *  Measures the DropShadowFilter's per-frame caster processing, ie: sorting
+ *  and culling the casters and building the shadow volume mesh, for a
+ *  field of synthetic casters spread around a fixed camera.
+ *
+ *  @author    Paul Speed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DropShadowBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int casterCount;
+
+    @Param({"500"})
+    public int maxShadows;
+
+    private DropShadowFilter filter;
+    private Camera cam;
+    private Geometry[] geoms;
+    private GeometryList casters;
+
+    @Setup
+    public void setup() {
+        cam = new Camera(1280, 720);
+        cam.setFrustumPerspective(60, 1280f / 720f, 0.1f, 1000);
+        cam.setLocation(new Vector3f(0, 10, 0));
+        cam.lookAtDirection(new Vector3f(0, -0.2f, 1).normalizeLocal(), Vector3f.UNIT_Y);
+        cam.update();
+
+        // Fixed seed so that every run sees the same field
+        Random random = new Random(42);
+        Box box = new Box(0.5f, 1, 0.75f);
+        Node root = new Node("casters");
+        geoms = new Geometry[casterCount];
+        float range = FastMath.sqrt(casterCount) * 5;
+        for( int i = 0; i < casterCount; i++ ) {
+            Geometry geom = new Geometry("caster" + i, box);
+            geom.setLocalTranslation((random.nextFloat() * 2 - 1) * range, 
+                                     random.nextFloat() * 2, 
+                                     (random.nextFloat() * 2 - 1) * range);
+            geom.setLocalRotation(new Quaternion().fromAngles(0, random.nextFloat() * FastMath.TWO_PI, 0));
+            geom.setLocalScale(0.5f + random.nextFloat());
+            root.attachChild(geom);
+            geoms[i] = geom;
+        }
+        root.updateGeometricState();
+
+        filter = new DropShadowFilter(maxShadows);
+        casters = new GeometryList(new DropShadowFilter.CasterComparator());
+    }
+
+    @Benchmark
+    public int updateShadowVolumes() {
+        // Refill the list like the frustum gathering does every frame and
+        // clear the cached sort distances so that the sort does real work.
+        casters.clear();
+        for( Geometry geom : geoms ) {
+            geom.queueDistance = Float.NEGATIVE_INFINITY;
+            casters.add(geom);
+        }
+        return filter.updateShadowVolumes(casters, cam);
+    }
+}
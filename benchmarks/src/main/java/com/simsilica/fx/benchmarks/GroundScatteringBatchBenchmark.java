@@ -0,0 +1,122 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+
+import com.simsilica.fx.sky.AtmosphericParameters;
+import com.simsilica.fx.sky.AtmosphericSnapshot;
+import com.simsilica.fx.sky.GroundScatteringBatch;
+
+
+/**
+ *  Compares the GroundScatteringBatch kernel with the scalar 
+ *  AtmosphericSnapshot.calculateGroundInAtmosphere() for the same rays.
+ *  Times are per ray.  Like the shaders, the ground scattering table, and
+ *  ObjectScatteringControl, the rays use the unnormalized scaled offset
+ *  as the direction.
+ *
+ *  @author    Paul Speed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroundScatteringBatchBenchmark {
+
+    private static final int RAY_COUNT = 1024;
+
+    private AtmosphericSnapshot snapshot;
+    private GroundScatteringBatch batch;
+    private Vector3f[] offsets;
+    private float[] distances;
+    private float elevation;
+
+    private final Vector3f[] inAtmosphere = { new Vector3f(), new Vector3f() };
+
+    @Setup
+    public void setup() {
+        AtmosphericParameters parms = new AtmosphericParameters();
+        parms.setSkyDomeRadius(2000 * 1.025f);
+        parms.setPlanetRadius(6378100 * 0.01f);
+        parms.setLightDirection(new Vector3f(-0.3f, -0.6f, 0.2f).normalizeLocal());
+        snapshot = parms.getSnapshot();
+
+        // Points on and around the default ground disc as seen from a
+        // camera a little above it, all in scattering-model units
+        float scale = snapshot.getGroundPlanetScale();
+        elevation = 10 * scale;
+        Random random = new Random(42);
+        batch = new GroundScatteringBatch(RAY_COUNT);
+        offsets = new Vector3f[RAY_COUNT];
+        distances = new float[RAY_COUNT];
+        for( int i = 0; i < RAY_COUNT; i++ ) {
+            float angle = random.nextFloat() * FastMath.TWO_PI;
+            float range = 20 + random.nextFloat() * 1980;
+            Vector3f offset = new Vector3f(FastMath.cos(angle) * range, -10,
+                                           FastMath.sin(angle) * range).multLocal(scale);
+            offsets[i] = offset;
+            distances[i] = offset.length();
+            batch.setRay(i, offset.x, offset.y, offset.z, distances[i], elevation);
+        }
+        batch.setSize(RAY_COUNT);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public GroundScatteringBatch batch() {
+        batch.calculate(snapshot);
+        return batch;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public Vector3f[] scalar() {
+        for( int i = 0; i < RAY_COUNT; i++ ) {
+            snapshot.calculateGroundInAtmosphere(offsets[i], distances[i], elevation, inAtmosphere);
+        }
+        return inAtmosphere;
+    }
+}
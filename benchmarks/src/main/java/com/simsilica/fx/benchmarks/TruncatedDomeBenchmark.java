@@ -0,0 +1,105 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.jme3.math.FastMath;
+
+import com.simsilica.fx.geom.TruncatedDome;
+import com.simsilica.fx.geom.TruncatedDome.SliceDistribution;
+import com.simsilica.fx.geom.TruncatedDomeCache;
+
+
+/**
+ *  Measures TruncatedDome.updateGeometry() and the full dome creation
+ *  that TruncatedDomeCache does on a miss (geometry, LOD levels, and
+ *  vertex cache optimization) at several radial counts.  Parabolic domes 
+ *  use half as many slices as radials.  ViewAngle domes use the slice 
+ *  count that SkyState picks for the radials, and 100 radials is the 
+ *  SkyState default.
+ *
+ *  @author    Paul Speed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TruncatedDomeBenchmark {
+
+    @Param({"16", "32", "64", "100", "128"})
+    public int radials;
+
+    @Param({"Parabolic", "ViewAngle"})
+    public SliceDistribution distribution;
+
+    private int slices;
+    private TruncatedDome dome;
+    private boolean flip;
+
+    @Setup
+    public void setup() {
+        if( distribution == SliceDistribution.ViewAngle ) {
+            slices = TruncatedDome.getSliceCount(FastMath.TWO_PI / radials);
+        } else {
+            slices = radials / 2;
+        }
+        dome = new TruncatedDome(10, 10.25f, radials, slices, true, distribution);
+    }
+
+    @Benchmark
+    public TruncatedDome updateGeometry() {
+        // updateGeometry() does nothing when nothing has changed so
+        // alternate between two outer radii
+        flip = !flip;
+        dome.updateGeometry(10, flip ? 10.5f : 10.25f, radials, slices, true, distribution);
+        return dome;
+    }
+
+    @Benchmark
+    public TruncatedDome acquire() {
+        // Releasing the last reference removes the dome from the cache
+        // so every acquire() creates it from scratch
+        TruncatedDome result = TruncatedDomeCache.acquire(10, 10.25f, radials, slices, true, distribution);
+        TruncatedDomeCache.release(result);
+        return result;
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx;
+
+import com.jme3.util.SafeArrayList;
+
+
+/**
+ *  Decides when effect quality should be lowered or raised to keep the
+ *  frame time within a target budget.  The governor keeps a smoothed 
+ *  average of the frame time and moves between quality steps, 0 being full
+ *  quality and each higher step being cheaper.  
+ *
+ *  <p>To avoid oscillating, it uses hysteresis: the average must stay above 
+ *  the upper threshold for the degrade delay before stepping down in quality,
+ *  below the lower threshold for the longer improve delay before stepping 
+ *  back up, and no new step is taken until the cooldown since the last one 
+ *  has passed.  Frames longer than the max sample time, like loading hitches
+ *  or a paused window, are ignored.</p>
+ *
+ *  <p>The governor doesn't read the clock itself.  update() is given the 
+ *  current time which lets the control loop be driven by a simulated clock.
+ *  FrameBudgetState drives it from the real clock and applies the steps.</p>
+ *
+ *  @author    Paul Speed
+ */
+public class FrameBudgetGovernor {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    // Times can be anything that System.nanoTime() returns, including
+    // negative values, so "no time yet" needs a value of its own.
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private long targetNanos;
+    private float upperThreshold = 1.1f;
+    private float lowerThreshold = 0.75f;
+    private float smoothing = 0.1f;
+    private long degradeDelay = NANOS_PER_SECOND / 2;
+    private long improveDelay = 3 * NANOS_PER_SECOND;
+    private long cooldown = NANOS_PER_SECOND;
+    private long maxSample = NANOS_PER_SECOND / 4;
+    private int maxStep = 4;
+
+    private int step;
+    private long lastTime = NO_TIME;
+    private double average = -1;
+    private long overSince = NO_TIME;
+    private long underSince = NO_TIME;
+    private long lastChange = NO_TIME;
+    private Decision lastDecision;
+
+    private final SafeArrayList<FrameBudgetListener> listeners = new SafeArrayList<FrameBudgetListener>(FrameBudgetListener.class);
+
+    /**
+     *  Creates a governor that targets the specified frame time in seconds.
+     */
+    public FrameBudgetGovernor( float targetFrameTime ) {
+        setTargetFrameTime(targetFrameTime);
+    }
+
+    public void setTargetFrameTime( float seconds ) {
+        this.targetNanos = toNanos(seconds);
+    }
+
+    public float getTargetFrameTime() {
+        return toSeconds(targetNanos);
+    }
+
+    /**
+     *  Sets the fraction of the target frame time above which the average
+     *  frame time counts as over budget.  Defaults to 1.1.
+     */
+    public void setUpperThreshold( float f ) {
+        this.upperThreshold = f;
+    }
+
+    public float getUpperThreshold() {
+        return upperThreshold;
+    }
+
+    /**
+     *  Sets the fraction of the target frame time below which the average
+     *  frame time counts as having headroom.  Defaults to 0.75.
+     */
+    public void setLowerThreshold( float f ) {
+        this.lowerThreshold = f;
+    }
+
+    public float getLowerThreshold() {
+        return lowerThreshold;
+    }
+
+    /**
+     *  Sets the weight of each new frame in the exponential moving average 
+     *  of the frame time.  Defaults to 0.1.
+     */
+    public void setSmoothing( float f ) {
+        this.smoothing = f;
+    }
+
+    public float getSmoothing() {
+        return smoothing;
+    }
+
+    /**
+     *  Sets how long in seconds the frame time must stay over budget before 
+     *  quality is lowered.  Defaults to 0.5.
+     */
+    public void setDegradeDelay( float seconds ) {
+        this.degradeDelay = toNanos(seconds);
+    }
+
+    public float getDegradeDelay() {
+        return toSeconds(degradeDelay);
+    }
+
+    /**
+     *  Sets how long in seconds the frame time must have headroom before 
+     *  quality is raised.  Defaults to 3.
+     */
+    public void setImproveDelay( float seconds ) {
+        this.improveDelay = toNanos(seconds);
+    }
+
+    public float getImproveDelay() {
+        return toSeconds(improveDelay);
+    }
+
+    /**
+     *  Sets the time in seconds after a step change during which no other
+     *  change is made so that the new settings can take effect.  Defaults to 1.
+     */
+    public void setCooldown( float seconds ) {
+        this.cooldown = toNanos(seconds);
+    }
+
+    public float getCooldown() {
+        return toSeconds(cooldown);
+    }
+
+    /**
+     *  Sets the longest frame in seconds that is still sampled.  Defaults to 0.25.
+     */
+    public void setMaxSampleTime( float seconds ) {
+        this.maxSample = toNanos(seconds);
+    }
+
+    public float getMaxSampleTime() {
+        return toSeconds(maxSample);
+    }
+
+    /**
+     *  Sets the cheapest quality step.  Defaults to 4.  If the current step
+     *  is past the new maximum then it is moved back to it and listeners are 
+     *  notified as for any other step change.  The decision is given the time
+     *  of the last update().
+     */
+    public void setMaxStep( int maxStep ) {
+        this.maxStep = Math.max(0, maxStep);
+        if( step > this.maxStep ) {
+            setStep(this.maxStep, lastTime);
+        }
+    }
+
+    public int getMaxStep() {
+        return maxStep;
+    }
+
+    /**
+     *  Returns the current quality step, 0 being full quality.
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     *  Returns the current average frame time in seconds or -1 if 
+     *  nothing has been sampled yet.
+     */
+    public float getAverageFrameTime() {
+        return average < 0 ? -1 : (float)(average / NANOS_PER_SECOND);
+    }
+
+    /**
+     *  Returns the most recent step change or null if there hasn't been one.
+     */
+    public Decision getLastDecision() {
+        return lastDecision;
+    }
+
+    public void addFrameBudgetListener( FrameBudgetListener l ) {
+        listeners.add(l);
+    }
+
+    public void removeFrameBudgetListener( FrameBudgetListener l ) {
+        listeners.remove(l);
+    }
+
+    /**
+     *  Goes back to full quality and forgets all frame time history.
+     *  Listeners are not notified.
+     */
+    public void reset() {
+        step = 0;
+        lastTime = NO_TIME;
+        average = -1;
+        overSince = NO_TIME;
+        underSince = NO_TIME;
+        lastChange = NO_TIME;
+    }
+
+    /**
+     *  Samples the frame that ended at the specified time in nanoseconds 
+     *  and returns true if the quality step changed.  This should be called 
+     *  once per frame.  The time only needs to be consistent with itself, for 
+     *  example System.nanoTime() or a simulated clock.
+     */
+    public boolean update( long time ) {
+        if( lastTime == NO_TIME ) {
+            lastTime = time;
+            return false;
+        }
+        long frame = time - lastTime;
+        lastTime = time;
+        if( frame <= 0 || frame > maxSample ) {
+            return false;
+        }
+
+        if( average < 0 ) {
+            average = frame;
+        } else {
+            average += (frame - average) * smoothing;
+        }
+
+        if( lastChange != NO_TIME && time - lastChange < cooldown ) {
+            return false;
+        }
+
+        if( average > targetNanos * upperThreshold ) {
+            underSince = NO_TIME;
+            if( overSince == NO_TIME ) {
+                overSince = time;
+            }
+            if( step < maxStep && time - overSince >= degradeDelay ) {
+                setStep(step + 1, time);
+                return true;
+            }
+        } else if( average < targetNanos * lowerThreshold ) {
+            overSince = NO_TIME;
+            if( underSince == NO_TIME ) {
+                underSince = time;
+            }
+            if( step > 0 && time - underSince >= improveDelay ) {
+                setStep(step - 1, time);
+                return true;
+            }
+        } else {
+            overSince = NO_TIME;
+            underSince = NO_TIME;
+        }
+        return false;
+    }
+
+    protected void setStep( int newStep, long time ) {
+        lastDecision = new Decision(time, step, newStep, getAverageFrameTime(), getTargetFrameTime());
+        step = newStep;
+        lastChange = time;
+        overSince = NO_TIME;
+        underSince = NO_TIME;
+        for( FrameBudgetListener l : listeners.getArray() ) {
+            l.stepChanged(this, lastDecision);
+        }
+    }
+
+    private static long toNanos( float seconds ) {
+        return (long)(seconds * NANOS_PER_SECOND);
+    }
+
+    private static float toSeconds( long nanos ) {
+        return (float)nanos / NANOS_PER_SECOND;
+    }
+
+    /**
+     *  An immutable record of one step change and the frame time that
+     *  caused it.
+     */
+    public static class Decision {
+        private final long time;
+        private final int fromStep;
+        private final int toStep;
+        private final float averageFrameTime;
+        private final float targetFrameTime;
+
+        public Decision( long time, int fromStep, int toStep, float averageFrameTime, float targetFrameTime ) {
+            this.time = time;
+            this.fromStep = fromStep;
+            this.toStep = toStep;
+            this.averageFrameTime = averageFrameTime;
+            this.targetFrameTime = targetFrameTime;
+        }
+
+        /**
+         *  Returns the time given to update() when the decision was made.
+         */
+        public long getTime() {
+            return time;
+        }
+
+        public int getFromStep() {
+            return fromStep;
+        }
+
+        public int getToStep() {
+            return toStep;
+        }
+
+        /**
+         *  Returns true if the decision lowered quality.
+         */
+        public boolean isDegrade() {
+            return toStep > fromStep;
+        }
+
+        public float getAverageFrameTime() {
+            return averageFrameTime;
+        }
+
+        public float getTargetFrameTime() {
+            return targetFrameTime;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "[" + (isDegrade() ? "degrade" : "improve")
+                    + " " + fromStep + "->" + toStep
+                    + ", average=" + (averageFrameTime * 1000) + " ms"
+                    + ", target=" + (targetFrameTime * 1000) + " ms]";
+        }
+    }
+}
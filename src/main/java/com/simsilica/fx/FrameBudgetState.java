@@ -0,0 +1,227 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx;
+
+import org.slf4j.*;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.BaseAppState;
+import com.jme3.math.FastMath;
+
+import com.simsilica.fx.sky.SkyState;
+
+
+/**
+ *  Optional state that samples the real frame time with a FrameBudgetGovernor
+ *  and scales the effects down or up to stay within the frame budget.  Each
+ *  governor step is turned into a cheaper copy of the base QualityProfile
+ *  that is given to the QualityState: fewer and closer drop shadows and a 
+ *  lower dome tessellation.  The scattering sample count is left alone since
+ *  the shaders don't use it and changing it only forces the CPU-side sky to 
+ *  be rebuilt.  A QualityState must be attached.  
+ *
+ *  <p>While enabled, the dome tessellations of all of the steps are reserved
+ *  with the SkyState, if there is one, so that changing steps doesn't have to
+ *  build new meshes.</p>
+ *
+ *  <p>Decisions are logged at debug level and can be observed with a 
+ *  FrameBudgetListener on the governor.  Disabling the state puts the
+ *  base profile back.</p>
+ *
+ *  @author    Paul Speed
+ */
+public class FrameBudgetState extends BaseAppState {
+
+    static Logger log = LoggerFactory.getLogger(FrameBudgetState.class);
+
+    private final FrameBudgetGovernor governor;
+    private final GovernorObserver governorObserver = new GovernorObserver();
+    private QualityState quality;
+    private QualityProfile baseProfile;
+
+    // The scale applied per step and the floors of the scaled values
+    private float shadowScale = 0.7f;
+    private float distanceScale = 0.75f;
+    private float radialScale = 0.8f;
+    private float referenceShadowDistance = 300;
+    private int minShadows = 16;
+    private int minRadials = 24;
+
+    /**
+     *  Creates a governor state that targets 60 frames per second.
+     */
+    public FrameBudgetState() {
+        this(1 / 60f);
+    }
+
+    /**
+     *  Creates a governor state that targets the specified frame time 
+     *  in seconds.
+     */
+    public FrameBudgetState( float targetFrameTime ) {
+        this(new FrameBudgetGovernor(targetFrameTime));
+    }
+
+    public FrameBudgetState( FrameBudgetGovernor governor ) {
+        this.governor = governor;
+    }
+
+    public FrameBudgetGovernor getGovernor() {
+        return governor;
+    }
+
+    /**
+     *  Sets the full quality profile that the governor scales down from.
+     *  Defaults to the QualityState's profile at the time this state is 
+     *  initialized.
+     */
+    public void setBaseProfile( QualityProfile profile ) {
+        this.baseProfile = profile;
+        if( isInitialized() && isEnabled() ) {
+            reserveDomes();
+            applyStep();
+        }
+    }
+
+    public QualityProfile getBaseProfile() {
+        return baseProfile;
+    }
+
+    /**
+     *  Sets the shadow distance that the first step uses when the
+     *  base profile has unlimited shadow distance.  Defaults to 300.
+     */
+    public void setReferenceShadowDistance( float f ) {
+        this.referenceShadowDistance = f;
+    }
+
+    public float getReferenceShadowDistance() {
+        return referenceShadowDistance;
+    }
+
+    /**
+     *  Returns the profile for the specified governor step.  Step 0 is the
+     *  base profile itself.
+     */
+    public QualityProfile createProfile( QualityProfile base, int step ) {
+        if( step == 0 ) {
+            return base;
+        }
+        QualityProfile result = new QualityProfile(base);
+        result.setMaxShadows(Math.max(minShadows, Math.round(base.getMaxShadows() * FastMath.pow(shadowScale, step))));
+
+        float distance = base.getShadowDistance();
+        if( Float.isInfinite(distance) ) {
+            distance = referenceShadowDistance * FastMath.pow(distanceScale, step - 1);
+        } else {
+            distance = distance * FastMath.pow(distanceScale, step);
+        }
+        result.setShadowDistance(distance);
+
+        result.setDomeRadials(Math.max(minRadials, Math.round(base.getDomeRadials() * FastMath.pow(radialScale, step))));
+        return result;
+    }
+
+    /**
+     *  Reserves the dome tessellation of every governor step with the
+     *  SkyState so that a step change finds its meshes already built.
+     */
+    protected void reserveDomes() {
+        SkyState sky = getState(SkyState.class);
+        if( sky == null ) {
+            return;
+        }
+        int[] radials = new int[governor.getMaxStep() + 1];
+        for( int i = 0; i < radials.length; i++ ) {
+            radials[i] = createProfile(baseProfile, i).getDomeRadials();
+        }
+        sky.reserveDomeRadials(radials);
+    }
+
+    protected void applyStep() {
+        QualityProfile profile = createProfile(baseProfile, governor.getStep());
+        quality.setProfile(profile);
+    }
+
+    @Override
+    protected void initialize( Application app ) {
+        quality = getState(QualityState.class);
+        if( quality == null ) {
+            throw new IllegalStateException("FrameBudgetState requires a QualityState");
+        }
+        if( baseProfile == null ) {
+            baseProfile = quality.getProfile();
+        }
+        governor.addFrameBudgetListener(governorObserver);
+    }
+
+    @Override
+    protected void cleanup( Application app ) {
+        governor.removeFrameBudgetListener(governorObserver);
+    }
+
+    @Override
+    protected void onEnable() {
+        governor.reset();
+        reserveDomes();
+        applyStep();
+    }
+
+    @Override
+    protected void onDisable() {
+        quality.setProfile(baseProfile);
+        SkyState sky = getState(SkyState.class);
+        if( sky != null ) {
+            sky.reserveDomeRadials();
+        }
+    }
+
+    @Override
+    public void update( float tpf ) {
+        governor.update(System.nanoTime());
+    }
+
+    private class GovernorObserver implements FrameBudgetListener {
+        @Override
+        public void stepChanged( FrameBudgetGovernor source, FrameBudgetGovernor.Decision decision ) {
+            if( log.isDebugEnabled() ) {
+                log.debug("Frame budget:" + decision);
+            }
+            applyStep();
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+
+/**
+ *  Library-wide per-frame counters and nanosecond timers for the costs
+ *  of the SimFX effects.  Metrics are disabled by default and then every
+ *  call is a single static flag check.
+ *
+ *  <p>Values accumulate over a frame and endFrame() publishes them as the
+ *  last frame's values that the getters return.  An FxMetricsProfiler
+ *  installed as the application's AppProfiler calls endFrame() at the end 
+ *  of every frame and the FxMetricsState does both when attached.  Gauges,
+ *  like material counts, keep their value across frames.  Because gauges
+ *  are only set as their values change, the objects that own them register
+ *  a GaugeSource that is asked for the current values whenever metrics are
+ *  turned on.</p>
+ *
+ *  <p>The metrics are recorded from the render thread and are not thread 
+ *  safe.  Reading them from another thread may see torn values.</p>
+ *
+ *  <p>A timed section looks like:</p>
+ *  <pre>
+ *  long start = FxMetrics.start();
+ *  ...
+ *  FxMetrics.stop(FxMetrics.Timer.ShadowSort, start);
+ *  </pre>
+ *
+ *  @author    Paul Speed
+ */
+public final class FxMetrics {
+
+    public enum Counter {
+        /** Shadow casters found in the camera frustum. */
+        ShadowCastersGathered,
+        /** Shadow casters whose shadow volume was outside of the frustum. */
+        ShadowCastersCulled,
+        /** Shadow volumes that were drawn. */
+        ShadowCastersRendered,
+        /** Shadow casters that were not considered because the cap was reached. */
+        ShadowCastersDropped,
+        /** Committed atmosphere changes that pushed uniforms. */
+        AtmosphereCommits,
+        /** Materials that had atmosphere uniforms pushed to them. */
+        AtmosphereMaterialPushes,
+        /** Materials currently receiving atmosphere updates from all AtmosphericParameters. */
+        AtmosphereMaterials(true),
+        /** SkyState updates. */
+        SkyUpdates,
+        /** Sky bake steps: vertex color bands, cube map faces, or ground scattering tables. */
+        SkyBakes;
+
+        private final boolean gauge;
+
+        private Counter() {
+            this(false);
+        }
+
+        private Counter( boolean gauge ) {
+            this.gauge = gauge;
+        }
+
+        /**
+         *  Returns true if this counter holds a current value instead
+         *  of being reset every frame.
+         */
+        public boolean isGauge() {
+            return gauge;
+        }
+    }
+
+    public enum Timer {
+        /** Collecting the shadow casters from the scenes. */
+        ShadowGather,
+        /** Sorting the shadow casters when there are more than the cap. */
+        ShadowSort,
+        /** Filling the shadow volume buffers. */
+        ShadowFill,
+        /** Handing the shadow volume buffers to the mesh. */
+        ShadowUpload,
+        /** The whole SkyState update. */
+        SkyUpdate
+    }
+
+    /**
+     *  Sets the current values of one or more gauges when metrics are
+     *  turned on.
+     */
+    public interface GaugeSource {
+        public void updateGauges();
+    }
+
+    private static final Counter[] COUNTERS = Counter.values();
+    private static final Timer[] TIMERS = Timer.values();
+
+    private static boolean enabled;
+
+    // Weak so that registering doesn't keep the owners alive
+    private static final Map<GaugeSource, Boolean> gaugeSources = new WeakHashMap<GaugeSource, Boolean>();
+
+    private static final long[] counters = new long[COUNTERS.length];
+    private static final long[] times = new long[TIMERS.length];
+    private static final long[] lastCounters = new long[COUNTERS.length];
+    private static final long[] lastTimes = new long[TIMERS.length];
+    private static long frameCount;
+
+    private FxMetrics() {
+    }
+
+    /**
+     *  Turns metrics collection on or off.  Either way, all values are
+     *  cleared.  See reset().
+     */
+    public static void setEnabled( boolean b ) {
+        if( enabled == b ) {
+            return;
+        }
+        enabled = b;
+        reset();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     *  Registers a source whose updateGauges() will be called whenever
+     *  metrics are turned on or reset while on.  Sources are held weakly and so the caller must
+     *  keep its own reference for as long as the source should be called.
+     */
+    public static void addGaugeSource( GaugeSource source ) {
+        gaugeSources.put(source, Boolean.TRUE);
+    }
+
+    public static void removeGaugeSource( GaugeSource source ) {
+        gaugeSources.remove(source);
+    }
+
+    /**
+     *  Clears all of the current and last frame values.  If metrics are
+     *  enabled then the registered gauge sources set the gauges' current
+     *  values again.
+     */
+    public static void reset() {
+        for( int i = 0; i < counters.length; i++ ) {
+            counters[i] = 0;
+            lastCounters[i] = 0;
+        }
+        for( int i = 0; i < times.length; i++ ) {
+            times[i] = 0;
+            lastTimes[i] = 0;
+        }
+        frameCount = 0;
+        if( enabled ) {
+            for( GaugeSource source : gaugeSources.keySet().toArray(new GaugeSource[0]) ) {
+                source.updateGauges();
+            }
+        }
+    }
+
+    public static void increment( Counter counter ) {
+        if( !enabled ) {
+            return;
+        }
+        counters[counter.ordinal()]++;
+    }
+
+    public static void add( Counter counter, long amount ) {
+        if( !enabled ) {
+            return;
+        }
+        counters[counter.ordinal()] += amount;
+    }
+
+    /**
+     *  Sets the current value of a gauge or of a counter for this frame.
+     */
+    public static void set( Counter counter, long value ) {
+        if( !enabled ) {
+            return;
+        }
+        counters[counter.ordinal()] = value;
+    }
+
+    /**
+     *  Returns the start time for a timed section or 0 if metrics are
+     *  disabled.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     *  Adds the time since the specified start() time to the timer.
+     */
+    public static void stop( Timer timer, long start ) {
+        if( !enabled || start == 0 ) {
+            return;
+        }
+        times[timer.ordinal()] += System.nanoTime() - start;
+    }
+
+    /**
+     *  Publishes the values accumulated since the last call as the last 
+     *  frame's values and starts a new frame.
+     */
+    public static void endFrame() {
+        if( !enabled ) {
+            return;
+        }
+        for( int i = 0; i < counters.length; i++ ) {
+            lastCounters[i] = counters[i];
+            if( !COUNTERS[i].isGauge() ) {
+                counters[i] = 0;
+            }
+        }
+        for( int i = 0; i < times.length; i++ ) {
+            lastTimes[i] = times[i];
+            times[i] = 0;
+        }
+        frameCount++;
+    }
+
+    /**
+     *  Returns the number of frames that have ended since metrics were
+     *  enabled or reset.
+     */
+    public static long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     *  Returns the last frame's value for the specified counter.
+     */
+    public static long getCount( Counter counter ) {
+        return lastCounters[counter.ordinal()];
+    }
+
+    /**
+     *  Returns the last frame's time in nanoseconds for the specified timer.
+     */
+    public static long getNanos( Timer timer ) {
+        return lastTimes[timer.ordinal()];
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx;
+
+import com.jme3.app.Application;
+import com.jme3.profile.AppProfiler;
+import com.jme3.profile.AppStep;
+import com.jme3.profile.SpStep;
+import com.jme3.profile.VpStep;
+import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.queue.RenderQueue.Bucket;
+
+
+/**
+ *  An AppProfiler that ends an FxMetrics frame at the end of every
+ *  application frame and passes all of the profiling steps on to
+ *  another profiler, if any.  This lets the FxMetrics values line up
+ *  with the frames that jME's own profilers see.
+ *
+ *  <p>The FxMetrics timers are not passed on as sub-steps.  jME's profilers
+ *  time the gaps between steps as they happen while an FxMetrics timer is
+ *  only known once its section has ended, so read them from FxMetrics.</p>
+ *
+ *  @author    Paul Speed
+ */
+public class FxMetricsProfiler implements AppProfiler {
+
+    private final AppProfiler delegate;
+
+    public FxMetricsProfiler() {
+        this(null);
+    }
+
+    public FxMetricsProfiler( AppProfiler delegate ) {
+        this.delegate = delegate;
+    }
+
+    /**
+     *  Installs an FxMetricsProfiler as the application's profiler, wrapping
+     *  the current one, unless one is already installed.  Returns the 
+     *  installed profiler.
+     */
+    public static FxMetricsProfiler install( Application app ) {
+        AppProfiler current = app.getAppProfiler();
+        if( current instanceof FxMetricsProfiler ) {
+            return (FxMetricsProfiler)current;
+        }
+        FxMetricsProfiler result = new FxMetricsProfiler(current);
+        app.setAppProfiler(result);
+        return result;
+    }
+
+    /**
+     *  Puts the wrapped profiler back if the application's profiler is 
+     *  still an FxMetricsProfiler.
+     */
+    public static void uninstall( Application app ) {
+        AppProfiler current = app.getAppProfiler();
+        if( current instanceof FxMetricsProfiler ) {
+            app.setAppProfiler(((FxMetricsProfiler)current).getDelegate());
+        }
+    }
+
+    public AppProfiler getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void appStep( AppStep step ) {
+        if( delegate != null ) {
+            delegate.appStep(step);
+        }
+        if( step == AppStep.EndFrame ) {
+            FxMetrics.endFrame();
+        }
+    }
+
+    @Override
+    public void appSubStep( String... additionalInfo ) {
+        if( delegate != null ) {
+            delegate.appSubStep(additionalInfo);
+        }
+    }
+
+    @Override
+    public void vpStep( VpStep step, ViewPort vp, Bucket bucket ) {
+        if( delegate != null ) {
+            delegate.vpStep(step, vp, bucket);
+        }
+    }
+
+    @Override
+    public void spStep( SpStep step, String... additionalInfo ) {
+        if( delegate != null ) {
+            delegate.spStep(step, additionalInfo);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx;
+
+import com.jme3.app.Application;
+import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.BaseAppState;
+import com.jme3.scene.Node;
+
+import com.simsilica.lemur.Container;
+import com.simsilica.lemur.Label;
+
+
+/**
+ *  Turns on FxMetrics collection while enabled and shows the last frame's 
+ *  values in a Lemur overlay in the upper left corner of the screen.  
+ *  The application must have initialized Lemur's GuiGlobals.  An
+ *  FxMetricsProfiler is installed while the state is enabled.  Disabling
+ *  the state puts back whatever collection and profiler setup it found
+ *  so that it doesn't turn off metrics that something else turned on.
+ *
+ *  @author    Paul Speed
+ */
+public class FxMetricsState extends BaseAppState {
+
+    private static final FxMetrics.Counter[] COUNTERS = FxMetrics.Counter.values();
+    private static final FxMetrics.Timer[] TIMERS = FxMetrics.Timer.values();
+
+    private Container panel;
+    private Label[] counterLabels;
+    private Label[] timerLabels;
+    private float refreshInterval = 0.25f;
+    private float sinceRefresh;
+    private boolean wasEnabled;
+    private FxMetricsProfiler profiler;
+
+    public FxMetricsState() {
+    }
+
+    /**
+     *  Sets how often in seconds that the overlay values are refreshed.
+     *  Defaults to 0.25.
+     */
+    public void setRefreshInterval( float seconds ) {
+        this.refreshInterval = seconds;
+    }
+
+    public float getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public Container getPanel() {
+        return panel;
+    }
+
+    @Override
+    protected void initialize( Application app ) {
+        panel = new Container("glass");
+        panel.addChild(new Label("SimFX", "glass"));
+        counterLabels = new Label[COUNTERS.length];
+        for( int i = 0; i < COUNTERS.length; i++ ) {
+            panel.addChild(new Label(COUNTERS[i].name() + ":", "glass"));
+            counterLabels[i] = panel.addChild(new Label("0", "glass"), 1);
+        }
+        timerLabels = new Label[TIMERS.length];
+        for( int i = 0; i < TIMERS.length; i++ ) {
+            panel.addChild(new Label(TIMERS[i].name() + " (ms):", "glass"));
+            timerLabels[i] = panel.addChild(new Label("0", "glass"), 1);
+        }
+    }
+
+    @Override
+    protected void cleanup( Application app ) {
+    }
+
+    @Override
+    protected void onEnable() {
+        wasEnabled = FxMetrics.isEnabled();
+        FxMetrics.setEnabled(true);
+        if( !(getApplication().getAppProfiler() instanceof FxMetricsProfiler) ) {
+            profiler = FxMetricsProfiler.install(getApplication());
+        }
+
+        Node gui = ((SimpleApplication)getApplication()).getGuiNode();
+        panel.setLocalTranslation(10, getApplication().getCamera().getHeight() - 10, 0);
+        gui.attachChild(panel);
+    }
+
+    @Override
+    protected void onDisable() {
+        panel.removeFromParent();
+        if( profiler != null && getApplication().getAppProfiler() == profiler ) {
+            FxMetricsProfiler.uninstall(getApplication());
+        }
+        profiler = null;
+        FxMetrics.setEnabled(wasEnabled);
+    }
+
+    @Override
+    public void update( float tpf ) {
+        sinceRefresh += tpf;
+        if( sinceRefresh < refreshInterval ) {
+            return;
+        }
+        sinceRefresh = 0;
+        for( int i = 0; i < COUNTERS.length; i++ ) {
+            counterLabels[i].setText(String.valueOf(FxMetrics.getCount(COUNTERS[i])));
+        }
+        for( int i = 0; i < TIMERS.length; i++ ) {
+            timerLabels[i].setText(String.format("%.3f", FxMetrics.getNanos(TIMERS[i]) / 1000000.0));
+        }
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.*;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.AssetNotFoundException;
+import com.jme3.material.Material;
+import com.jme3.material.MaterialDef;
+import com.jme3.material.TechniqueDef;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector3f;
+import com.jme3.math.Vector4f;
+import com.jme3.renderer.RenderManager;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.shape.Quad;
+
+import com.simsilica.fx.sky.GroundScatteringLut;
+
+
+/**
+ *  Moves the loading and shader compiling of this library's materials 
+ *  out of the first frames of gameplay.  
+ *
+ *  <p>start() parses the material definitions and their shader sources on a
+ *  background thread so that they are already in the AssetManager's cache
+ *  when SkyState, DropShadowFilter, and the application's own scattered
+ *  lighting materials ask for them.  preload() then, on the render thread,
+ *  compiles the shader for every define permutation that the library itself
+ *  uses so that switching sky modes or turning on the ground scattering
+ *  table doesn't hitch the first time it happens.  A typical application 
+ *  calls start() as early as possible and preload() at the end of its 
+ *  loading screen.</p>
+ *
+ *  <p>preload() compiles for the RenderManager's current preferred light
+ *  mode so it should be called after that has been set.</p>
+ *
+ *  @author    Paul Speed
+ */
+public class FxWarmup {
+
+    static Logger log = LoggerFactory.getLogger(FxWarmup.class);
+
+    public static final String SKY_ATMOSPHERICS = "MatDefs/SkyAtmospherics.j3md";
+    public static final String GROUND_ATMOSPHERICS = "MatDefs/GroundAtmospherics.j3md";
+    public static final String SCATTERED_LIGHTING = "MatDefs/ScatteredLighting.j3md";
+    public static final String DROP_SHADOW_NULL = "MatDefs/shadow/Null.j3md";
+    public static final String DROP_SHADOWS = "MatDefs/shadow/Shadows.j3md";
+    public static final String UNSHADED = "Common/MatDefs/Misc/Unshaded.j3md";
+    public static final String SKY = "Common/MatDefs/Misc/Sky.j3md";
+
+    private static final String[] MATERIAL_DEFS = {
+                SKY_ATMOSPHERICS,
+                GROUND_ATMOSPHERICS,
+                SCATTERED_LIGHTING,
+                DROP_SHADOW_NULL,
+                DROP_SHADOWS,
+                UNSHADED,
+                SKY
+            };
+
+    // The non-default techniques that the scattered lighting
+    // materials commonly use with JME's shadow renderers
+    private static final String[] SHADOW_TECHNIQUES = { "PreShadow", "PostShadow" };
+
+    private final AssetManager assets;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private Future<List<MaterialDef>> loading;
+    private int multiSamples = 1;
+    private boolean includeShadowTechniques = true;
+
+    /**
+     *  Creates a warmup that loads on its own daemon thread.
+     */
+    public FxWarmup( AssetManager assets ) {
+        this(assets, Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread( Runnable r ) {
+                    Thread t = new Thread(r, "FxWarmup");
+                    t.setDaemon(true);
+                    return t;
+                }
+            }), true);
+    }
+
+    /**
+     *  Creates a warmup that loads using the specified executor, for example,
+     *  the application's own loading pool.
+     */
+    public FxWarmup( AssetManager assets, ExecutorService executor ) {
+        this(assets, executor, false);
+    }
+
+    private FxWarmup( AssetManager assets, ExecutorService executor, boolean ownsExecutor ) {
+        this.assets = assets;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     *  Returns the names of the material definitions that are loaded.
+     */
+    public static List<String> getMaterialDefNames() {
+        List<String> result = new ArrayList<String>();
+        Collections.addAll(result, MATERIAL_DEFS);
+        return result;
+    }
+
+    /**
+     *  Sets the number of samples of the viewport that the DropShadowFilter
+     *  will be used with so that the matching multisample resolve variants are
+     *  compiled.  Defaults to 1.
+     */
+    public void setMultiSamples( int multiSamples ) {
+        this.multiSamples = multiSamples;
+    }
+
+    public int getMultiSamples() {
+        return multiSamples;
+    }
+
+    /**
+     *  Set to true to also compile the PreShadow and PostShadow techniques
+     *  of the scattered lighting variants.  Defaults to true.
+     */
+    public void setIncludeShadowTechniques( boolean b ) {
+        this.includeShadowTechniques = b;
+    }
+
+    public boolean getIncludeShadowTechniques() {
+        return includeShadowTechniques;
+    }
+
+    /**
+     *  Starts loading the material definitions and shader sources in the
+     *  background.  Calling it again has no effect.
+     */
+    public synchronized Future<List<MaterialDef>> start() {
+        if( loading != null ) {
+            return loading;
+        }
+        loading = executor.submit(new Callable<List<MaterialDef>>() {
+                public List<MaterialDef> call() {
+                    return loadDefinitions();
+                }
+            });
+        if( ownsExecutor ) {
+            // Lets the thread go away once the loading is done
+            executor.shutdown();
+        }
+        return loading;
+    }
+
+    /**
+     *  Returns true if start() has been called and the background
+     *  loading has finished.
+     */
+    public synchronized boolean isLoaded() {
+        return loading != null && loading.isDone();
+    }
+
+    /**
+     *  Waits for the background loading to finish, starting it if needed, 
+     *  and returns the loaded material definitions.
+     */
+    public List<MaterialDef> awaitLoaded() {
+        Future<List<MaterialDef>> f = start();
+        try {
+            return f.get();
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for material definitions", e);
+        } catch( ExecutionException e ) {
+            throw new RuntimeException("Error loading material definitions", e.getCause());
+        }
+    }
+
+    protected List<MaterialDef> loadDefinitions() {
+        long start = System.nanoTime();
+        List<MaterialDef> result = new ArrayList<MaterialDef>();
+        for( String name : MATERIAL_DEFS ) {
+            MaterialDef def = assets.loadAsset(new AssetKey<MaterialDef>(name));
+            result.add(def);
+            for( String techniqueName : def.getTechniqueDefsNames() ) {
+                for( TechniqueDef tech : def.getTechniqueDefs(techniqueName) ) {
+                    loadShaderSources(tech.getShaderProgramNames().values());
+                }
+            }
+        }
+        if( log.isDebugEnabled() ) {
+            log.debug("Loaded " + result.size() + " material definitions in " 
+                      + ((System.nanoTime() - start) / 1000000.0) + " ms");
+        }
+        return result;
+    }
+
+    private void loadShaderSources( Collection<String> names ) {
+        for( String name : names ) {
+            try {
+                assets.loadAsset(new AssetKey<Object>(name));
+            } catch( AssetNotFoundException e ) {
+                // Some techniques refer to shaders that the current engine 
+                // version doesn't have and that it never selects.
+                log.debug("Skipping missing shader source:" + name);
+            }
+        }
+    }
+
+    /**
+     *  Creates one material for each define permutation that the library's
+     *  own states and filters use.  Scattered lighting variants are included 
+     *  for the library's scattering modes on top of default lighting 
+     *  parameters.  This should be called from the render thread.
+     */
+    public List<Material> createVariants() {
+        awaitLoaded();
+
+        List<Material> result = new ArrayList<Material>();
+
+        // SkyState's atmospheric sky and its baked alternatives
+        result.add(variant(SKY_ATMOSPHERICS, "sky"));
+        Material m = variant(UNSHADED, "sky:BakedVertexColors");
+        m.setBoolean("VertexColor", true);
+        result.add(m);
+        result.add(variant(SKY, "sky:BakedCubeMap"));
+
+        // The shared scattering values are only needed to select the
+        // SHARED_SCATTERING define and a tiny table is enough to get the
+        // GROUND_LUT define
+        GroundScatteringLut lut = new GroundScatteringLut(2, 2, 1);
+
+        // SkyState's ground disc, scattered and flat and with or 
+        // without the ground scattering table
+        for( int i = 0; i < 3; i++ ) {
+            m = variant(GROUND_ATMOSPHERICS, "ground");
+            m.setColor("GroundColor", ColorRGBA.Gray);
+            m.setBoolean("FollowCamera", true);
+            m.setBoolean("UseScattering", i != 1);
+            m.setVector4("GroundScattering0", new Vector4f());
+            if( i == 2 ) {
+                lut.applyParameters(m);
+            }
+            result.add(m);
+        }
+
+        // Scattered lighting with the per-vertex loop, the ground 
+        // scattering table, and per-object scattering
+        for( int i = 0; i < 3; i++ ) {
+            m = variant(SCATTERED_LIGHTING, "scatteredLighting");
+            m.setBoolean("UseScattering", true);
+            m.setVector4("GroundScattering0", new Vector4f());
+            if( i == 1 ) {
+                lut.applyParameters(m);
+            } else if( i == 2 ) {
+                m.setVector3("ObjectInScatter", new Vector3f());
+            }
+            result.add(m);
+        }
+
+        // DropShadowFilter's materials, with the multisample
+        // resolve when needed
+        result.add(variant(DROP_SHADOW_NULL, "dropShadowNull"));
+        result.add(variant(DROP_SHADOWS, "dropShadows"));
+        if( multiSamples > 1 ) {
+            m = variant(DROP_SHADOW_NULL, "dropShadowNull");
+            m.setInt("NumSamples", multiSamples);
+            m.setInt("NumSamplesDepth", multiSamples);
+            result.add(m);
+            m = variant(DROP_SHADOWS, "dropShadows");
+            m.setInt("NumSamples", multiSamples);
+            m.setInt("NumSamplesDepth", multiSamples);
+            result.add(m);
+        }
+        return result;
+    }
+
+    private Material variant( String defName, String name ) {
+        Material m = new Material(assets, defName);
+        m.setName(name);
+        return m;
+    }
+
+    /**
+     *  Compiles the shaders of all of the variants, and the shadow techniques
+     *  of the scattered lighting variants if enabled, and returns the number
+     *  of techniques compiled.  This waits for the background loading if it
+     *  hasn't finished and must be called from the render thread.
+     */
+    public int preload( RenderManager rm ) {
+        long start = System.nanoTime();
+        Mesh mesh = new Quad(1, 1);
+        int count = 0;
+        for( Material m : createVariants() ) {
+            Geometry geom = new Geometry("warmup:" + m.getName(), mesh);
+            geom.setMaterial(m);
+            geom.updateGeometricState();
+            
+            // Default technique and mesh upload
+            rm.preloadScene(geom);
+            count++;
+
+            if( includeShadowTechniques && SCATTERED_LIGHTING.equals(m.getMaterialDef().getAssetName()) ) {
+                for( String tech : SHADOW_TECHNIQUES ) {
+                    if( m.getMaterialDef().getTechniqueDefs(tech) == null ) {
+                        continue;
+                    }
+                    m.selectTechnique(tech, rm);
+                    m.preload(rm, geom);
+                    count++;
+                }
+            }
+        }
+        if( log.isDebugEnabled() ) {
+            log.debug("Preloaded " + count + " techniques in " 
+                      + ((System.nanoTime() - start) / 1000000.0) + " ms");
+        }
+        return count;
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx;
+
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.util.SafeArrayList;
+import com.jme3.util.TempVars;
+import com.simsilica.lemur.core.VersionedHolder;
+import com.simsilica.lemur.core.VersionedReference;
+
+
+/**
+ *  The render-free core of the LightingState: the sun position from
+ *  a time of day along with the sun and ambient colors.  This has no
+ *  dependencies on an Application, lights, or geometry so that it
+ *  can be used directly on a headless server for things like visibility
+ *  or solar power calculations.
+ *
+ *  <p>By default, every time of day or orientation change publishes
+ *  a new light direction right away.  For animated days, setMaxUpdateRate()
+ *  and setAngleThreshold() can be used to coalesce small changes so that
+ *  consumers are only notified when the sun has moved enough to matter.
+ *  Consumers can register a LightDirectionListener to be told when that
+ *  happens instead of polling getLightDirRef() every frame.  Coalescing 
+ *  requires that update() be called regularly.</p>
+ *
+ *  @author    Paul Speed
+ */
+public class LightingModel {
+
+    public static final ColorRGBA DEFAULT_DIFFUSE = ColorRGBA.White.mult(2); 
+    public static final ColorRGBA DEFAULT_AMBIENT = new ColorRGBA(0.25f, 0.25f, 0.25f, 1); 
+
+    private VersionedHolder<Vector3f> lightDir = new VersionedHolder<Vector3f>();
+    private SafeArrayList<LightDirectionListener> listeners = new SafeArrayList<LightDirectionListener>(LightDirectionListener.class);
+    
+    // The latest calculated direction that may not have been published yet
+    private Vector3f pendingDir = new Vector3f();
+    
+    // Published directions alternate between these so that publishing
+    // doesn't create garbage but the previously published value stays
+    // intact for anyone still holding it.
+    private Vector3f[] publishedDirs = { new Vector3f(), new Vector3f() };
+    private int published = 0;
+    private boolean pending;
+    private boolean changed;
+    private float maxUpdateRate = 0;
+    private float angleThreshold = 0;
+    private float cosThreshold = 1;
+    private float sinceLastPublish;
+    
+    private ColorRGBA sunColor;
+    private ColorRGBA ambientColor;
+    private float timeOfDay = FastMath.atan2(1, 0.3f) / FastMath.PI;    
+    private float inclination = FastMath.HALF_PI - FastMath.atan2(1, 0.4f);
+    private float orientation = 0; //FastMath.HALF_PI; 
+    
+    private LightDirectionTable directionTable;
+    
+    public LightingModel() {
+        this(FastMath.atan2(1, 0.3f) / FastMath.PI);
+    }
+
+    public LightingModel( float time ) {
+        this.sunColor = DEFAULT_DIFFUSE.clone();
+        this.ambientColor = DEFAULT_AMBIENT.clone();
+        this.timeOfDay = time;
+        resetLightDir();
+    }
+    
+    public VersionedReference<Vector3f> getLightDirRef() {
+        return lightDir.createReference();
+    }
+ 
+    /**
+     *  Returns the currently published light direction.
+     */
+    public Vector3f getLightDirection() {
+        return lightDir.getObject();
+    }
+ 
+    public void addLightDirectionListener( LightDirectionListener l ) {
+        listeners.add(l);
+    }
+    
+    public void removeLightDirectionListener( LightDirectionListener l ) {
+        listeners.remove(l);
+    }
+ 
+    /**
+     *  Sets the maximum number of times per second that a new light direction
+     *  will be published.  0 means there is no limit.  Defaults to 0.
+     */
+    public void setMaxUpdateRate( float hz ) {
+        this.maxUpdateRate = Math.max(0, hz);
+    }
+    
+    public float getMaxUpdateRate() {
+        return maxUpdateRate;
+    }
+ 
+    /**
+     *  Sets the angle in radians that the sun must move from the last published 
+     *  direction before a new direction is published while the sun is still 
+     *  moving.  Once the sun stops moving, its final direction is always published.
+     *  0 means any change is published.  Defaults to 0.
+     */
+    public void setAngleThreshold( float radians ) {
+        this.angleThreshold = Math.max(0, radians);
+        this.cosThreshold = FastMath.cos(angleThreshold);
+    }
+    
+    public float getAngleThreshold() {
+        return angleThreshold;
+    }
+    
+    /**
+     *  Sets an optional precomputed table that the light direction is looked 
+     *  up in instead of being calculated for every change.  The table is only
+     *  used while it is built for this model's current orientation and 
+     *  inclination.  AtmosphereModel sets its DayCycleTimeline here.
+     */
+    public void setLightDirectionTable( LightDirectionTable table ) {
+        this.directionTable = table;
+    }
+    
+    public LightDirectionTable getLightDirectionTable() {
+        return directionTable;
+    }
+    
+    protected boolean isCoalescing() {
+        return maxUpdateRate > 0 || angleThreshold > 0;
+    }
+
+    public void setSunColor( ColorRGBA color ) {
+        this.sunColor.set(color);
+    }
+    
+    public ColorRGBA getSunColor() {
+        return sunColor;
+    }
+ 
+    public void setAmbient( ColorRGBA ambient ) {
+        this.ambientColor.set(ambient);
+    }
+    
+    public ColorRGBA getAmbient() {
+        return ambientColor;
+    }
+    
+    public void setTimeOfDay( float f ) {
+        if( this.timeOfDay == f ) {
+            return;
+        }
+        this.timeOfDay = f;
+        resetLightDir();        
+    }
+    
+    public float getTimeOfDay() {
+        return timeOfDay;
+    }
+
+    public void setOrientation( float f ) {
+        if( this.orientation == f ) {
+            return;
+        }
+        this.orientation = f;
+        resetLightDir();        
+    }
+    
+    public float getOrientation() {
+        return orientation;
+    }
+ 
+    public void setInclination( float f ) {
+        if( this.inclination == f ) {
+            return;
+        }
+        this.inclination = f;
+        resetLightDir();
+    }
+    
+    public float getInclination() {
+        return inclination;
+    }
+ 
+    /**
+     *  Calculates the direction of the sun light for the specified time
+     *  of day, inclination, and orientation.  Time 0 is sunrise, 0.5 is
+     *  noon, and 1 is sunset.
+     */
+    public static Vector3f calculateLightDir( float timeOfDay, float inclination, float orientation, Vector3f target ) {
+        if( target == null ) {
+            target = new Vector3f();
+        }
+        float angle = timeOfDay * FastMath.PI;
+ 
+        TempVars vars = TempVars.get();
+        try {
+            Quaternion q1 = vars.quat1.fromAngles(0, 0, (angle - FastMath.HALF_PI));
+            Quaternion q2 = vars.quat2.fromAngles(inclination, orientation, 0);
+            q2.multLocal(q1);
+            return q2.mult(vars.vect1.set(0, -1, 0), target);
+        } finally {
+            vars.release();
+        }
+    }
+ 
+    protected void resetLightDir() {
+        if( directionTable != null && directionTable.isBuiltFor(orientation, inclination) ) {
+            directionTable.getLightDirection(timeOfDay, pendingDir);
+        } else {
+            calculateLightDir(timeOfDay, inclination, orientation, pendingDir);
+        }
+        pending = true;
+        changed = true;
+        if( lightDir.getObject() == null || !isCoalescing() ) {
+            publishLightDir();
+        }
+    }
+ 
+    protected void publishLightDir() {
+        pending = false;
+        sinceLastPublish = 0;
+        published = (published + 1) % publishedDirs.length;
+        lightDir.setObject(publishedDirs[published].set(pendingDir));
+        for( LightDirectionListener l : listeners.getArray() ) {
+            l.lightDirectionChanged(this, lightDir.getObject());
+        }
+    }
+ 
+    /**
+     *  Publishes the pending light direction change, if any, right away
+     *  instead of waiting for update() and the coalescing limits.  This is
+     *  for direct edits that should be seen with other changes made at 
+     *  the same time, like a settings panel's atmosphere batch.
+     */
+    public void publishPending() {
+        if( pending ) {
+            publishLightDir();
+        }
+    }
+ 
+    /**
+     *  Publishes any pending light direction change that is due.  Only
+     *  needed when coalescing is turned on.
+     */   
+    public void update( float tpf ) {
+        sinceLastPublish += tpf;
+        boolean moving = changed;
+        changed = false;
+        if( !pending ) {
+            return;
+        }
+        if( maxUpdateRate > 0 && sinceLastPublish < 1 / maxUpdateRate ) {
+            return;
+        }
+        if( moving && angleThreshold > 0 && lightDir.getObject().dot(pendingDir) > cosThreshold ) {
+            // Still moving and hasn't gone far enough yet
+            return;
+        }
+        publishLightDir();
+    }
+}
@@ -41,46 +41,61 @@ import com.jme3.app.SimpleApplication;
 import com.jme3.light.AmbientLight;
 import com.jme3.light.DirectionalLight;
 import com.jme3.math.ColorRGBA;
-import com.jme3.math.FastMath;
-import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Node;
-import com.simsilica.lemur.core.VersionedHolder;
 import com.simsilica.lemur.core.VersionedReference;
 import com.simsilica.lemur.event.BaseAppState;
 
 /**
+ *  Manages the sun and ambient lights for a LightingModel that
+ *  tracks the sun's position from a time of day.  The model holds all
+ *  of the actual state and can be used without this app state on
+ *  headless servers.
  *
+ *  <p>By default, every time of day or orientation change publishes
+ *  a new light direction right away.  For animated days, setMaxUpdateRate()
+ *  and setAngleThreshold() can be used to coalesce small changes so that
+ *  consumers are only notified when the sun has moved enough to matter.
+ *  Consumers can register a LightDirectionListener to be told when that
+ *  happens instead of polling getLightDirRef() every frame.</p>
  *
  *  @author    Paul Speed
  */
 public class LightingState extends BaseAppState {
 
-    public static final ColorRGBA DEFAULT_DIFFUSE = ColorRGBA.White.mult(2); 
-    public static final ColorRGBA DEFAULT_AMBIENT = new ColorRGBA(0.25f, 0.25f, 0.25f, 1); 
+    public static final ColorRGBA DEFAULT_DIFFUSE = LightingModel.DEFAULT_DIFFUSE; 
+    public static final ColorRGBA DEFAULT_AMBIENT = LightingModel.DEFAULT_AMBIENT; 
 
-    private VersionedHolder<Vector3f> lightDir = new VersionedHolder<Vector3f>();
+    private LightingModel model;
+    private ModelObserver modelObserver = new ModelObserver();
     
-    private ColorRGBA sunColor;
     private DirectionalLight sun = new DirectionalLight();
-    private ColorRGBA ambientColor;
     private AmbientLight ambient = new AmbientLight();
-    private float timeOfDay = FastMath.atan2(1, 0.3f) / FastMath.PI;    
-    private float inclination = FastMath.HALF_PI - FastMath.atan2(1, 0.4f);
-    private float orientation = 0; //FastMath.HALF_PI; 
     
     private Node rootNode;  // the one we added the lights to
     
     public LightingState() {
-        this(FastMath.atan2(1, 0.3f) / FastMath.PI);
+        this(new LightingModel());
     }
 
     public LightingState( float time ) {
-        //lightDir.setObject(new Vector3f(-0.2f, -1, -0.3f).normalizeLocal());
-        this.sunColor = DEFAULT_DIFFUSE.clone();
-        this.ambientColor = DEFAULT_AMBIENT.clone();
-        setTimeOfDay(time);
-        resetLightDir(); // just in case it didn't change but we still need to calculate it
+        this(new LightingModel(time));
+    }
+ 
+    /**
+     *  Creates a lighting state that displays the specified model.  This lets
+     *  an application share the same LightingModel between rendering and
+     *  any headless game logic.
+     */   
+    public LightingState( LightingModel model ) {
+        this.model = model;
+        sun.setColor(model.getSunColor());
+        sun.setDirection(model.getLightDirection());
+        ambient.setColor(model.getAmbient());
+    }
+ 
+    public LightingModel getLightingModel() {
+        return model;
     }
  
     public DirectionalLight getSun() {
@@ -88,78 +103,125 @@ public class LightingState extends BaseAppState {
     }
     
     public VersionedReference<Vector3f> getLightDirRef() {
-        return lightDir.createReference();
+        return model.getLightDirRef();
+    }
+ 
+    /**
+     *  Returns the currently published light direction.
+     */
+    public Vector3f getLightDirection() {
+        return model.getLightDirection();
+    }
+ 
+    public void addLightDirectionListener( LightDirectionListener l ) {
+        model.addLightDirectionListener(l);
+    }
+    
+    public void removeLightDirectionListener( LightDirectionListener l ) {
+        model.removeLightDirectionListener(l);
+    }
+ 
+    /**
+     *  Sets the maximum number of times per second that a new light direction
+     *  will be published.  See LightingModel.setMaxUpdateRate().
+     */
+    public void setMaxUpdateRate( float hz ) {
+        model.setMaxUpdateRate(hz);
+    }
+    
+    public float getMaxUpdateRate() {
+        return model.getMaxUpdateRate();
+    }
+ 
+    /**
+     *  Sets the angle in radians that the sun must move before a new direction
+     *  is published.  See LightingModel.setAngleThreshold().
+     */
+    public void setAngleThreshold( float radians ) {
+        model.setAngleThreshold(radians);
+    }
+    
+    public float getAngleThreshold() {
+        return model.getAngleThreshold();
+    }
+ 
+    /**
+     *  Publishes the pending light direction change, if any, right away.
+     *  See LightingModel.publishPending().
+     */
+    public void publishPending() {
+        model.publishPending();
     }
 
     public void setSunColor( ColorRGBA color ) {
-        this.sunColor.set(color);
-        this.sun.setColor(sunColor);
+        model.setSunColor(color);
+        this.sun.setColor(model.getSunColor());
     }
     
     public ColorRGBA getSunColor() {
-        return sunColor;
+        return model.getSunColor();
     }
  
     public void setAmbient( ColorRGBA ambient ) {
-        this.ambientColor.set(ambient);
-        this.ambient.setColor(ambientColor);
+        model.setAmbient(ambient);
+        this.ambient.setColor(model.getAmbient());
     }
     
     public ColorRGBA getAmbient() {
-        return ambientColor;
+        return model.getAmbient();
     }
     
     public void setTimeOfDay( float f ) {
-        if( this.timeOfDay == f ) {
-            return;
-        }
-        this.timeOfDay = f;
-        resetLightDir();        
+        model.setTimeOfDay(f);
     }
     
     public float getTimeOfDay() {
-        return timeOfDay;
+        return model.getTimeOfDay();
     }
 
     public void setOrientation( float f ) {
-        if( this.orientation == f ) {
-            return;
-        }
-        this.orientation = f;
-        resetLightDir();        
+        model.setOrientation(f);
     }
     
     public float getOrientation() {
-        return orientation;
+        return model.getOrientation();
     }
  
-    protected void resetLightDir() {
-        float angle = timeOfDay * FastMath.PI;
+    public void setInclination( float f ) {
+        model.setInclination(f);
+    }
+    
+    public float getInclination() {
+        return model.getInclination();
+    }
  
-        Quaternion q1 = new Quaternion().fromAngles(0, 0, (angle - FastMath.HALF_PI));
-        Quaternion q2 = new Quaternion().fromAngles(inclination, orientation, 0);
-        Vector3f dir = q2.mult(q1).mult(Vector3f.UNIT_Y.negate());
-        lightDir.setObject(dir);
-        if( sun != null ) {
-            sun.setDirection(lightDir.getObject());
-        }
+    /**
+     *  Calculates the direction of the sun light for the specified time
+     *  of day, inclination, and orientation.  See LightingModel.calculateLightDir().
+     */
+    public static Vector3f calculateLightDir( float timeOfDay, float inclination, float orientation, Vector3f target ) {
+        return LightingModel.calculateLightDir(timeOfDay, inclination, orientation, target);
     }
     
     @Override
-    protected void initialize( Application app ) {
-        
-        sun.setColor(sunColor);
-        sun.setDirection(lightDir.getObject());
+    public void update( float tpf ) {
+        model.update(tpf);
         
-        ambient = new AmbientLight();
-        ambient.setColor(ambientColor);
-        resetLightDir();
-        
-        //setTimeOfDay(0.05f);
+        // The model's colors may have been changed directly
+        sun.setColor(model.getSunColor());
+        ambient.setColor(model.getAmbient());
+    }
+    
+    @Override
+    protected void initialize( Application app ) {
+        // The model may have moved on since this state was last attached
+        sun.setDirection(model.getLightDirection());
+        model.addLightDirectionListener(modelObserver);
     }
 
     @Override
     protected void cleanup( Application app ) {
+        model.removeLightDirectionListener(modelObserver);
     }
 
     @Override
@@ -174,5 +236,11 @@ public class LightingState extends BaseAppState {
         rootNode.removeLight(sun);
         rootNode.removeLight(ambient);
     }
+    
+    private class ModelObserver implements LightDirectionListener {
+        @Override
+        public void lightDirectionChanged( LightingModel source, Vector3f direction ) {
+            sun.setDirection(direction);
+        }
+    }
 }
-
@@ -0,0 +1,235 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx;
+
+import com.simsilica.fx.sky.AtmosphericParameters;
+
+
+/**
+ *  One coherent set of quality settings for the SimFX effects.  A profile 
+ *  starts from one of the standard QualityLevels and its individual 
+ *  settings can then be changed to make a custom profile.  QualityState 
+ *  applies a profile to the running effects.
+ *
+ *  @author    Paul Speed
+ */
+public class QualityProfile {
+
+    /**
+     *  The per-pixel lighting quality of the ScatteredLighting materials.
+     */
+    public enum LightingQuality { 
+        /** Sets LowQuality: a cheaper specular and none at all for vertex lighting. */
+        Low, 
+        /** Neither flag. */
+        Normal, 
+        /** 
+         *  Sets HighQuality: per-pixel light attenuation for multipass lighting.
+         *  Single pass lighting always attenuates per pixel.
+         */
+        High 
+    }
+
+    // The standard levels keep the CPU-side scattering in step with the
+    // shaders, which can't change their sample count.
+    private static final int SHADER_SAMPLES = AtmosphericParameters.SHADER_SAMPLE_COUNT;
+
+    private QualityLevel baseLevel;
+    private boolean custom;
+
+    private int maxShadows;
+    private float shadowDistance;
+    private int domeRadials;
+    private int sunZSamples;
+    private int sunRadialSamples;
+    private int scatteringSamples;
+    private LightingQuality lightingQuality;
+
+    public QualityProfile() {
+        this(QualityLevel.High);
+    }
+
+    public QualityProfile( QualityLevel level ) {
+        setLevel(level);
+    }
+
+    public QualityProfile( QualityProfile copy ) {
+        this.baseLevel = copy.baseLevel;
+        this.custom = copy.custom;
+        set(copy.maxShadows, copy.shadowDistance, copy.domeRadials,
+            copy.sunZSamples, copy.sunRadialSamples, copy.scatteringSamples,
+            copy.lightingQuality);
+    }
+
+    /**
+     *  Resets all settings to those of the specified standard level.
+     */
+    public final void setLevel( QualityLevel level ) {
+        this.baseLevel = level;
+        this.custom = false;
+        switch( level ) {
+            case Low:
+                set(100, 100, 32, 4, 8, SHADER_SAMPLES, LightingQuality.Low);
+                break;
+            case Medium:
+                set(250, 250, 64, 6, 12, SHADER_SAMPLES, LightingQuality.Normal);
+                break;
+            case High:
+                set(500, Float.POSITIVE_INFINITY, 100, 6, 12, SHADER_SAMPLES, LightingQuality.Normal);
+                break;
+            case Ultra:
+                set(1000, Float.POSITIVE_INFINITY, 160, 12, 24, SHADER_SAMPLES, LightingQuality.High);
+                break;
+        }
+    }
+
+    private void set( int maxShadows, float shadowDistance, int domeRadials,
+                      int sunZSamples, int sunRadialSamples, int scatteringSamples,
+                      LightingQuality lightingQuality ) {
+        this.maxShadows = maxShadows;
+        this.shadowDistance = shadowDistance;
+        this.domeRadials = domeRadials;
+        this.sunZSamples = sunZSamples;
+        this.sunRadialSamples = sunRadialSamples;
+        this.scatteringSamples = scatteringSamples;
+        this.lightingQuality = lightingQuality;
+    }
+
+    /**
+     *  Returns the standard level that this profile was last reset to.
+     */
+    public QualityLevel getBaseLevel() {
+        return baseLevel;
+    }
+
+    /**
+     *  Returns true if any setting has been changed from the base level.
+     */
+    public boolean isCustom() {
+        return custom;
+    }
+
+    /**
+     *  Sets the DropShadowFilter shadow cap.
+     */
+    public void setMaxShadows( int maxShadows ) {
+        this.maxShadows = maxShadows;
+        this.custom = true;
+    }
+
+    public int getMaxShadows() {
+        return maxShadows;
+    }
+
+    /**
+     *  Sets the DropShadowFilter max shadow distance.
+     */
+    public void setShadowDistance( float shadowDistance ) {
+        this.shadowDistance = shadowDistance;
+        this.custom = true;
+    }
+
+    public float getShadowDistance() {
+        return shadowDistance;
+    }
+
+    /**
+     *  Sets the radials of the SkyState's sky dome and ground disc.
+     */
+    public void setDomeRadials( int domeRadials ) {
+        this.domeRadials = domeRadials;
+        this.custom = true;
+    }
+
+    public int getDomeRadials() {
+        return domeRadials;
+    }
+
+    /**
+     *  Sets the tessellation of the SkyState's sun sphere.
+     */
+    public void setSunSamples( int zSamples, int radialSamples ) {
+        this.sunZSamples = zSamples;
+        this.sunRadialSamples = radialSamples;
+        this.custom = true;
+    }
+
+    public int getSunZSamples() {
+        return sunZSamples;
+    }
+
+    public int getSunRadialSamples() {
+        return sunRadialSamples;
+    }
+
+    /**
+     *  Sets the number of samples per ray of the CPU-side atmospheric 
+     *  scattering calculations.  The standard levels all use 
+     *  AtmosphericParameters.SHADER_SAMPLE_COUNT because other values
+     *  make the CPU-side colors disagree with the shaded ones.  See
+     *  AtmosphericParameters.setSampleCount().
+     */
+    public void setScatteringSamples( int scatteringSamples ) {
+        this.scatteringSamples = scatteringSamples;
+        this.custom = true;
+    }
+
+    public int getScatteringSamples() {
+        return scatteringSamples;
+    }
+
+    public void setLightingQuality( LightingQuality lightingQuality ) {
+        this.lightingQuality = lightingQuality;
+        this.custom = true;
+    }
+
+    public LightingQuality getLightingQuality() {
+        return lightingQuality;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + baseLevel + (custom ? "(custom)" : "")
+                + ", maxShadows=" + maxShadows
+                + ", shadowDistance=" + shadowDistance
+                + ", domeRadials=" + domeRadials
+                + ", sunSamples=" + sunZSamples + "x" + sunRadialSamples
+                + ", scatteringSamples=" + scatteringSamples
+                + ", lightingQuality=" + lightingQuality
+                + "]";
+    }
+}
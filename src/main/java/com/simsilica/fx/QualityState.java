@@ -0,0 +1,203 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx;
+
+import com.jme3.app.Application;
+import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.BaseAppState;
+import com.jme3.material.MatParamOverride;
+import com.jme3.scene.Node;
+import com.jme3.shader.VarType;
+import com.jme3.util.SafeArrayList;
+
+import com.simsilica.fx.shadow.DropShadowFilter;
+import com.simsilica.fx.sky.SkyState;
+
+
+/**
+ *  Applies a QualityProfile to the running SimFX effects: the SkyState's
+ *  dome and sun tessellation, the atmosphere's CPU scattering sample count, 
+ *  the cap and distance of any added DropShadowFilters, and the quality 
+ *  flags of ScatteredLighting materials through material parameter overrides 
+ *  on the lighting root.  Changing the profile takes effect immediately 
+ *  without recreating any of the other states.
+ *
+ *  @author    Paul Speed
+ */
+public class QualityState extends BaseAppState {
+
+    private QualityProfile profile;
+    private final SafeArrayList<DropShadowFilter> shadowFilters = new SafeArrayList<DropShadowFilter>(DropShadowFilter.class);
+    private Node lightingRoot;
+    private final MatParamOverride lowQuality = new MatParamOverride(VarType.Boolean, "LowQuality", true);
+    private final MatParamOverride highQuality = new MatParamOverride(VarType.Boolean, "HighQuality", true);
+
+    public QualityState() {
+        this(QualityLevel.High);
+    }
+
+    public QualityState( QualityLevel level ) {
+        this(new QualityProfile(level));
+    }
+
+    public QualityState( QualityProfile profile ) {
+        this.profile = profile;
+    }
+
+    public void setQualityLevel( QualityLevel level ) {
+        setProfile(new QualityProfile(level));
+    }
+
+    /**
+     *  Sets and applies the quality profile.  The profile is kept by 
+     *  reference so changes made to it later can be applied by calling
+     *  apply().
+     */
+    public void setProfile( QualityProfile profile ) {
+        this.profile = profile;
+        apply();
+    }
+
+    public QualityProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     *  Adds a drop shadow filter whose settings will follow the profile.
+     */
+    public void addShadowFilter( DropShadowFilter filter ) {
+        shadowFilters.add(filter);
+        if( isInitialized() ) {
+            applyShadows(filter);
+        }
+    }
+
+    public void removeShadowFilter( DropShadowFilter filter ) {
+        shadowFilters.remove(filter);
+    }
+
+    /**
+     *  Sets the node whose ScatteredLighting materials follow the profile's
+     *  lighting quality.  Defaults to the application's root node.
+     */
+    public void setLightingRoot( Node node ) {
+        if( this.lightingRoot == node ) {
+            return;
+        }
+        if( lightingRoot != null ) {
+            lightingRoot.removeMatParamOverride(lowQuality);
+            lightingRoot.removeMatParamOverride(highQuality);
+        }
+        this.lightingRoot = node;
+        if( isInitialized() ) {
+            applyLighting();
+        }
+    }
+
+    public Node getLightingRoot() {
+        return lightingRoot;
+    }
+
+    /**
+     *  Applies the current profile to all of the effects.
+     */
+    public void apply() {
+        if( !isInitialized() ) {
+            return;
+        }
+        for( DropShadowFilter filter : shadowFilters.getArray() ) {
+            applyShadows(filter);
+        }
+
+        SkyState sky = getState(SkyState.class);
+        if( sky != null ) {
+            sky.setDomeRadials(profile.getDomeRadials());
+            sky.setSunSamples(profile.getSunZSamples(), profile.getSunRadialSamples());
+            sky.getAtmosphericParameters().setSampleCount(profile.getScatteringSamples());
+        }
+
+        applyLighting();
+    }
+
+    protected void applyShadows( DropShadowFilter filter ) {
+        filter.setMaxShadows(profile.getMaxShadows());
+        filter.setMaxDistance(profile.getShadowDistance());
+    }
+
+    protected void applyLighting() {
+        if( lightingRoot == null ) {
+            return;
+        }
+        lightingRoot.removeMatParamOverride(lowQuality);
+        lightingRoot.removeMatParamOverride(highQuality);
+        switch( profile.getLightingQuality() ) {
+            case Low:
+                lightingRoot.addMatParamOverride(lowQuality);
+                break;
+            case High:
+                lightingRoot.addMatParamOverride(highQuality);
+                break;
+            case Normal:
+            default:
+                break;
+        }
+    }
+
+    @Override
+    protected void initialize( Application app ) {
+        if( lightingRoot == null ) {
+            lightingRoot = ((SimpleApplication)app).getRootNode();
+        }
+        apply();
+    }
+
+    @Override
+    protected void cleanup( Application app ) {
+        if( lightingRoot != null ) {
+            lightingRoot.removeMatParamOverride(lowQuality);
+            lightingRoot.removeMatParamOverride(highQuality);
+        }
+    }
+
+    @Override
+    protected void onEnable() {
+    }
+
+    @Override
+    protected void onDisable() {
+    }
+}
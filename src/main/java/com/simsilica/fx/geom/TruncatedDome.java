@@ -38,10 +38,13 @@ package com.simsilica.fx.geom;
 
 import com.jme3.math.FastMath;
 import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
 import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.mesh.IndexBuffer;
 import com.jme3.util.BufferUtils;
 import java.nio.FloatBuffer;
-import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -57,10 +60,30 @@ import java.nio.ShortBuffer;
  *  below the center surface position.  The theory is that
  *  a ground plane would be covering this extra area.
  *
+ *  <p>The slices can either be spaced along a parabola (the original
+ *  distribution) or at equal view angles as seen from the eye point
+ *  at the center of the dome's base.  Equal view angles put the vertexes
+ *  where they matter and generally need far fewer slices for the same
+ *  worst case angular error.  See getSliceCount().</p>
+ *
  *  @author    Paul Speed
  */
 public class TruncatedDome extends Mesh {
 
+    public enum SliceDistribution { 
+        /**
+         *  Slices are spaced along a parabola that gets tighter towards 
+         *  the top of the dome.
+         */
+        Parabolic, 
+        
+        /**
+         *  Slices are spaced so that each covers the same elevation angle
+         *  as seen from the eye point at the center of the dome's base.
+         */
+        ViewAngle 
+    }
+
     private int radials;
     private int slices;
     
@@ -69,20 +92,68 @@ public class TruncatedDome extends Mesh {
     private float baseRadius;
     
     private boolean inside;
+    private SliceDistribution distribution = SliceDistribution.Parabolic;
+    private int lodCount = 1;
     
     public TruncatedDome( float innerRadius, float outerRadius, 
                           int radials, int slices, boolean inside ) {
-        updateGeometry(innerRadius, outerRadius, radials, slices, inside);
+        this(innerRadius, outerRadius, radials, slices, inside, SliceDistribution.Parabolic);
+    }
+    
+    public TruncatedDome( float innerRadius, float outerRadius, 
+                          int radials, int slices, boolean inside,
+                          SliceDistribution distribution ) {
+        updateGeometry(innerRadius, outerRadius, radials, slices, inside, distribution);
+    }
+ 
+    /**
+     *  Returns the number of slices a SliceDistribution.ViewAngle dome needs
+     *  so that no slice covers more than the specified elevation angle as 
+     *  seen from the eye point.
+     */   
+    public static int getSliceCount( float maxAngle ) {
+        return Math.max(2, (int)FastMath.ceil(FastMath.HALF_PI / maxAngle));
     }
     
     public float getBaseRadius() {
         return baseRadius;
     }
     
+    public float getInnerRadius() {
+        return innerRadius;
+    }
+    
+    public float getOuterRadius() {
+        return outerRadius;
+    }
+    
+    public int getRadials() {
+        return radials;
+    }
+    
+    public int getSlices() {
+        return slices;
+    }
+    
+    public boolean isInside() {
+        return inside;
+    }
+    
+    public SliceDistribution getSliceDistribution() {
+        return distribution;
+    }
+    
     public final void updateGeometry( float innerRadius, float outerRadius, 
                                 int radials, int slices, boolean inside ) {
+        updateGeometry(innerRadius, outerRadius, radials, slices, inside, distribution);
+    }
+    
+    public final void updateGeometry( float innerRadius, float outerRadius, 
+                                int radials, int slices, boolean inside,
+                                SliceDistribution distribution ) {
         if( this.innerRadius == innerRadius && this.outerRadius == outerRadius
-            && this.radials == radials && this.slices == slices && this.inside == inside ) {
+            && this.radials == radials && this.slices == slices && this.inside == inside 
+            && this.distribution == distribution ) {
             return;
         }                                                                                        
                                                                                         
@@ -91,18 +162,17 @@ public class TruncatedDome extends Mesh {
         this.radials = radials;
         this.slices = slices;
         this.inside = inside;
+        this.distribution = distribution;
  
         // How many vertexes will we need?
         int radialVertCount = radials + 1; // for the seam
         int elevVertCount = slices; 
         int vertCount = radialVertCount * elevVertCount + 1;
-        int quadCount = radials * elevVertCount;
-        int triCount = 2 * quadCount + radials;
+        int triCount = getTriangleCount(1, 1);
 
         // Make sure we have buffers the proper size
         FloatBuffer pb = makeFloatBuffer(Type.Position, 3, vertCount);  
         FloatBuffer nb = makeFloatBuffer(Type.Normal, 3, vertCount);  
-        FloatBuffer tb = makeFloatBuffer(Type.TexCoord, 3, vertCount);  
  
         // Overlap the first and last for the seam       
         float[] radialSines = new float[radialVertCount];
@@ -121,11 +191,9 @@ public class TruncatedDome extends Mesh {
         // slices and then back them into angles.
         // Actually, we want it even tighter up top and looser towards
         // the horizon... so inverting a sin/cos or something... or
-        // some other curve.  Trying a parabola.
-        // The "right answer" is to project regular angles from the
-        // eye point out to the surface but that math eludes me at the
-        // moment and I don't feel like doing quadratic equations for
-        // that.
+        // some other curve.  The parabola does this.  The view angle
+        // distribution projects regular angles from the eye point
+        // out to the surface instead.
         float[] sliceAngles = new float[elevVertCount];
         
         // For the center point on the base, the cos of the base
@@ -134,6 +202,10 @@ public class TruncatedDome extends Mesh {
         sliceAngles[0] = FastMath.HALF_PI - FastMath.acos(innerRadius / outerRadius);
         baseRadius = FastMath.cos(sliceAngles[0]) * outerRadius;
         for( int i = 1; i < elevVertCount; i++ ) {
+            if( distribution == SliceDistribution.ViewAngle ) {
+                sliceAngles[i] = projectViewAngle(FastMath.HALF_PI * i / elevVertCount);
+                continue;
+            }
             float t = 1.0f - ((float)i / elevVertCount);
             t = t * t;
             float r = baseRadius * t;
@@ -168,47 +240,121 @@ public class TruncatedDome extends Mesh {
         nb.put(0).put(inside ? -1 : 1).put(0);
         pb.put(0).put(outerRadius - innerRadius).put(0);
         
-        // Now we need to setup the index buffer
-        ShortBuffer ib = makeShortBuffer(Type.Index, 3, triCount);  
-        for( int i = 0; i < elevVertCount - 1; i++ ) {
+        // Now we need to setup the index buffer.  Large domes need
+        // more than 16 bits.
+        IndexBuffer ib = makeIndexBuffer(vertCount, 3, triCount);  
+        fillIndexes(ib, 1, 1);
+ 
+        setBuffer(Type.Position, 3, pb);
+        setBuffer(Type.Normal, 3, nb);
+        setBuffer(Type.Index, 3, ib.getFormat(), ib.getBuffer());
+        
+        updateBound();
+        
+        if( lodCount > 1 ) {
+            generateLodLevels(lodCount);
+        } else {
+            setLodLevels(null);
+        }
+    }
+ 
+    /**
+     *  Generates up to the specified number of LOD levels, including the 
+     *  full detail level 0, that all share this mesh's vertexes.  Each level
+     *  skips every other radial and slice of the one before it.  Levels stop 
+     *  early if the dome would get coarser than 8 radials or 2 slices.
+     *  Returns the number of levels generated.
+     */
+    public int generateLodLevels( int count ) {
+        this.lodCount = count;
+        List<VertexBuffer> levels = new ArrayList<VertexBuffer>();
+        levels.add(getBuffer(Type.Index));
+        int vertCount = getVertexCount();
+        for( int step = 2; levels.size() < count; step *= 2 ) {
+            if( radials / step < 8 || slices / step < 2 ) {
+                break;
+            }
+            IndexBuffer ib = IndexBuffer.createIndexBuffer(vertCount, 3 * getTriangleCount(step, step));
+            fillIndexes(ib, step, step);
+            VertexBuffer vb = new VertexBuffer(Type.Index);
+            vb.setupData(VertexBuffer.Usage.Static, 3, ib.getFormat(), ib.getBuffer());
+            levels.add(vb);
+        }
+        if( levels.size() > 1 ) {
+            setLodLevels(levels.toArray(new VertexBuffer[levels.size()]));
+        } else {
+            setLodLevels(null);
+        }
+        return levels.size();
+    }
+ 
+    protected int getTriangleCount( int radialStep, int sliceStep ) {
+        int rows = (slices + sliceStep - 1) / sliceStep;
+        int cols = (radials + radialStep - 1) / radialStep;
+        return 2 * (rows - 1) * cols + cols;
+    }
+    
+    /**
+     *  Fills the index buffer with triangles that use every radialStep radial 
+     *  and every sliceStep slice.  The horizon, the seam, and the pole are 
+     *  always included.
+     */
+    protected void fillIndexes( IndexBuffer ib, int radialStep, int sliceStep ) {
+        int radialVertCount = radials + 1; // for the seam
+        int elevVertCount = slices;
+        ib.rewind(); 
+        for( int i = 0; i + sliceStep < elevVertCount; i += sliceStep ) {
             int base, next;
             if( inside ) {
                 base = i * radialVertCount;
-                next = (i + 1) * radialVertCount;
+                next = (i + sliceStep) * radialVertCount;
             } else {
                 next = i * radialVertCount;
-                base = (i + 1) * radialVertCount;
+                base = (i + sliceStep) * radialVertCount;
             }   
-            for( int j = 0; j < radialVertCount - 1; j++ ) {
-                ib.put((short)(base + j));
-                ib.put((short)(base + j + 1));
-                ib.put((short)(next + j + 1));
-                ib.put((short)(base + j));
-                ib.put((short)(next + j + 1));
-                ib.put((short)(next + j));
+            for( int j = 0; j < radials; j += radialStep ) {
+                int k = Math.min(j + radialStep, radials);
+                ib.put(base + j);
+                ib.put(base + k);
+                ib.put(next + k);
+                ib.put(base + j);
+                ib.put(next + k);
+                ib.put(next + j);
             }
         }
         
         // Now close the pole
-        int base = (elevVertCount - 1) * radialVertCount;
+        int base = ((elevVertCount - 1) / sliceStep) * sliceStep * radialVertCount;
         int tip = elevVertCount * radialVertCount;
-        for( int j = 0; j < radialVertCount - 1; j++ ) {
+        for( int j = 0; j < radials; j += radialStep ) {
+            int k = Math.min(j + radialStep, radials);
             if( inside ) {
-                ib.put((short)(base + j)); 
-                ib.put((short)(base + j + 1));                 
-                ib.put((short)(tip)); 
+                ib.put(base + j); 
+                ib.put(base + k);                 
+                ib.put(tip); 
             } else {
-                ib.put((short)(base + j)); 
-                ib.put((short)(tip)); 
-                ib.put((short)(base + j + 1)); 
+                ib.put(base + j); 
+                ib.put(tip); 
+                ib.put(base + k); 
             }   
         }
- 
-        setBuffer(Type.Position, 3, pb);
-        setBuffer(Type.Normal, 3, nb);
-        setBuffer(Type.Index, 3, ib);
-        
-        updateBound();       
+        ib.rewind();
+    }
+
+    /**
+     *  Returns the angle from the dome's center (the planet center) of the point 
+     *  on the outer sphere that the eye sees at the specified elevation.  The 
+     *  eye is innerRadius above the center so the ray is eye + t * (cos e, sin e)
+     *  and solving |ray| = outerRadius for t gives:
+     *  t = -inner * sin e + sqrt(inner^2 * sin^2 e - inner^2 + outer^2)
+     */
+    protected float projectViewAngle( float elevation ) {
+        float sin = FastMath.sin(elevation);
+        float cos = FastMath.cos(elevation);
+        float t = -innerRadius * sin 
+                  + FastMath.sqrt(innerRadius * innerRadius * sin * sin 
+                                  - innerRadius * innerRadius + outerRadius * outerRadius);
+        return FastMath.atan2(innerRadius + t * sin, t * cos);
     }
 
     protected FloatBuffer makeFloatBuffer(Type type, int components, int size) {
@@ -224,17 +370,22 @@ public class TruncatedDome extends Mesh {
         return result;
     }
 
-    protected ShortBuffer makeShortBuffer(Type type, int components, int size) {
-        ShortBuffer result = getShortBuffer(type);
-        if( result != null && result.capacity() == components * size ) {
+    /**
+     *  Returns an index buffer of the smallest type that can address
+     *  the specified number of vertexes, reusing the current one if possible.
+     */
+    protected IndexBuffer makeIndexBuffer(int vertCount, int components, int size) {
+        IndexBuffer result = IndexBuffer.createIndexBuffer(vertCount, 0);
+        VertexBuffer current = getBuffer(Type.Index);
+        if( current != null && current.getFormat() == result.getFormat() 
+            && current.getData().capacity() == components * size ) {
             // Current is good enough
-            result.clear();
-            return result;
+            current.getData().clear();
+            return IndexBuffer.wrapIndexBuffer(current.getData());
         }
         
         // Else we need to create one
-        result = BufferUtils.createShortBuffer(components * size);
-        return result;
+        return IndexBuffer.createIndexBuffer(vertCount, components * size);
     }
 
 }
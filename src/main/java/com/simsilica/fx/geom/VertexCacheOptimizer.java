@@ -0,0 +1,298 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx.geom;
+
+import com.jme3.math.FastMath;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.mesh.IndexBuffer;
+import java.util.Arrays;
+
+
+/**
+ *  Reorders the triangles of an indexed triangle list so that they make
+ *  better use of the GPU's post-transform vertex cache.  This uses Tom
+ *  Forsyth's "Linear-Speed Vertex Cache Optimisation" which doesn't
+ *  depend on the exact cache size of the hardware.
+ *
+ *  <p>The quality of an ordering is usually measured as the average cache 
+ *  miss ratio (ACMR), the number of vertexes transformed per triangle.  
+ *  Lower is better, 0.5 is the practical limit for a regular grid and 3 is 
+ *  the worst case.  See calculateAcmr().</p>
+ *
+ *  @author    Paul Speed
+ */
+public final class VertexCacheOptimizer {
+
+    // The size of the modeled LRU cache
+    private static final int CACHE_SIZE = 32;
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRI_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+
+    private VertexCacheOptimizer() {
+    }
+
+    /**
+     *  Reorders the triangles in the mesh's index buffer in place.  The mesh
+     *  must be an indexed triangle list.
+     */
+    public static void optimize( Mesh mesh ) {
+        if( mesh.getMode() != Mesh.Mode.Triangles ) {
+            throw new IllegalArgumentException("Mesh is not a triangle list:" + mesh.getMode());
+        }
+        VertexBuffer vb = mesh.getBuffer(Type.Index);
+        if( vb == null ) {
+            throw new IllegalArgumentException("Mesh has no index buffer:" + mesh);
+        }
+        optimize(mesh.getIndexBuffer(), mesh.getVertexCount());
+        vb.setUpdateNeeded();
+    }
+
+    /**
+     *  Reorders the triangles in the specified index buffer in place.
+     */
+    public static void optimize( IndexBuffer ib, int vertexCount ) {
+        int[] indexes = toArray(ib);
+        int[] result = optimize(indexes, vertexCount);
+        for( int i = 0; i < result.length; i++ ) {
+            ib.put(i, result[i]);
+        }
+    }
+
+    /**
+     *  Returns a reordered copy of the specified triangle list indexes.
+     */
+    public static int[] optimize( int[] indexes, int vertexCount ) {
+        int triCount = indexes.length / 3;
+
+        // Build the vertex to triangle adjacency
+        int[] remaining = new int[vertexCount];
+        for( int i = 0; i < indexes.length; i++ ) {
+            remaining[indexes[i]]++;
+        }
+        int[] adjacencyStart = new int[vertexCount + 1];
+        for( int v = 0; v < vertexCount; v++ ) {
+            adjacencyStart[v + 1] = adjacencyStart[v] + remaining[v];
+        }
+        int[] adjacency = new int[indexes.length];
+        int[] fill = Arrays.copyOf(adjacencyStart, vertexCount);
+        for( int i = 0; i < indexes.length; i++ ) {
+            adjacency[fill[indexes[i]]++] = i / 3;
+        }
+
+        int[] cachePos = new int[vertexCount];
+        Arrays.fill(cachePos, -1);
+        float[] vertexScores = new float[vertexCount];
+        for( int v = 0; v < vertexCount; v++ ) {
+            vertexScores[v] = scoreVertex(-1, remaining[v]);
+        }
+
+        boolean[] added = new boolean[triCount];
+        float[] triScores = new float[triCount];
+        for( int t = 0; t < triCount; t++ ) {
+            triScores[t] = vertexScores[indexes[t * 3]] 
+                         + vertexScores[indexes[t * 3 + 1]] 
+                         + vertexScores[indexes[t * 3 + 2]];
+        }
+
+        // The cache has room for the three vertexes of the triangle being
+        // added on top of the modeled size
+        int[] cache = new int[CACHE_SIZE + 3];
+        int[] newCache = new int[CACHE_SIZE + 3];
+        int cacheCount = 0;
+
+        int[] result = new int[triCount * 3];
+        int scanStart = 0;
+        int best = -1;
+        for( int out = 0; out < triCount; out++ ) {
+            if( best < 0 ) {
+                // Nothing in the cache helps so take the best from 
+                // all of the remaining triangles
+                float bestScore = -1;
+                for( int t = scanStart; t < triCount; t++ ) {
+                    if( added[t] ) {
+                        if( t == scanStart ) {
+                            scanStart++;
+                        }
+                        continue;
+                    }
+                    if( triScores[t] > bestScore ) {
+                        bestScore = triScores[t];
+                        best = t;
+                    }
+                }
+            }
+
+            // Emit the triangle
+            added[best] = true;
+            int newCount = 0;
+            for( int k = 0; k < 3; k++ ) {
+                int v = indexes[best * 3 + k];
+                result[out * 3 + k] = v;
+                newCache[newCount++] = v;
+
+                // Remove the triangle from the vertex's adjacency
+                int start = adjacencyStart[v];
+                int end = start + remaining[v];
+                for( int a = start; a < end; a++ ) {
+                    if( adjacency[a] == best ) {
+                        adjacency[a] = adjacency[end - 1];
+                        break;
+                    }
+                }
+                remaining[v]--;
+            }
+
+            // Move the triangle's vertexes to the front of the cache
+            for( int c = 0; c < cacheCount; c++ ) {
+                int v = cache[c];
+                if( v != newCache[0] && v != newCache[1] && v != newCache[2] ) {
+                    newCache[newCount++] = v;
+                }
+            }
+            int[] swap = cache;
+            cache = newCache;
+            newCache = swap;
+            cacheCount = newCount;
+
+            // Update the scores of everything in the cache, including the
+            // vertexes that just fell out of it
+            for( int c = 0; c < cacheCount; c++ ) {
+                int v = cache[c];
+                cachePos[v] = c < CACHE_SIZE ? c : -1;
+                vertexScores[v] = scoreVertex(cachePos[v], remaining[v]);
+            }
+
+            // Rescore the triangles touching the cache and pick the next one
+            best = -1;
+            float bestScore = -1;
+            for( int c = 0; c < cacheCount; c++ ) {
+                int v = cache[c];
+                int start = adjacencyStart[v];
+                int end = start + remaining[v];
+                for( int a = start; a < end; a++ ) {
+                    int t = adjacency[a];
+                    float score = vertexScores[indexes[t * 3]] 
+                                + vertexScores[indexes[t * 3 + 1]] 
+                                + vertexScores[indexes[t * 3 + 2]];
+                    triScores[t] = score;
+                    if( score > bestScore && c < CACHE_SIZE ) {
+                        bestScore = score;
+                        best = t;
+                    }
+                }
+            }
+            if( cacheCount > CACHE_SIZE ) {
+                cacheCount = CACHE_SIZE;
+            }
+        }
+        return result;
+    }
+
+    private static float scoreVertex( int cachePosition, int remainingTris ) {
+        if( remainingTris <= 0 ) {
+            // No triangles left to use it
+            return -1;
+        }
+        float score = 0;
+        if( cachePosition >= 0 ) {
+            if( cachePosition < 3 ) {
+                // Part of the triangle that was just added.  Give it a fixed
+                // score so that it doesn't get picked again right away. 
+                score = LAST_TRI_SCORE;
+            } else {
+                float scaler = 1.0f / (CACHE_SIZE - 3);
+                score = 1.0f - (cachePosition - 3) * scaler;
+                score = FastMath.pow(score, CACHE_DECAY_POWER);
+            }
+        }
+
+        // Bonus for vertexes with few triangles left so that they get
+        // finished off rather than left behind
+        float valenceBoost = FastMath.pow(remainingTris, -VALENCE_BOOST_POWER);
+        score += VALENCE_BOOST_SCALE * valenceBoost;
+        return score;
+    }
+
+    /**
+     *  Returns the average cache miss ratio of the mesh's triangles for a FIFO
+     *  vertex cache of the specified size, ie: the number of vertexes that
+     *  would be transformed per triangle.
+     */
+    public static float calculateAcmr( Mesh mesh, int cacheSize ) {
+        return calculateAcmr(toArray(mesh.getIndexBuffer()), cacheSize);
+    }
+
+    /**
+     *  Returns the average cache miss ratio of the specified triangle list 
+     *  for a FIFO vertex cache of the specified size.
+     */
+    public static float calculateAcmr( int[] indexes, int cacheSize ) {
+        int[] fifo = new int[cacheSize];
+        Arrays.fill(fifo, -1);
+        int head = 0;
+        int misses = 0;
+        for( int i = 0; i < indexes.length; i++ ) {
+            int v = indexes[i];
+            boolean hit = false;
+            for( int c = 0; c < cacheSize; c++ ) {
+                if( fifo[c] == v ) {
+                    hit = true;
+                    break;
+                }
+            }
+            if( !hit ) {
+                misses++;
+                fifo[head] = v;
+                head = (head + 1) % cacheSize;
+            }
+        }
+        return (float)misses / (indexes.length / 3);
+    }
+
+    private static int[] toArray( IndexBuffer ib ) {
+        int[] result = new int[ib.size()];
+        for( int i = 0; i < result.length; i++ ) {
+            result[i] = ib.get(i);
+        }
+        return result;
+    }
+}
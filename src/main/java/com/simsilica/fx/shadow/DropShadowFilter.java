@@ -69,6 +69,8 @@ import com.jme3.texture.FrameBuffer;
 import com.jme3.texture.Texture;
 import com.jme3.util.BufferUtils;
 
+import com.simsilica.fx.FxMetrics;
+
 
 /**
  *  A shadow filter that simulates shadows using a simple box-shaped
@@ -114,6 +116,8 @@ public class DropShadowFilter extends Filter {
     private Material shadowMaterial;
     private Mesh mesh;
     private int maxShadows;
+    private int capacity;
+    private float maxDistance = Float.POSITIVE_INFINITY;
 
     private ColorRGBA shadowColor = new ColorRGBA(0, 0, 0, 0.75f);
 
@@ -144,6 +148,37 @@ public class DropShadowFilter extends Filter {
         this.maxShadows = maxShadows;
     }
 
+    /**
+     *  Sets the maximum number of nearest shadow-casting objects that will 
+     *  show shadows.  This can be changed at runtime.  The shadow buffers
+     *  are only reallocated when they need to grow.
+     */
+    public void setMaxShadows( int maxShadows ) {
+        if( this.maxShadows == maxShadows ) {
+            return;
+        }
+        this.maxShadows = maxShadows;
+        if( mesh != null && maxShadows > capacity ) {
+            allocateBuffers(maxShadows);
+        }
+    }
+
+    public int getMaxShadows() {
+        return maxShadows;
+    }
+
+    /**
+     *  Sets the distance from the camera beyond which objects do not cast
+     *  shadows.  Defaults to Float.POSITIVE_INFINITY.
+     */
+    public void setMaxDistance( float maxDistance ) {
+        this.maxDistance = maxDistance;
+    }
+
+    public float getMaxDistance() {
+        return maxDistance;
+    }
+
     public void setShadowIntensity( float f ) {
         shadowColor.a = f;
     }
@@ -179,23 +214,10 @@ public class DropShadowFilter extends Filter {
         // without actually needing to filter anything.
         material = new Material(assets, "MatDefs/shadow/Null.j3md");
 
-        mesh = new Mesh();
-
-        // Setup the mesh for the max shadows size
-        mesh.setBuffer(Type.Position, 3, BufferUtils.createVector3Buffer(maxShadows * VERTS_PER_SHADOW));
-        mesh.setBuffer(Type.Normal, 3, BufferUtils.createVector3Buffer(maxShadows * VERTS_PER_SHADOW));
-        mesh.setBuffer(Type.TexCoord, 3, BufferUtils.createVector3Buffer(maxShadows * VERTS_PER_SHADOW));
-        mesh.setBuffer(Type.TexCoord2, 3, BufferUtils.createVector3Buffer(maxShadows * VERTS_PER_SHADOW));
-        mesh.setBuffer(Type.Index, 3, BufferUtils.createShortBuffer(maxShadows * INDEXES_PER_SHADOW));
-
-        vbPos = mesh.getBuffer(Type.Position);
-        vbNormal = mesh.getBuffer(Type.Normal);
-        vbTexCoord = mesh.getBuffer(Type.TexCoord);
-        vbTexCoord2 = mesh.getBuffer(Type.TexCoord2);
-        vbIndex = mesh.getBuffer(Type.Index);
-
+        if( mesh == null ) {
+            createShadowMesh();
+        }
 
-        shadowGeom = new Geometry("shadowVolumes", mesh);
         Material m = shadowMaterial = new Material(assets, "MatDefs/shadow/Shadows.j3md");
         m.setColor("ShadowColor", shadowColor);
         m.setBoolean("ShowBox", showBox);
@@ -203,13 +225,39 @@ public class DropShadowFilter extends Filter {
         m.getAdditionalRenderState().setDepthTest(false);
         m.getAdditionalRenderState().setBlendMode(BlendMode.Alpha);
         shadowGeom.setMaterial(m);
+
+        // Set our custom comparator for shadow casters
+        casters = new GeometryList(new CasterComparator());
+    }
+
+    private void createShadowMesh() {
+        mesh = new Mesh();
+        allocateBuffers(maxShadows);
+
+        shadowGeom = new Geometry("shadowVolumes", mesh);
         shadowGeom.setLocalTranslation(0, 100, 0);
 
         shadowGeom.updateLogicalState(0.1f);
         shadowGeom.updateGeometricState();
+    }
 
-        // Set our custom comparator for shadow casters
-        casters = new GeometryList(new CasterComparator());
+    private void allocateBuffers( int size ) {
+        capacity = size;
+
+        // Setup the mesh for the max shadows size.  Setting a buffer
+        // type that the mesh already has replaces the data of the existing
+        // vertex buffer.
+        mesh.setBuffer(Type.Position, 3, BufferUtils.createVector3Buffer(size * VERTS_PER_SHADOW));
+        mesh.setBuffer(Type.Normal, 3, BufferUtils.createVector3Buffer(size * VERTS_PER_SHADOW));
+        mesh.setBuffer(Type.TexCoord, 3, BufferUtils.createVector3Buffer(size * VERTS_PER_SHADOW));
+        mesh.setBuffer(Type.TexCoord2, 3, BufferUtils.createVector3Buffer(size * VERTS_PER_SHADOW));
+        mesh.setBuffer(Type.Index, 3, BufferUtils.createShortBuffer(size * INDEXES_PER_SHADOW));
+
+        vbPos = mesh.getBuffer(Type.Position);
+        vbNormal = mesh.getBuffer(Type.Normal);
+        vbTexCoord = mesh.getBuffer(Type.TexCoord);
+        vbTexCoord2 = mesh.getBuffer(Type.TexCoord2);
+        vbIndex = mesh.getBuffer(Type.Index);
     }
 
     @Override
@@ -221,16 +269,15 @@ public class DropShadowFilter extends Filter {
     protected void postFrame( RenderManager renderManager, ViewPort viewPort, FrameBuffer prevFilterBuffer, FrameBuffer sceneBuffer ) {
 
         RenderQueue rq = viewPort.getQueue();
+        long start = FxMetrics.start();
         for (Spatial scene : viewPort.getScenes()) {
             ShadowUtil.getGeometriesInCamFrustum(scene, viewPort.getCamera(), ShadowMode.Cast, casters);
         }
+        FxMetrics.stop(FxMetrics.Timer.ShadowGather, start);
+        FxMetrics.add(FxMetrics.Counter.ShadowCastersGathered, casters.size());
         if( casters.size() == 0 )
             return;
 
-        Camera cam = viewPort.getCamera();
-        BoundingSphere cullCheck = new BoundingSphere();
-        Vector3f pos = new Vector3f();
-
         Texture frameTex = prevFilterBuffer.getColorBuffer().getTexture();
         Texture depthTex = prevFilterBuffer.getDepthBuffer().getTexture();
         shadowMaterial.setTexture("FrameTexture", frameTex);
@@ -247,11 +294,39 @@ public class DropShadowFilter extends Filter {
             shadowMaterial.clearParam("NumSamplesDepth");
         }
 
+        int rendered = updateShadowVolumes(casters, viewPort.getCamera());
+        if( rendered > 0 ) {
+            shadowGeom.updateGeometricState();
+            renderManager.renderGeometry(shadowGeom);
+        }
+
+        casters.clear();
+    }
+
+    /**
+     *  Fills the shadow volume buffers from the nearest in-view casters in
+     *  the specified list, up to the maximum number of shadows, and returns
+     *  the number of shadow volumes that were generated.  The list is sorted
+     *  using its own comparator when it holds more than the maximum number 
+     *  of shadows so it will normally be created with a CasterComparator.
+     *  This is called by postFrame() but it doesn't need a render context
+     *  and so can also be used to profile caster processing on its own.
+     */
+    public int updateShadowVolumes( GeometryList casters, Camera cam ) {
+        if( mesh == null ) {
+            createShadowMesh();
+        }
+
+        BoundingSphere cullCheck = new BoundingSphere();
+        Vector3f pos = new Vector3f();
+
         int size = casters.size();
         if( size > maxShadows ) {
             // Give the shadows their best chance by sorting them.
+            long start = FxMetrics.start();
             casters.setCamera(cam);
             casters.sort();
+            FxMetrics.stop(FxMetrics.Timer.ShadowSort, start);
         }
 
         FloatBuffer bPos = (FloatBuffer)vbPos.getData().rewind();
@@ -270,10 +345,21 @@ public class DropShadowFilter extends Filter {
         Vector3f viewDir = new Vector3f();
         Vector3f boxScale = new Vector3f();
 
+        Vector3f camLocation = cam.getLocation();
+        float maxDistanceSq = maxDistance * maxDistance;
+
+        long fillStart = FxMetrics.start();
         int rendered = 0;
+        int culled = 0;
+        int dropped = 0;
         for( int i = 0; i < size; i++ ) {
             Geometry g = casters.get(i);
 
+            if( g.getWorldBound().getCenter().distanceSquared(camLocation) > maxDistanceSq ) {
+                culled++;
+                continue;
+            }
+
             // Use the geometry bounds.  We assumg it is still y-up
             // and merely rotated.  It's a decent enough approximiation
             // in many cases and will produce better shadows for oblong
@@ -379,6 +465,7 @@ public class DropShadowFilter extends Filter {
             cam.setPlaneState(save);
 
             if( intersect == FrustumIntersect.Outside ) {
+                culled++;
                 continue;
             }
 
@@ -424,19 +511,24 @@ public class DropShadowFilter extends Filter {
 
             rendered++;
             if( rendered >= maxShadows ) {
+                dropped = size - i - 1;
                 break;
             }
         }
 
         if( rendered > 0 ) {
-            // Need to zero out the left-overs
-            for( int i = rendered; i < maxShadows; i++ ) {
+            // Need to zero out the left-overs, including any extra
+            // capacity left from a larger max shadows setting
+            for( int i = rendered; i < capacity; i++ ) {
                 for( int j = 0; j < INDEXES_PER_SHADOW; j++ ) {
                     bIndex.put((short)0);
                 }
             }
 
+            FxMetrics.stop(FxMetrics.Timer.ShadowFill, fillStart);
+
             // Update the buffers
+            long uploadStart = FxMetrics.start();
             bPos.rewind();
             bNormal.rewind();
             bTexCoord.rewind();
@@ -448,15 +540,22 @@ public class DropShadowFilter extends Filter {
             vbTexCoord.updateData(bTexCoord);
             vbTexCoord2.updateData(bTexCoord2);
             vbIndex.updateData(bIndex);
-
-            shadowGeom.updateGeometricState();
-            renderManager.renderGeometry(shadowGeom);
+            FxMetrics.stop(FxMetrics.Timer.ShadowUpload, uploadStart);
+        } else {
+            FxMetrics.stop(FxMetrics.Timer.ShadowFill, fillStart);
         }
 
-        casters.clear();
+        FxMetrics.add(FxMetrics.Counter.ShadowCastersCulled, culled);
+        FxMetrics.add(FxMetrics.Counter.ShadowCastersRendered, rendered);
+        FxMetrics.add(FxMetrics.Counter.ShadowCastersDropped, dropped);
+
+        return rendered;
     }
 
-    private class CasterComparator implements GeometryComparator {
+    /**
+     *  Sorts shadow casters front to back relative to the camera.
+     */
+    public static class CasterComparator implements GeometryComparator {
 
         private Camera cam;
         private final Vector3f tempVec  = new Vector3f();
@@ -0,0 +1,201 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx.sky;
+
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector3f;
+import com.simsilica.fx.LightDirectionListener;
+import com.simsilica.fx.LightingModel;
+
+
+/**
+ *  The render-free core of the SkyState: a set of AtmosphericParameters
+ *  that follows the sun of a LightingModel and keeps the resulting
+ *  ground lighting color up to date.  Nothing here creates materials,
+ *  geometry, or needs an Application so it can be used on a headless
+ *  server for gameplay that depends on the light, such as visibility
+ *  or solar power.
+ *
+ *  @author    Paul Speed
+ */
+public class AtmosphereModel {
+
+    private AtmosphericParameters atmosphericParms;
+    private LightingModel lighting;
+    private LightObserver lightObserver = new LightObserver();
+
+    // Color calculated from current atmospheric parms
+    private ColorRGBA lightingColor = new ColorRGBA(1, 1, 1, 1);
+
+    private DayCycleTimeline timeline;
+    private ColorRGBA timelineAmbient = new ColorRGBA();
+
+    private final Vector3f[] groundTemps = { new Vector3f(), new Vector3f() };
+
+    /**
+     *  Creates an atmosphere model with the same sky dome and planet
+     *  size as the default SkyState.
+     */
+    public AtmosphereModel() {
+        this(2000 * 1.025f, 6378100 * 0.01f);
+    }
+
+    public AtmosphereModel( float skyDomeRadius, float planetRadius ) {
+        this(new AtmosphericParameters());
+        atmosphericParms.setSkyDomeRadius(skyDomeRadius);
+        atmosphericParms.setPlanetRadius(planetRadius);
+    }
+
+    public AtmosphereModel( AtmosphericParameters atmosphericParms ) {
+        this.atmosphericParms = atmosphericParms;
+    }
+
+    public AtmosphericParameters getAtmosphericParameters() {
+        return atmosphericParms;
+    }
+
+    /**
+     *  Sets the LightingModel whose sun this atmosphere follows.  Set to
+     *  null to stop following.
+     */
+    public void setLightingModel( LightingModel lighting ) {
+        if( this.lighting == lighting ) {
+            return;
+        }
+        if( this.lighting != null ) {
+            this.lighting.removeLightDirectionListener(lightObserver);
+            if( timeline != null && this.lighting.getLightDirectionTable() == timeline ) {
+                this.lighting.setLightDirectionTable(null);
+            }
+        }
+        this.lighting = lighting;
+        if( lighting != null ) {
+            lighting.addLightDirectionListener(lightObserver);
+            if( timeline != null ) {
+                lighting.setLightDirectionTable(timeline);
+            }
+            atmosphericParms.setLightDirection(lighting.getLightDirection());
+        }
+        resetLightingColor();
+    }
+
+    public LightingModel getLightingModel() {
+        return lighting;
+    }
+
+    /**
+     *  Sets an optional precomputed timeline that is used to look up the
+     *  lighting color (and the ambient if the timeline includes it) instead
+     *  of recalculating it every time the sun moves.  The timeline is also 
+     *  passed on to the LightingModel so that it looks up the sun direction.
+     *  Set to null to go back to direct calculation.
+     */
+    public void setDayCycleTimeline( DayCycleTimeline timeline ) {
+        if( this.timeline == timeline ) {
+            return;
+        }
+        this.timeline = timeline;
+        if( lighting != null ) {
+            lighting.setLightDirectionTable(timeline);
+        }
+        resetLightingColor();
+    }
+
+    public DayCycleTimeline getDayCycleTimeline() {
+        return timeline;
+    }
+
+    /**
+     *  Returns the color of the sun light reaching the ground at the 
+     *  viewer's location.
+     */
+    public ColorRGBA getLightingColor() {
+        return lightingColor;
+    }
+
+    /**
+     *  Returns the aerial attenuation of light traveling the specified
+     *  distance in the specified direction from a viewer at the specified
+     *  elevation, all in world units.  Each component is the fraction of 
+     *  that color channel that survives the trip.
+     */
+    public Vector3f calculateAttenuation( Vector3f direction, float distance, float elevation, Vector3f target ) {
+        if( target == null ) {
+            target = new Vector3f();
+        }
+        float planetScale = atmosphericParms.getInnerRadius() / atmosphericParms.getPlanetRadius();
+        atmosphericParms.calculateGroundInAtmosphere(direction, distance * planetScale, elevation * planetScale, groundTemps);
+        return target.set(groundTemps[1]);
+    }
+
+    /**
+     *  Picks up any atmosphere changes posted from other threads and rebuilds
+     *  the day cycle timeline if the atmosphere or the sun's path changed. 
+     *  Should be called once a frame or tick.
+     */
+    public void update() {
+        atmosphericParms.applyPostedSnapshot();
+
+        if( timeline != null && lighting != null
+            && timeline.update(atmosphericParms.getSnapshot(), lighting.getOrientation(), lighting.getInclination()) ) {
+            // The atmosphere or sun path changed and the table was rebuilt
+            resetLightingColor();
+        }
+    }
+
+    protected void resetLightingColor() {
+        if( timeline == null || lighting == null ) {
+            atmosphericParms.calculateGroundColor(ColorRGBA.White, Vector3f.UNIT_X, 1f, 0, lightingColor);
+            return;
+        }
+        timeline.update(atmosphericParms.getSnapshot(), lighting.getOrientation(), lighting.getInclination());
+        float time = lighting.getTimeOfDay();
+        timeline.getGroundLighting(time, lightingColor);
+        if( timeline.isIncludeAmbient() ) {
+            lighting.setAmbient(timeline.getAmbient(time, timelineAmbient));
+        }
+    }
+
+    private class LightObserver implements LightDirectionListener {
+        @Override
+        public void lightDirectionChanged( LightingModel source, Vector3f direction ) {
+            atmosphericParms.setLightDirection(direction);
+            resetLightingColor();
+        }
+    }
+}
@@ -42,25 +42,121 @@ import com.jme3.math.ColorRGBA;
 import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
 import com.jme3.math.Vector4f;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.simsilica.fx.FxMetrics;
 
 
 
 
 /**
+ *  Holds the parameters of the atmospheric scattering model and
+ *  keeps the sky material and any registered ground materials
+ *  up to date as they change.
+ *
+ *  <p>Each setter marks the uniforms that depend on it as dirty.
+ *  Outside of a batch the dirty uniforms are pushed immediately.
+ *  Callers changing several values at once (animating a day cycle,
+ *  for example) can wrap the changes in beginBatch()/commitBatch() so
+ *  that each affected uniform is pushed only once per material.</p>
+ *
+ *  <p>Ground materials whose definition declares the packed GroundScattering0
+ *  and GroundScattering1 parameters (GroundAtmospherics.j3md and 
+ *  ScatteredLighting.j3md do) share their scattering values by reference.
+ *  Updating them costs the same whether there is one ground material or
+ *  thousands.  Other ground materials registered for auto-update are held
+ *  weakly and updated individually.</p>
  *
+ *  <p>A GroundScatteringLut can be set to replace the per-vertex ground
+ *  scattering loop in those materials with a table lookup.</p>
+ *
+ *  <p>AtmosphericParameters itself is not thread safe and should only be
+ *  modified from one thread, usually the render thread.  Every committed
+ *  change publishes a new immutable AtmosphericSnapshot that other threads
+ *  can read through getSnapshot() without locking.  Going the other way,
+ *  a background thread can keep its own AtmosphericParameters, take a
+ *  snapshot of it, and hand it over with postSnapshot().  The owning thread
+ *  then picks it up with applyPostedSnapshot().</p>
  *
  *  @author    Paul Speed
  */
 public class AtmosphericParameters {
 
+    // Dirty bits for the different groups of parameters.  Each
+    // uniform is pushed when any of the bits it depends on is set.
+    private static final int DIRTY_INTENSITY = 0x0001;
+    private static final int DIRTY_SKY_EXPOSURE = 0x0002;
+    private static final int DIRTY_GROUND_EXPOSURE = 0x0004;
+    private static final int DIRTY_WAVELENGTHS = 0x0008;
+    private static final int DIRTY_RAYLEIGH = 0x0010;
+    private static final int DIRTY_MIE = 0x0020;
+    private static final int DIRTY_MPA = 0x0040;
+    private static final int DIRTY_DENSITY = 0x0080;
+    private static final int DIRTY_FLATTENING = 0x0100;
+    private static final int DIRTY_SKY_DOME_RADIUS = 0x0200;
+    private static final int DIRTY_PLANET_RADIUS = 0x0400;
+    private static final int DIRTY_RADII = 0x0800;
+    private static final int DIRTY_ALL = 0x0fff;
+    
+    // The sun position is shared with the materials by reference but
+    // a change still needs to produce a new snapshot.
+    private static final int DIRTY_LIGHT_DIRECTION = 0x1000;
+    
+    // Only the CPU-side calculations use the sample count
+    private static final int DIRTY_SAMPLES = 0x2000;
+
+    // Uniform groups expressed in terms of the dirty bits
+    private static final int DIRTY_PACKED = DIRTY_WAVELENGTHS | DIRTY_RAYLEIGH | DIRTY_MIE | DIRTY_INTENSITY;
+    private static final int DIRTY_KM_ESUN = DIRTY_MIE | DIRTY_INTENSITY;
+    private static final int DIRTY_DENSITY_HEIGHT = DIRTY_DENSITY | DIRTY_RADII;
+
     // This one will be common and global so we might as
     // well keep an instance around.
     private Material skyMaterial;
  
-    // For auto-updating if the caller opts for it
-    private Set<Material> groundMaterials = new HashSet<Material>();
+    // For auto-updating if the caller opts for it and the material
+    // can't use the shared parameters.  Weak so that we don't keep 
+    // materials alive that the application has otherwise let go of.
+    private Set<Material> groundMaterials = Collections.newSetFromMap(new WeakHashMap<Material, Boolean>());
+    
+    // Auto-updated materials that use the shared parameters.  They only
+    // need to be visited when the ground scattering table is swapped.
+    private Set<Material> sharedGroundMaterials = Collections.newSetFromMap(new WeakHashMap<Material, Boolean>());
+    
+    private GroundScatteringLut groundLut;
+ 
+    // Reseeds the material gauge when metrics are turned on.  Kept here
+    // because FxMetrics only holds it weakly.
+    private final FxMetrics.GaugeSource gaugeSource = new FxMetrics.GaugeSource() {
+            public void updateGauges() {
+                // The gauge was just cleared
+                reportedMaterials = 0;
+                updateMaterialCount();
+            }
+        };
+        
+    // This instance's share of the AtmosphereMaterials gauge
+    private int reportedMaterials;
+ 
+    // Packed ground parameters shared by reference with every ground
+    // material that supports them.
+    // (KmESun, Exposure, InnerRadius, RadiusScale)
+    private Vector4f groundScattering0 = new Vector4f();
+    // (PlanetScale, AverageDensityScale, InvAverageDensityHeight, unused)
+    private Vector4f groundScattering1 = new Vector4f();
+ 
+    private int dirty = DIRTY_ALL;
+    private int batchDepth = 0;
+ 
+    private long version = 0;
+    private final AtomicReference<AtmosphericSnapshot> snapshot = new AtomicReference<AtmosphericSnapshot>();
+    private final AtomicReference<AtmosphericSnapshot> posted = new AtomicReference<AtmosphericSnapshot>();
+    
+    // Only used by the owning thread for calculations in the middle of a batch
+    private AtmosphericSnapshot uncommitted;
        
     /**
      *  The 'position' of the light in the sky, ie:
@@ -85,16 +181,12 @@ public class AtmosphericParameters {
     private float innerRadius;
     private float outerRadius;
     private float averageDensityScale;
-    private float kFlatteningSky;
     private float skyDomeRadius;
     private float planetRadius; // used for ground scale 
  
     private float skyFlattening = 0;
     
     public AtmosphericParameters() {
-        setWavelengths(0.650f, 0.570f, 0.475f);
-        setRayleighConstant(0.0025f);
-        setMieConstant(0.001f);
         this.mpaFactor = -0.990f;
  
         this.sunPosition.set(0, 1, 0);       
@@ -109,7 +201,12 @@ public class AtmosphericParameters {
         this.averageDensityScale = 0.25f;
         this.skyDomeRadius = 10;
         this.planetRadius = 10;  
-        this.kFlatteningSky = 0.0f;
+        
+        setWavelengths(0.650f, 0.570f, 0.475f);
+        setRayleighConstant(0.0025f);
+        setMieConstant(0.001f);
+        
+        FxMetrics.addGaugeSource(gaugeSource);
     }
     
     public Material getSkyMaterial( AssetManager assets ) {
@@ -127,14 +224,145 @@ public class AtmosphericParameters {
 
         return skyMaterial; 
     }
+ 
+    /**
+     *  Starts a batch of changes.  Until the matching commitBatch()
+     *  is called, setters only record which uniforms are dirty.  Batches
+     *  may be nested and the uniforms are pushed when the outermost batch
+     *  is committed.
+     */
+    public void beginBatch() {
+        batchDepth++;
+    }
+ 
+    /**
+     *  Ends a batch of changes started with beginBatch().  When the outermost
+     *  batch is committed, only the uniforms whose values changed since the 
+     *  last push are sent to the sky and ground materials.
+     */
+    public void commitBatch() {
+        if( batchDepth == 0 ) {
+            throw new IllegalStateException("commitBatch() called without beginBatch()");
+        }
+        batchDepth--;
+        if( batchDepth == 0 ) {
+            updateMaterials();
+        }
+    }
+ 
+    /**
+     *  Returns true if there is currently an uncommitted batch of changes.
+     */   
+    public boolean isBatching() {
+        return batchDepth > 0;
+    }
+ 
+    protected void markDirty( int bits ) {
+        dirty |= bits;
+        version++;
+        if( (bits & DIRTY_PACKED) != 0 ) {
+            // The CPU-side scattering calculations use these directly so
+            // we keep them current even in the middle of a batch.
+            updatePackedStructures();
+        }
+        if( batchDepth == 0 ) {
+            updateMaterials();
+        }
+    }
 
     protected void updateMaterials() {
-        // Right now just the one potential
-        if( skyMaterial != null ) {
-            updateSkyMaterial(skyMaterial);
+        if( dirty == 0 ) {
+            return;
         }
-        for( Material m : groundMaterials ) {
-            applyGroundParameters(m);
+        int bits = dirty;
+        dirty = 0;
+ 
+        if( (bits & DIRTY_ALL) != 0 ) { 
+            // Update the shared values in place.  Any material that references
+            // them will pick up the changes the next time it is rendered.
+            updateGroundScattering();
+        
+            // Right now just the one potential
+            if( skyMaterial != null ) {
+                applySkyParameters(skyMaterial, bits);
+            }
+            for( Material m : groundMaterials ) {
+                applyGroundParameters(m, bits);
+            }
+            
+            if( FxMetrics.isEnabled() ) {
+                FxMetrics.increment(FxMetrics.Counter.AtmosphereCommits);
+                FxMetrics.add(FxMetrics.Counter.AtmosphereMaterialPushes, 
+                              (skyMaterial != null ? 1 : 0) + groundMaterials.size());
+                updateMaterialCount();
+            }
+        }
+        
+        snapshot.set(new AtmosphericSnapshot(this, version));
+    }
+ 
+    /**
+     *  Returns the version of these parameters.  The version is incremented
+     *  for every change, including light direction changes.
+     */   
+    public long getVersion() {
+        return version;
+    }
+ 
+    /**
+     *  Returns an immutable snapshot of the most recently committed parameters.
+     *  This can be called safely from any thread.
+     */   
+    public AtmosphericSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+ 
+    /**
+     *  Hands a snapshot over to be applied the next time the owning thread calls
+     *  applyPostedSnapshot().  This can be called safely from any thread.  If
+     *  several snapshots are posted before they are applied then only the last
+     *  one is applied.
+     */
+    public void postSnapshot( AtmosphericSnapshot s ) {
+        posted.set(s);
+    }
+ 
+    /**
+     *  Applies the most recently posted snapshot, if there is one, and returns
+     *  true if something was applied.  This should be called from the thread that
+     *  owns these parameters.  SkyState does this once per frame. 
+     */   
+    public boolean applyPostedSnapshot() {
+        AtmosphericSnapshot s = posted.getAndSet(null);
+        if( s == null ) {
+            return false;
+        }
+        set(s);
+        return true;
+    }
+ 
+    /**
+     *  Sets all of the atmospheric values from the specified snapshot as one
+     *  batch.  The light direction is left alone as it is generally managed 
+     *  separately, for example, by the LightingState.
+     */   
+    public void set( AtmosphericSnapshot s ) {
+        beginBatch();
+        try {
+            setWavelengths(s.getRedWavelength(), s.getGreenWavelength(), s.getBlueWavelength());
+            setRayleighConstant(s.getRayleighConstant());
+            setMieConstant(s.getMieConstant());
+            setMiePhaseAsymmetryFactor(s.getMiePhaseAsymmetryFactor());
+            setLightIntensity(s.getLightIntensity());
+            setSkyExposure(s.getSkyExposure());
+            setGroundExposure(s.getGroundExposure());
+            setAverageDensityScale(s.getAverageDensityScale());
+            setSkyFlattening(s.getSkyFlattening());
+            setSkyDomeRadius(s.getSkyDomeRadius());
+            setPlanetRadius(s.getPlanetRadius());
+            setSampleCount(s.getSampleCount());
+        } finally {
+            commitBatch();
         }
     }
 
@@ -153,52 +381,220 @@ public class AtmosphericParameters {
         invPow4WavelengthsKrESun.z = invPow4Wavelengths.z * rESun;
     }
 
-    protected void updateSkyMaterial( Material m ) {    
-        updatePackedStructures();
-        
-        m.setFloat("KmESun", scatteringConstants.z * lightIntensity); 
-        m.setFloat("Exposure", skyExposure);
-        m.setFloat("InnerRadius", innerRadius);
-        m.setFloat("RadiusScale", 1 / (outerRadius - innerRadius));
-        m.setFloat("Flattening", kFlatteningSky);
-        m.setFloat("PlanetScale", outerRadius / skyDomeRadius); 
-        m.setFloat("AverageDensityScale", averageDensityScale);
-        m.setFloat("InvAverageDensityHeight", 1 / ((outerRadius - innerRadius) * averageDensityScale));
- 
-        float g = mpaFactor;
-        float g2 = g * g;
-        float phasePrefix1 = 1.5f * ((1.0f - g2) / (2.0f + g2));
-        float phasePrefix2 = 1.0f + g2;
-        float phasePrefix3 = 2.0f * g;  
-        m.setFloat("PhasePrefix1", phasePrefix1);                
-        m.setFloat("PhasePrefix2", phasePrefix2);                
-        m.setFloat("PhasePrefix3", phasePrefix3);
-
-        m.setFloat("Flattening", skyFlattening);         
+    protected void updateGroundScattering() {
+        groundScattering0.set(scatteringConstants.z * lightIntensity,
+                              groundExposure,
+                              innerRadius,
+                              1 / (outerRadius - innerRadius));
+        groundScattering1.set(innerRadius / planetRadius,
+                              averageDensityScale,
+                              1 / ((outerRadius - innerRadius) * averageDensityScale),
+                              0);
     }
 
+    protected void updateSkyMaterial( Material m ) {
+        applySkyParameters(m, DIRTY_ALL);
+    }
+ 
+    private void applySkyParameters( Material m, int bits ) {
+        if( (bits & DIRTY_PACKED) != 0 ) {
+            // The vectors are shared by reference but we set them again
+            // so that the material knows to look at them.
+            m.setVector3("InvWavelengthsKrESun", invPow4WavelengthsKrESun);
+            m.setVector3("KWavelengths4PI", kWavelengths4PI);
+        }
+        if( (bits & DIRTY_KM_ESUN) != 0 ) {
+            m.setFloat("KmESun", scatteringConstants.z * lightIntensity);
+        }
+        if( (bits & DIRTY_SKY_EXPOSURE) != 0 ) {
+            m.setFloat("Exposure", skyExposure);
+        }
+        if( (bits & DIRTY_RADII) != 0 ) {
+            m.setFloat("InnerRadius", innerRadius);
+            m.setFloat("RadiusScale", 1 / (outerRadius - innerRadius));
+        }
+        if( (bits & (DIRTY_RADII | DIRTY_SKY_DOME_RADIUS)) != 0 ) {
+            m.setFloat("PlanetScale", outerRadius / skyDomeRadius);
+        }
+        if( (bits & DIRTY_DENSITY) != 0 ) { 
+            m.setFloat("AverageDensityScale", averageDensityScale);
+        }
+        if( (bits & DIRTY_DENSITY_HEIGHT) != 0 ) { 
+            m.setFloat("InvAverageDensityHeight", 1 / ((outerRadius - innerRadius) * averageDensityScale));
+        }
+        if( (bits & DIRTY_MPA) != 0 ) { 
+            float g = mpaFactor;
+            float g2 = g * g;
+            float phasePrefix1 = 1.5f * ((1.0f - g2) / (2.0f + g2));
+            float phasePrefix2 = 1.0f + g2;
+            float phasePrefix3 = 2.0f * g;  
+            m.setFloat("PhasePrefix1", phasePrefix1);                
+            m.setFloat("PhasePrefix2", phasePrefix2);                
+            m.setFloat("PhasePrefix3", phasePrefix3);
+        }
+        if( (bits & DIRTY_FLATTENING) != 0 ) { 
+            m.setFloat("Flattening", skyFlattening);
+        }         
+    }
+
+    /**
+     *  Returns true if the specified material's definition declares the
+     *  packed scattering parameters that can be shared across materials.
+     */
+    public static boolean isSharedParameterMaterial( Material m ) {
+        return m.getMaterialDef().getMaterialParam("GroundScattering0") != null;
+    }
+
+    /**
+     *  Applies the current ground scattering parameters to the specified
+     *  material.  If autoUpdate is true then the material will continue to
+     *  receive parameter changes.  Materials that support the shared parameters
+     *  are kept current by reference at no per-material cost.  Other materials
+     *  are weakly registered and updated individually.
+     */
     public void applyGroundParameters( Material m, boolean autoUpdate ) {
+        if( autoUpdate && isSharedParameterMaterial(m) ) {
+            applySharedGroundParameters(m);
+            sharedGroundMaterials.add(m);
+            updateMaterialCount();
+            return;
+        }
         applyGroundParameters(m);
         if( autoUpdate ) {
             groundMaterials.add(m);
+            updateMaterialCount();
         }
     }
-    
+ 
+    /**
+     *  Applies the current ground scattering parameters to the specified
+     *  material as a one-time copy.  Later parameter changes are not reflected 
+     *  in the material unless it is applied again.  The exception is the 
+     *  GroundScatteringLut: if one is set then its textures are attached by 
+     *  reference and so the material will continue to see the table's contents 
+     *  as it is updated.  The material is not tracked, though, so it will keep 
+     *  the textures even if the table is later changed or cleared.
+     */   
     public void applyGroundParameters( Material m ) {
-        updatePackedStructures();
-        
+        if( isSharedParameterMaterial(m) ) {
+            m.setVector4("GroundScattering0", groundScattering0.clone());
+            m.setVector4("GroundScattering1", groundScattering1.clone());
+            m.setVector3("SunPosition", sunPosition);
+            m.setVector3("InvWavelengthsKrESun", invPow4WavelengthsKrESun);        
+            m.setVector3("KWavelengths4PI", kWavelengths4PI);
+            applyGroundLut(m);
+            return;
+        } 
         // We may have never set them before
-        m.setFloat("KmESun", scatteringConstants.z * lightIntensity); 
+        m.setVector3("SunPosition", sunPosition);
+        applyGroundParameters(m, DIRTY_ALL);
+        applyGroundLut(m);
+    }
+ 
+    /**
+     *  Removes a material from the set of auto-updated ground materials.
+     *  Materials using the shared parameters will still reference them
+     *  and so will still see changes.
+     */   
+    public void removeGroundMaterial( Material m ) {
+        groundMaterials.remove(m);
+        sharedGroundMaterials.remove(m);
+        updateMaterialCount();
+    }
+ 
+    private void updateMaterialCount() {
+        if( !FxMetrics.isEnabled() ) {
+            return;
+        }
+        int count = (skyMaterial != null ? 1 : 0) + groundMaterials.size() + sharedGroundMaterials.size();
+        FxMetrics.add(FxMetrics.Counter.AtmosphereMaterials, count - reportedMaterials);
+        reportedMaterials = count;
+    }
+ 
+    private void applySharedGroundParameters( Material m ) {
+        m.setVector4("GroundScattering0", groundScattering0);
+        m.setVector4("GroundScattering1", groundScattering1);
         m.setVector3("SunPosition", sunPosition);
         m.setVector3("InvWavelengthsKrESun", invPow4WavelengthsKrESun);        
         m.setVector3("KWavelengths4PI", kWavelengths4PI);
-                
-        m.setFloat("Exposure", groundExposure);
-        m.setFloat("InnerRadius", innerRadius);
-        m.setFloat("RadiusScale", 1 / (outerRadius - innerRadius));
-        m.setFloat("PlanetScale", innerRadius / planetRadius); 
-        m.setFloat("AverageDensityScale", averageDensityScale);
-        m.setFloat("InvAverageDensityHeight", 1 / ((outerRadius - innerRadius) * averageDensityScale));
+        applyGroundLut(m);
+    }
+ 
+    private void applyGroundLut( Material m ) {
+        if( groundLut != null ) {
+            groundLut.applyParameters(m);
+        }
+    }
+
+    /**
+     *  Sets the table that ground materials use in place of calculating
+     *  the scattering per vertex, or null to go back to the per-vertex
+     *  calculation.  The table is applied to all auto-updated ground 
+     *  materials that support it and to any ground material applied 
+     *  afterwards.  It must be kept current by calling 
+     *  updateGroundScatteringLut() once per frame.  SkyState does this.
+     */
+    public void setGroundScatteringLut( GroundScatteringLut lut ) {
+        if( this.groundLut == lut ) {
+            return;
+        }
+        this.groundLut = lut;
+        for( Material m : groundMaterials ) {
+            updateGroundLut(m);
+        }
+        for( Material m : sharedGroundMaterials ) {
+            updateGroundLut(m);
+        }
+    }
+ 
+    private void updateGroundLut( Material m ) {
+        if( groundLut != null ) {
+            groundLut.applyParameters(m);
+        } else {
+            GroundScatteringLut.clearParameters(m);
+        }
+    }
+    
+    public GroundScatteringLut getGroundScatteringLut() {
+        return groundLut;
+    }
+ 
+    /**
+     *  Regenerates the ground scattering table, if there is one, when these
+     *  parameters or the camera elevation have changed enough.  The elevation
+     *  is in geometry units.  Returns true if the table was regenerated.
+     */
+    public boolean updateGroundScatteringLut( float cameraElevation ) {
+        if( groundLut == null ) {
+            return false;
+        }
+        return groundLut.update(getSnapshot(), cameraElevation);
+    }
+    
+    private void applyGroundParameters( Material m, int bits ) {
+        if( (bits & DIRTY_PACKED) != 0 ) {
+            m.setVector3("InvWavelengthsKrESun", invPow4WavelengthsKrESun);        
+            m.setVector3("KWavelengths4PI", kWavelengths4PI);
+        }
+        if( (bits & DIRTY_KM_ESUN) != 0 ) {
+            m.setFloat("KmESun", scatteringConstants.z * lightIntensity);
+        }
+        if( (bits & DIRTY_GROUND_EXPOSURE) != 0 ) {
+            m.setFloat("Exposure", groundExposure);
+        }
+        if( (bits & DIRTY_RADII) != 0 ) {
+            m.setFloat("InnerRadius", innerRadius);
+            m.setFloat("RadiusScale", 1 / (outerRadius - innerRadius));
+        }
+        if( (bits & (DIRTY_RADII | DIRTY_PLANET_RADIUS)) != 0 ) {
+            m.setFloat("PlanetScale", innerRadius / planetRadius);
+        }
+        if( (bits & DIRTY_DENSITY) != 0 ) { 
+            m.setFloat("AverageDensityScale", averageDensityScale);
+        }
+        if( (bits & DIRTY_DENSITY_HEIGHT) != 0 ) { 
+            m.setFloat("InvAverageDensityHeight", 1 / ((outerRadius - innerRadius) * averageDensityScale));
+        }
     }
 
     /**
@@ -212,7 +608,7 @@ public class AtmosphericParameters {
             return;
         }
         this.averageDensityScale = f;
-        updateMaterials();
+        markDirty(DIRTY_DENSITY);
     }
     
     public float getAverageDensityScale() {
@@ -220,8 +616,11 @@ public class AtmosphericParameters {
     } 
 
     public void setSkyFlattening( float f ) {
+        if( this.skyFlattening == f ) {
+            return;
+        }
         this.skyFlattening = f;
-        updateMaterials();
+        markDirty(DIRTY_FLATTENING);
     }
     
     public float getSkyFlattening() {
@@ -240,7 +639,7 @@ public class AtmosphericParameters {
             return;
         }
         this.skyDomeRadius = f;
-        updateMaterials();
+        markDirty(DIRTY_SKY_DOME_RADIUS);
     }
     
     public float getSkyDomeRadius() {
@@ -260,7 +659,7 @@ public class AtmosphericParameters {
             return;
         }
         this.planetRadius = f;
-        updateMaterials();
+        markDirty(DIRTY_PLANET_RADIUS);
     }
     
     public float getPlanetRadius() {
@@ -273,7 +672,7 @@ public class AtmosphericParameters {
         }
         this.scatteringConstants.x = f;
         this.scatteringConstants.y = f * 4 * FastMath.PI;        
-        updateMaterials();
+        markDirty(DIRTY_RAYLEIGH);
     }
         
     public float getRayleighConstant() {
@@ -286,7 +685,7 @@ public class AtmosphericParameters {
         }
         this.scatteringConstants.z = f;
         this.scatteringConstants.w = f * 4 * FastMath.PI;        
-        updateMaterials();
+        markDirty(DIRTY_MIE);
     }
         
     public float getMieConstant() {
@@ -298,7 +697,7 @@ public class AtmosphericParameters {
             return;
         }
         this.mpaFactor = f;
-        updateMaterials();
+        markDirty(DIRTY_MPA);
     }
     
     public float getMiePhaseAsymmetryFactor() {
@@ -306,19 +705,39 @@ public class AtmosphericParameters {
     }
  
     public void setLightDirection( Vector3f dir ) {
+        if( sunPosition.x == -dir.x && sunPosition.y == -dir.y && sunPosition.z == -dir.z ) {
+            return;
+        }
         sunPosition.set(-dir.x, -dir.y, -dir.z);
+        markDirty(DIRTY_LIGHT_DIRECTION);
     }
     
     public Vector3f getLightDirection() {
         return sunPosition.negate();
     }
+ 
+    /**
+     *  Returns the live sun position vector that is shared with the
+     *  materials.  Callers must not modify it.
+     */   
+    Vector3f getSunPosition() {
+        return sunPosition;
+    }
+    
+    public float getInnerRadius() {
+        return innerRadius;
+    }
+    
+    public float getOuterRadius() {
+        return outerRadius;
+    }
     
     public void setLightIntensity( float f ) {
         if( this.lightIntensity == f ) {
             return;
         }
         this.lightIntensity = f;
-        updateMaterials();
+        markDirty(DIRTY_INTENSITY);
     }
     
     public float getLightIntensity() {
@@ -330,7 +749,7 @@ public class AtmosphericParameters {
             return;
         }
         this.skyExposure = f;
-        updateMaterials();        
+        markDirty(DIRTY_SKY_EXPOSURE);
     }
     
     public float getSkyExposure() {
@@ -342,7 +761,7 @@ public class AtmosphericParameters {
             return;
         }
         this.groundExposure = f;
-        updateMaterials();        
+        markDirty(DIRTY_GROUND_EXPOSURE);
     }
     
     public float getGroundExposure() {
@@ -357,7 +776,7 @@ public class AtmosphericParameters {
         invPow4Wavelengths.x = 1 / wavelengthsPow4.x;
         invPow4Wavelengths.y = 1 / wavelengthsPow4.y;
         invPow4Wavelengths.z = 1 / wavelengthsPow4.z;
-        updateMaterials();               
+        markDirty(DIRTY_WAVELENGTHS);
     }
     
     public void setRedWavelength( float f ) {
@@ -393,6 +812,10 @@ public class AtmosphericParameters {
         return wavelengths.z;
     }
  
+    /**
+     *  Calculates the ground color seen through the atmosphere using the
+     *  current parameters.  See AtmosphericSnapshot.calculateGroundColor().
+     */
     public ColorRGBA calculateGroundColor( ColorRGBA color, Vector3f direction, float distance, float elevation, ColorRGBA target ) {
         if( target == null ) {
             target = new ColorRGBA(0, 0, 0, 1);
@@ -400,7 +823,7 @@ public class AtmosphericParameters {
         
         float planetScale = innerRadius / planetRadius;        
         
-        Vector3f[] parms = calculateGroundInAtmosphere(direction, distance * planetScale, elevation * planetScale, null);
+        Vector3f[] parms = calculateGroundInAtmosphere(direction, distance * planetScale, elevation * planetScale, groundTemps);
         
         // return (vColor + color * vColor2) * m_Exposure;
         target.r = (parms[0].x + color.r * parms[1].x) * groundExposure;
@@ -411,94 +834,68 @@ public class AtmosphericParameters {
         return target;
     }        
  
-    private int nSamples = 2;
-    private float fSamples = 2.0f;
+    /**
+     *  The number of samples per ray that the scattering shaders take.  
+     *  CPU-side calculations should use the same count so that their 
+     *  colors match the shaded ones.
+     */
+    public static final int SHADER_SAMPLE_COUNT = 2;
 
-    private float scale( float fCos ) {
-        float x = 1.0f - fCos;
-        return averageDensityScale * FastMath.exp(-0.00287f + x*(0.459f + x*(3.83f + x*(-6.80f + x*5.25f))));
-    }
-  
-    public Vector3f[] calculateGroundInAtmosphere( Vector3f direction, float distance, float elevation, Vector3f[] target ) {
-        if( target == null ) {
-            target = new Vector3f[] { new Vector3f(), new Vector3f() };
-        }
-        
-        float scaleDepth = averageDensityScale;
-        float scaleOverScaleDepth = 1 / ((outerRadius - innerRadius) * averageDensityScale);
-        
-        //float innerRadius = innerRadius;
-        float radiusScale = 1 / (outerRadius - innerRadius);
-        Vector3f invWavelengthsKrESun = invPow4WavelengthsKrESun;
-        float mESun = scatteringConstants.z * lightIntensity;
-        
-        Vector3f camPos = new Vector3f(0, innerRadius + elevation, 0);
-        
-        float rayLength = distance;
-        
-        // Setup to cast the ray sections for sample accumulation
-        //Vector3f start = camPos;
-    
-        // Trying something... going to try doing the ray backwards
-        Vector3f start = camPos.add(direction.mult(distance));
-        direction = direction.mult(-1);
-    
-        float height = start.y;  // camera is always centered so y is good enough for elevation.
-        float offset = innerRadius - height;
-        float depth = FastMath.exp(scaleOverScaleDepth * offset);
-        float startAngle = direction.dot(start) / height;
-        float startOffset = depth * scale(startAngle);
-    
-        // Setup the loop stepping
-        float sampleLength = rayLength / fSamples;
-        float scaledLength = sampleLength * radiusScale;  // samppleLength * (1 / (outer - inner))
-        Vector3f sampleStep = direction.mult(sampleLength);
-        Vector3f samplePoint = start.add(sampleStep.mult(0.5f));  
-        float scatter = 0.0f;
- 
-        Vector3f accumulator = new Vector3f(0.0f, 0.0f, 0.0f);
-        Vector3f attenuation = new Vector3f(0.0f, 0.0f, 0.0f);
-        
-        for( int i = 0; i < nSamples; i++ ) {
+    private int nSamples = SHADER_SAMPLE_COUNT;
+    
+    // Scratch results for calculateGroundColor()
+    private final Vector3f[] groundTemps = { new Vector3f(), new Vector3f() };
  
-            // Ground points are generally always close enough that we pretend
-            // the world is flat.   
-            height = samplePoint.y;                                 
-            offset = innerRadius - height;
-            depth = FastMath.exp(scaleOverScaleDepth * offset);
-  
-            float lightAngle = sunPosition.dot(samplePoint) / height;
-            float cameraAngle = direction.dot(samplePoint) / height;
+    /**
+     *  Sets the number of samples taken along each ray by the CPU-side
+     *  scattering calculations, ie: the baked skies, the ground scattering
+     *  table, and per-object scattering.  The shaders always take 
+     *  SHADER_SAMPLE_COUNT samples and any other value makes the CPU-side
+     *  colors differ from the shaded ones, for example objects will visibly
+     *  change color as they cross ObjectScatteringControl's min distance.  
+     *  Defaults to SHADER_SAMPLE_COUNT.
+     */
+    public void setSampleCount( int count ) {
+        count = Math.max(1, count);
+        if( this.nSamples == count ) {
+            return;
+        }
+        this.nSamples = count;
+        markDirty(DIRTY_SAMPLES);
+    }
  
-            scatter = startOffset + depth * (scale(lightAngle) - scale(cameraAngle));
+    /**
+     *  Returns the number of samples taken along each ray by the CPU-side
+     *  scattering calculations.
+     */   
+    public int getSampleCount() {
+        return nSamples;
+    }
 
-            // m_InvWaveLength = 1 / (waveLength ^ 4)
-            // m_KWavelengths4PI = K(wavelength) * 4 * PI
-            //  = (m_InvWavelengths * r4PI + m4PI) 
-            //attenuation = exp(-scatter * (m_InvWavelengths * r4PI + m4PI));
-            attenuation.x = FastMath.exp(-scatter * kWavelengths4PI.x);
-            attenuation.y = FastMath.exp(-scatter * kWavelengths4PI.y);
-            attenuation.z = FastMath.exp(-scatter * kWavelengths4PI.z);
+    /**
+     *  Calculates the ground in-scattering (target[0]) and attenuation (target[1])
+     *  using the current parameters, including any uncommitted changes of
+     *  a batch in progress.  The math itself lives in AtmosphericSnapshot.
+     */
+    public Vector3f[] calculateGroundInAtmosphere( Vector3f direction, float distance, float elevation, Vector3f[] target ) {
+        return getCurrentSnapshot().calculateGroundInAtmosphere(direction, distance, elevation, target);
+    }
  
-            accumulator.addLocal(attenuation.mult(depth * scaledLength));
-        
-            // Step the sample point to the next value
-            samplePoint.addLocal(sampleStep);
+    /**
+     *  Returns a snapshot of the current values.  Outside of a batch this
+     *  is the published snapshot.  In the middle of a batch, a private
+     *  snapshot of the uncommitted values is made once per change.
+     */   
+    private AtmosphericSnapshot getCurrentSnapshot() {
+        AtmosphericSnapshot s = snapshot.get();
+        if( s != null && s.getVersion() == version ) {
+            return s;
         }
-
-        // Now set the out parameters
-    
-        // General attenuation... we stick it in the Mie color because I'm lazy
-        target[1].set(attenuation); 
-    
-        // Rayleigh color
-        // rColor = accumulator * (invWavelengthsKrESun + mESun);
-        target[0].x = accumulator.x * (invWavelengthsKrESun.x + mESun);               
-        target[0].y = accumulator.y * (invWavelengthsKrESun.y + mESun);               
-        target[0].z = accumulator.z * (invWavelengthsKrESun.z + mESun);               
-        
-        return target;
-    }       
+        if( uncommitted == null || uncommitted.getVersion() != version ) {
+            uncommitted = new AtmosphericSnapshot(this, version);
+        }
+        return uncommitted;
+    }
 }
 
 
@@ -0,0 +1,566 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx.sky;
+
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+
+
+/**
+ *  An immutable copy of a set of AtmosphericParameters along with
+ *  the values derived from them.  Snapshots are safe to share between
+ *  threads and the scattering calculations here use no shared temporaries
+ *  so any number of threads can evaluate the same snapshot at once.
+ *
+ *  <p>Snapshots are obtained from AtmosphericParameters.getSnapshot().  Each
+ *  one carries the version of the parameters it was taken from so that
+ *  readers can cheaply tell when something has changed.</p>
+ *
+ *  @author    Paul Speed
+ */
+public final class AtmosphericSnapshot {
+
+    private final long version;
+
+    // Base values
+    private final float sunX, sunY, sunZ;
+    private final float lightIntensity;
+    private final float skyExposure;
+    private final float groundExposure;
+    private final float redWavelength;
+    private final float greenWavelength;
+    private final float blueWavelength;
+    private final float rayleighConstant;
+    private final float mieConstant;
+    private final float mpaFactor;
+    private final float innerRadius;
+    private final float outerRadius;
+    private final float averageDensityScale;
+    private final float skyDomeRadius;
+    private final float planetRadius;
+    private final float skyFlattening;
+    private final int sampleCount;
+
+    // Derived values
+    private final float kWavelengths4PIx, kWavelengths4PIy, kWavelengths4PIz;
+    private final float invWavelengthsKrESunX, invWavelengthsKrESunY, invWavelengthsKrESunZ;
+    private final float mESun;
+    private final float radiusScale;
+    private final float scaleOverScaleDepth;
+    private final float groundPlanetScale;
+    private final float skyPlanetScale;
+    private final float phasePrefix1;
+    private final float phasePrefix2;
+    private final float phasePrefix3;
+
+    AtmosphericSnapshot( AtmosphericParameters parms, long version ) {
+        this.version = version;
+
+        Vector3f sun = parms.getSunPosition();
+        this.sunX = sun.x;
+        this.sunY = sun.y;
+        this.sunZ = sun.z;
+        this.lightIntensity = parms.getLightIntensity();
+        this.skyExposure = parms.getSkyExposure();
+        this.groundExposure = parms.getGroundExposure();
+        this.redWavelength = parms.getRedWavelength();
+        this.greenWavelength = parms.getGreenWavelength();
+        this.blueWavelength = parms.getBlueWavelength();
+        this.rayleighConstant = parms.getRayleighConstant();
+        this.mieConstant = parms.getMieConstant();
+        this.mpaFactor = parms.getMiePhaseAsymmetryFactor();
+        this.innerRadius = parms.getInnerRadius();
+        this.outerRadius = parms.getOuterRadius();
+        this.averageDensityScale = parms.getAverageDensityScale();
+        this.skyDomeRadius = parms.getSkyDomeRadius();
+        this.planetRadius = parms.getPlanetRadius();
+        this.skyFlattening = parms.getSkyFlattening();
+        this.sampleCount = parms.getSampleCount();
+
+        // Same math as AtmosphericParameters.updatePackedStructures()
+        float invR = 1 / FastMath.pow(redWavelength, 4);
+        float invG = 1 / FastMath.pow(greenWavelength, 4);
+        float invB = 1 / FastMath.pow(blueWavelength, 4);
+        float r4PI = rayleighConstant * 4 * FastMath.PI;
+        float m4PI = mieConstant * 4 * FastMath.PI;
+        this.kWavelengths4PIx = invR * r4PI + m4PI;
+        this.kWavelengths4PIy = invG * r4PI + m4PI;
+        this.kWavelengths4PIz = invB * r4PI + m4PI;
+
+        float rESun = rayleighConstant * lightIntensity;
+        this.invWavelengthsKrESunX = invR * rESun;
+        this.invWavelengthsKrESunY = invG * rESun;
+        this.invWavelengthsKrESunZ = invB * rESun;
+        this.mESun = mieConstant * lightIntensity;
+
+        this.radiusScale = 1 / (outerRadius - innerRadius);
+        this.scaleOverScaleDepth = 1 / ((outerRadius - innerRadius) * averageDensityScale);
+        this.groundPlanetScale = innerRadius / planetRadius;
+        this.skyPlanetScale = outerRadius / skyDomeRadius;
+
+        float g = mpaFactor;
+        float g2 = g * g;
+        this.phasePrefix1 = 1.5f * ((1.0f - g2) / (2.0f + g2));
+        this.phasePrefix2 = 1.0f + g2;
+        this.phasePrefix3 = 2.0f * g;
+    }
+
+    private AtmosphericSnapshot( AtmosphericSnapshot base, float sunX, float sunY, float sunZ ) {
+        this.version = base.version;
+        this.sunX = sunX;
+        this.sunY = sunY;
+        this.sunZ = sunZ;
+        this.lightIntensity = base.lightIntensity;
+        this.skyExposure = base.skyExposure;
+        this.groundExposure = base.groundExposure;
+        this.redWavelength = base.redWavelength;
+        this.greenWavelength = base.greenWavelength;
+        this.blueWavelength = base.blueWavelength;
+        this.rayleighConstant = base.rayleighConstant;
+        this.mieConstant = base.mieConstant;
+        this.mpaFactor = base.mpaFactor;
+        this.innerRadius = base.innerRadius;
+        this.outerRadius = base.outerRadius;
+        this.averageDensityScale = base.averageDensityScale;
+        this.skyDomeRadius = base.skyDomeRadius;
+        this.planetRadius = base.planetRadius;
+        this.skyFlattening = base.skyFlattening;
+        this.sampleCount = base.sampleCount;
+        this.kWavelengths4PIx = base.kWavelengths4PIx;
+        this.kWavelengths4PIy = base.kWavelengths4PIy;
+        this.kWavelengths4PIz = base.kWavelengths4PIz;
+        this.invWavelengthsKrESunX = base.invWavelengthsKrESunX;
+        this.invWavelengthsKrESunY = base.invWavelengthsKrESunY;
+        this.invWavelengthsKrESunZ = base.invWavelengthsKrESunZ;
+        this.mESun = base.mESun;
+        this.radiusScale = base.radiusScale;
+        this.scaleOverScaleDepth = base.scaleOverScaleDepth;
+        this.groundPlanetScale = base.groundPlanetScale;
+        this.skyPlanetScale = base.skyPlanetScale;
+        this.phasePrefix1 = base.phasePrefix1;
+        this.phasePrefix2 = base.phasePrefix2;
+        this.phasePrefix3 = base.phasePrefix3;
+    }
+
+    /**
+     *  Returns a snapshot with the same atmosphere and version as this one 
+     *  but lit from the specified light direction.  Useful for evaluating
+     *  the atmosphere at other times of day without touching the live
+     *  AtmosphericParameters.
+     */
+    public AtmosphericSnapshot withLightDirection( Vector3f dir ) {
+        return new AtmosphericSnapshot(this, -dir.x, -dir.y, -dir.z);
+    }
+
+    /**
+     *  Returns the version of the AtmosphericParameters that this snapshot
+     *  was taken from.  Versions only ever increase.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public Vector3f getLightDirection( Vector3f target ) {
+        if( target == null ) {
+            target = new Vector3f();
+        }
+        return target.set(-sunX, -sunY, -sunZ);
+    }
+
+    public Vector3f getSunPosition( Vector3f target ) {
+        if( target == null ) {
+            target = new Vector3f();
+        }
+        return target.set(sunX, sunY, sunZ);
+    }
+
+    public float getLightIntensity() {
+        return lightIntensity;
+    }
+
+    public float getSkyExposure() {
+        return skyExposure;
+    }
+
+    public float getGroundExposure() {
+        return groundExposure;
+    }
+
+    public float getRedWavelength() {
+        return redWavelength;
+    }
+
+    public float getGreenWavelength() {
+        return greenWavelength;
+    }
+
+    public float getBlueWavelength() {
+        return blueWavelength;
+    }
+
+    public float getRayleighConstant() {
+        return rayleighConstant;
+    }
+
+    public float getMieConstant() {
+        return mieConstant;
+    }
+
+    public float getMiePhaseAsymmetryFactor() {
+        return mpaFactor;
+    }
+
+    public float getInnerRadius() {
+        return innerRadius;
+    }
+
+    public float getOuterRadius() {
+        return outerRadius;
+    }
+
+    public float getAverageDensityScale() {
+        return averageDensityScale;
+    }
+
+    public float getSkyDomeRadius() {
+        return skyDomeRadius;
+    }
+
+    public float getPlanetRadius() {
+        return planetRadius;
+    }
+
+    public float getSkyFlattening() {
+        return skyFlattening;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     *  Returns the scale that converts ground distances in geometry
+     *  units into the internal units of the scattering model.
+     */
+    public float getGroundPlanetScale() {
+        return groundPlanetScale;
+    }
+
+    // Package-level access to the derived values for the batch kernels
+    float getSunX() {
+        return sunX;
+    }
+
+    float getSunY() {
+        return sunY;
+    }
+
+    float getSunZ() {
+        return sunZ;
+    }
+
+    float getKWavelengths4PIx() {
+        return kWavelengths4PIx;
+    }
+
+    float getKWavelengths4PIy() {
+        return kWavelengths4PIy;
+    }
+
+    float getKWavelengths4PIz() {
+        return kWavelengths4PIz;
+    }
+
+    float getInvWavelengthsKrESunX() {
+        return invWavelengthsKrESunX;
+    }
+
+    float getInvWavelengthsKrESunY() {
+        return invWavelengthsKrESunY;
+    }
+
+    float getInvWavelengthsKrESunZ() {
+        return invWavelengthsKrESunZ;
+    }
+
+    float getMESun() {
+        return mESun;
+    }
+
+    float getRadiusScale() {
+        return radiusScale;
+    }
+
+    float getScaleOverScaleDepth() {
+        return scaleOverScaleDepth;
+    }
+
+    public ColorRGBA calculateGroundColor( ColorRGBA color, Vector3f direction, float distance, float elevation, ColorRGBA target ) {
+        if( target == null ) {
+            target = new ColorRGBA(0, 0, 0, 1);
+        }
+
+        Vector3f[] parms = calculateGroundInAtmosphere(direction, distance * groundPlanetScale,
+                                                       elevation * groundPlanetScale, null);
+
+        // return (vColor + color * vColor2) * m_Exposure;
+        target.r = (parms[0].x + color.r * parms[1].x) * groundExposure;
+        target.g = (parms[0].y + color.g * parms[1].y) * groundExposure;
+        target.b = (parms[0].z + color.b * parms[1].z) * groundExposure;
+        target.a = color.a;
+
+        return target;
+    }
+
+    private float scale( float fCos ) {
+        return scale(averageDensityScale, fCos);
+    }
+
+    /**
+     *  The scale function of the scattering model shared with the batch
+     *  kernel.
+     */
+    static float scale( float averageDensityScale, float fCos ) {
+        float x = 1.0f - fCos;
+        return averageDensityScale * FastMath.exp(-0.00287f + x*(0.459f + x*(3.83f + x*(-6.80f + x*5.25f))));
+    }
+
+    /**
+     *  Calculates the ground in-scattering (target[0]) and attenuation (target[1])
+     *  for a ray of the specified direction and length in scattering-model units.
+     *  This is the same calculation as VertScattering.glsllib and is what
+     *  AtmosphericParameters.calculateGroundInAtmosphere() uses.
+     */
+    public Vector3f[] calculateGroundInAtmosphere( Vector3f direction, float distance, float elevation, Vector3f[] target ) {
+        if( target == null ) {
+            target = new Vector3f[] { new Vector3f(), new Vector3f() };
+        }
+
+        // Trying something... going to try doing the ray backwards
+        // so start at the far point and run back to the camera.
+        float startX = direction.x * distance;
+        float startY = innerRadius + elevation + direction.y * distance;
+        float startZ = direction.z * distance;
+        float dirX = -direction.x;
+        float dirY = -direction.y;
+        float dirZ = -direction.z;
+
+        float height = startY;  // camera is always centered so y is good enough for elevation.
+        float offset = innerRadius - height;
+        float depth = FastMath.exp(scaleOverScaleDepth * offset);
+        float startAngle = (dirX * startX + dirY * startY + dirZ * startZ) / height;
+        float startOffset = depth * scale(startAngle);
+
+        // Setup the loop stepping
+        float sampleLength = distance / sampleCount;
+        float scaledLength = sampleLength * radiusScale;
+        float stepX = dirX * sampleLength;
+        float stepY = dirY * sampleLength;
+        float stepZ = dirZ * sampleLength;
+        float sampleX = startX + stepX * 0.5f;
+        float sampleY = startY + stepY * 0.5f;
+        float sampleZ = startZ + stepZ * 0.5f;
+
+        float accumX = 0, accumY = 0, accumZ = 0;
+        float attenX = 0, attenY = 0, attenZ = 0;
+        for( int i = 0; i < sampleCount; i++ ) {
+            // Ground points are generally always close enough that we pretend
+            // the world is flat.
+            height = sampleY;
+            offset = innerRadius - height;
+            depth = FastMath.exp(scaleOverScaleDepth * offset);
+
+            float lightAngle = (sunX * sampleX + sunY * sampleY + sunZ * sampleZ) / height;
+            float cameraAngle = (dirX * sampleX + dirY * sampleY + dirZ * sampleZ) / height;
+
+            float scatter = startOffset + depth * (scale(lightAngle) - scale(cameraAngle));
+
+            attenX = FastMath.exp(-scatter * kWavelengths4PIx);
+            attenY = FastMath.exp(-scatter * kWavelengths4PIy);
+            attenZ = FastMath.exp(-scatter * kWavelengths4PIz);
+
+            float weight = depth * scaledLength;
+            accumX += attenX * weight;
+            accumY += attenY * weight;
+            accumZ += attenZ * weight;
+
+            sampleX += stepX;
+            sampleY += stepY;
+            sampleZ += stepZ;
+        }
+
+        // General attenuation... stored in the Mie color like the shader
+        target[1].set(attenX, attenY, attenZ);
+
+        // Rayleigh color
+        target[0].x = accumX * (invWavelengthsKrESunX + mESun);
+        target[0].y = accumY * (invWavelengthsKrESunY + mESun);
+        target[0].z = accumZ * (invWavelengthsKrESunZ + mESun);
+
+        return target;
+    }
+
+    /**
+     *  Calculates ground in-scattering and attenuation for a whole batch of
+     *  rays at once.  See GroundScatteringBatch.
+     */
+    public void calculateGroundInAtmosphere( GroundScatteringBatch batch ) {
+        batch.calculate(this);
+    }
+
+    /**
+     *  Returns true if the other snapshot has the same atmosphere values as 
+     *  this one, ignoring the light direction.
+     */
+    public boolean hasSameAtmosphere( AtmosphericSnapshot other ) {
+        if( other == this ) {
+            return true;
+        }
+        if( other == null ) {
+            return false;
+        }
+        return lightIntensity == other.lightIntensity
+            && skyExposure == other.skyExposure
+            && groundExposure == other.groundExposure
+            && redWavelength == other.redWavelength
+            && greenWavelength == other.greenWavelength
+            && blueWavelength == other.blueWavelength
+            && rayleighConstant == other.rayleighConstant
+            && mieConstant == other.mieConstant
+            && mpaFactor == other.mpaFactor
+            && innerRadius == other.innerRadius
+            && outerRadius == other.outerRadius
+            && averageDensityScale == other.averageDensityScale
+            && skyDomeRadius == other.skyDomeRadius
+            && planetRadius == other.planetRadius
+            && skyFlattening == other.skyFlattening
+            && sampleCount == other.sampleCount;
+    }
+
+    /**
+     *  Returns the cosine of the angle between this snapshot's sun position
+     *  and the other snapshot's sun position.
+     */
+    public float sunCos( AtmosphericSnapshot other ) {
+        return sunX * other.sunX + sunY * other.sunY + sunZ * other.sunZ;
+    }
+
+    public ColorRGBA calculateSkyColor( Vector3f direction, ColorRGBA target ) {
+        return calculateSkyColor(direction.x, direction.y, direction.z, target);
+    }
+
+    /**
+     *  Calculates the color of the sky in the specified unit view direction
+     *  as seen from the ground, the same way that SkyAtmospherics.j3md does for
+     *  the sky dome, including its exposure and gamma.  Directions below the
+     *  horizon are treated as looking out along the atmosphere shell though
+     *  the sky dome never shows them.
+     */
+    public ColorRGBA calculateSkyColor( float dx, float dy, float dz, ColorRGBA target ) {
+        if( target == null ) {
+            target = new ColorRGBA(0, 0, 0, 1);
+        }
+
+        // Find the distance from the eye on the planet surface out to the
+        // outer atmosphere.  This is what the dome geometry provides in the
+        // shader.
+        float b = innerRadius * dy;
+        float distance = -b + FastMath.sqrt(b * b - innerRadius * innerRadius + outerRadius * outerRadius);
+
+        // calculateSkyInAtmosphere() from SkyAtmospherics.vert with an
+        // elevation of 0
+        float startY = innerRadius;
+        float startOffset = scale(dy);  // depth is exp(0) at the start
+
+        float sampleLength = distance / sampleCount;
+        float scaledLength = sampleLength * radiusScale;
+        float stepX = dx * sampleLength;
+        float stepY = dy * sampleLength;
+        float stepZ = dz * sampleLength;
+        float sampleX = stepX * 0.5f;
+        float sampleY = startY + stepY * 0.5f;
+        float sampleZ = stepZ * 0.5f;
+
+        float accumX = 0, accumY = 0, accumZ = 0;
+        for( int i = 0; i < sampleCount; i++ ) {
+            float length = FastMath.sqrt(sampleX * sampleX + sampleY * sampleY + sampleZ * sampleZ);
+            float height = length + (sampleY - length) * skyFlattening;
+            float depth = FastMath.exp(scaleOverScaleDepth * (innerRadius - height));
+
+            float lightAngle = (sunX * sampleX + sunY * sampleY + sunZ * sampleZ) / height;
+            float cameraAngle = (dx * sampleX + dy * sampleY + dz * sampleZ) / height;
+
+            float scatter = startOffset + depth * (scale(lightAngle) - scale(cameraAngle));
+
+            float weight = depth * scaledLength;
+            accumX += FastMath.exp(-scatter * kWavelengths4PIx) * weight;
+            accumY += FastMath.exp(-scatter * kWavelengths4PIy) * weight;
+            accumZ += FastMath.exp(-scatter * kWavelengths4PIz) * weight;
+
+            sampleX += stepX;
+            sampleY += stepY;
+            sampleZ += stepZ;
+        }
+
+        // The phase function from SkyAtmospherics.frag
+        float fCos = -(sunX * dx + sunY * dy + sunZ * dz);
+        float miePhase = phasePrefix1 * (1.0f + fCos * fCos)
+                         / (float)Math.pow(phasePrefix2 - phasePrefix3 * fCos, 1.5);
+
+        float r = (accumX * invWavelengthsKrESunX + miePhase * accumX * mESun) * skyExposure;
+        float g = (accumY * invWavelengthsKrESunY + miePhase * accumY * mESun) * skyExposure;
+        float bl = (accumZ * invWavelengthsKrESunZ + miePhase * accumZ * mESun) * skyExposure;
+
+        // The shader's GAMMA of 0.5
+        target.r = FastMath.sqrt(Math.max(0, r));
+        target.g = FastMath.sqrt(Math.max(0, g));
+        target.b = FastMath.sqrt(Math.max(0, bl));
+        target.a = target.b;
+        return target;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[version=" + version
+                + ", sunPosition=(" + sunX + ", " + sunY + ", " + sunZ + ")"
+                + ", lightIntensity=" + lightIntensity
+                + ", rayleigh=" + rayleighConstant
+                + ", mie=" + mieConstant + "]";
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx.sky;
+
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.simsilica.fx.LightDirectionTable;
+import com.simsilica.fx.LightingModel;
+
+
+/**
+ *  Precomputes the sun direction, ground lighting color, and optionally
+ *  the sky ambient over a full day/night cycle so that an animated time
+ *  of day only costs a table lookup per frame.  Lookups interpolate 
+ *  linearly between the precomputed entries.
+ *
+ *  <p>Times use the same scale as LightingModel.setTimeOfDay(): 0 is
+ *  sunrise, 0.5 is noon, and 1 is sunset.  The table covers times 0 to 2
+ *  and wraps so any time value is valid.</p>
+ *
+ *  <p>The table is rebuilt by update() only when the orientation,
+ *  inclination, or the atmosphere (ignoring light direction) has
+ *  changed since the last build.</p>
+ *
+ *  @author    Paul Speed
+ */
+public class DayCycleTimeline implements LightDirectionTable {
+
+    private static final float CYCLE = 2;
+
+    private int resolution;
+    private boolean includeAmbient;
+    private SkyIrradiance irradiance;
+
+    // What the current table was built from
+    private AtmosphericSnapshot source;
+    private float orientation;
+    private float inclination;
+    private boolean invalid = true;
+
+    private float[] directions;
+    private float[] groundLighting;
+    private float[] ambient;
+
+    /**
+     *  Creates a timeline with 256 entries over the full cycle.
+     */
+    public DayCycleTimeline() {
+        this(256);
+    }
+
+    public DayCycleTimeline( int resolution ) {
+        setResolution(resolution);
+    }
+
+    /**
+     *  Sets the number of entries precomputed over the full day/night
+     *  cycle.  Changing it invalidates the table.
+     */
+    public void setResolution( int resolution ) {
+        if( resolution < 2 ) {
+            throw new IllegalArgumentException("Resolution must be at least 2:" + resolution);
+        }
+        if( this.resolution == resolution ) {
+            return;
+        }
+        this.resolution = resolution;
+        invalidate();
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    /**
+     *  Set to true to also precompute the sky ambient for each entry.  This 
+     *  integrates the whole sky once per entry so it makes rebuilds much more
+     *  expensive.  Defaults to false.
+     */
+    public void setIncludeAmbient( boolean b ) {
+        if( this.includeAmbient == b ) {
+            return;
+        }
+        this.includeAmbient = b;
+        invalidate();
+    }
+
+    public boolean isIncludeAmbient() {
+        return includeAmbient;
+    }
+
+    /**
+     *  Forces the table to be rebuilt on the next update().
+     */
+    public void invalidate() {
+        this.invalid = true;
+    }
+
+    /**
+     *  Returns true if the table has been built at least once.
+     */
+    public boolean isBuilt() {
+        return directions != null;
+    }
+
+    /**
+     *  Returns true if the current table is valid and was built for the 
+     *  specified orientation and inclination, ie: its light directions can
+     *  be used in place of LightingModel.calculateLightDir().
+     */
+    @Override
+    public boolean isBuiltFor( float orientation, float inclination ) {
+        return directions != null && !invalid 
+            && this.orientation == orientation && this.inclination == inclination;
+    }
+
+    /**
+     *  Rebuilds the table if the orientation, inclination, or atmosphere
+     *  differ from what it was last built with.  Returns true if the table
+     *  was rebuilt.
+     */
+    public boolean update( AtmosphericSnapshot atmosphere, float orientation, float inclination ) {
+        if( !invalid && this.orientation == orientation && this.inclination == inclination
+            && atmosphere.hasSameAtmosphere(source) ) {
+            return false;
+        }
+        this.source = atmosphere;
+        this.orientation = orientation;
+        this.inclination = inclination;
+        rebuild();
+        invalid = false;
+        return true;
+    }
+
+    protected void rebuild() {
+        if( directions == null || directions.length != resolution * 3 ) {
+            directions = new float[resolution * 3];
+            groundLighting = new float[resolution * 3];
+        }
+        if( includeAmbient ) {
+            if( ambient == null || ambient.length != resolution * 3 ) {
+                ambient = new float[resolution * 3];
+            }
+            if( irradiance == null ) {
+                irradiance = new SkyIrradiance();
+            }
+        } else {
+            ambient = null;
+        }
+
+        Vector3f dir = new Vector3f();
+        ColorRGBA color = new ColorRGBA();
+        for( int i = 0; i < resolution; i++ ) {
+            float time = CYCLE * i / resolution;
+            LightingModel.calculateLightDir(time, inclination, orientation, dir);
+            int base = i * 3;
+            directions[base] = dir.x;
+            directions[base + 1] = dir.y;
+            directions[base + 2] = dir.z;
+
+            AtmosphericSnapshot lit = source.withLightDirection(dir);
+
+            // Same as SkyState's lighting color
+            lit.calculateGroundColor(ColorRGBA.White, Vector3f.UNIT_X, 1f, 0, color);
+            groundLighting[base] = color.r;
+            groundLighting[base + 1] = color.g;
+            groundLighting[base + 2] = color.b;
+
+            if( ambient != null ) {
+                irradiance.integrate(lit);
+                irradiance.getAmbient(color);
+                ambient[base] = color.r;
+                ambient[base + 1] = color.g;
+                ambient[base + 2] = color.b;
+            }
+        }
+    }
+
+    private float position( float time ) {
+        float f = (time / CYCLE) % 1;
+        if( f < 0 ) {
+            f += 1;
+        }
+        return f * resolution;
+    }
+
+    /**
+     *  Returns the interpolated light direction for the specified time.
+     */
+    @Override
+    public Vector3f getLightDirection( float time, Vector3f target ) {
+        if( target == null ) {
+            target = new Vector3f();
+        }
+        float pos = position(time);
+        int i1 = (int)pos;
+        float t = pos - i1;
+        int a = (i1 % resolution) * 3;
+        int b = ((i1 + 1) % resolution) * 3;
+        target.x = FastMath.interpolateLinear(t, directions[a], directions[b]);
+        target.y = FastMath.interpolateLinear(t, directions[a + 1], directions[b + 1]);
+        target.z = FastMath.interpolateLinear(t, directions[a + 2], directions[b + 2]);
+        return target.normalizeLocal();
+    }
+
+    /**
+     *  Returns the interpolated ground lighting color for the specified time.
+     *  This is the same color as SkyState.getLightingColor().
+     */
+    public ColorRGBA getGroundLighting( float time, ColorRGBA target ) {
+        return lookup(groundLighting, time, target);
+    }
+
+    /**
+     *  Returns the interpolated sky ambient for the specified time.  Requires
+     *  setIncludeAmbient(true).
+     */
+    public ColorRGBA getAmbient( float time, ColorRGBA target ) {
+        if( ambient == null ) {
+            throw new IllegalStateException("Timeline does not include ambient");
+        }
+        return lookup(ambient, time, target);
+    }
+
+    private ColorRGBA lookup( float[] table, float time, ColorRGBA target ) {
+        if( target == null ) {
+            target = new ColorRGBA(0, 0, 0, 1);
+        }
+        float pos = position(time);
+        int i1 = (int)pos;
+        float t = pos - i1;
+        int a = (i1 % resolution) * 3;
+        int b = ((i1 + 1) % resolution) * 3;
+        target.r = FastMath.interpolateLinear(t, table[a], table[b]);
+        target.g = FastMath.interpolateLinear(t, table[a + 1], table[b + 1]);
+        target.b = FastMath.interpolateLinear(t, table[a + 2], table[b + 2]);
+        target.a = 1;
+        return target;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[resolution=" + resolution
+                + ", includeAmbient=" + includeAmbient + "]";
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx.sky;
+
+import com.jme3.math.FastMath;
+
+
+/**
+ *  A structure-of-arrays batch of ground scattering rays that can be
+ *  evaluated against an AtmosphericSnapshot in one pass.  This is the same
+ *  math as AtmosphericSnapshot.calculateGroundInAtmosphere() but the rays
+ *  are processed in blocks of LANES with all of the per-ray state kept in
+ *  primitive arrays.  The snapshot values are read once per block and each
+ *  step is a simple counted loop over those arrays that the JIT can unroll.
+ *  Most of the time goes to the FastMath.exp() calls, though, and HotSpot 
+ *  does not vectorize those so the kernel is not SIMD.  The gain over the 
+ *  scalar path comes from the hoisted loads, the lack of per-ray objects, 
+ *  and the independent work in each loop.  GroundScatteringBatchBenchmark 
+ *  in the benchmarks project compares the two.
+ *
+ *  <p>Callers fill in the ray inputs (direction, distance, elevation) for
+ *  up to capacity rays, set the ray count, and then call 
+ *  calculate(snapshot).  Results are left in the in-scatter (Rayleigh)
+ *  and attenuation arrays.  Distances and elevations are in scattering-model
+ *  units just like calculateGroundInAtmosphere(), so callers working in
+ *  geometry units should multiply by the snapshot's ground planet scale.</p>
+ *
+ *  <p>A batch holds its own working storage and so should not be shared
+ *  between threads, but each thread can have its own batch evaluating the
+ *  same snapshot.</p>
+ *
+ *  @author    Paul Speed
+ */
+public class GroundScatteringBatch {
+
+    /**
+     *  The number of rays processed together in one block.
+     */
+    public static final int LANES = 8;
+
+    private final int capacity;
+    private int size;
+
+    // Inputs
+    public final float[] dirX;
+    public final float[] dirY;
+    public final float[] dirZ;
+    public final float[] distance;
+    public final float[] elevation;
+
+    // Outputs
+    public final float[] inScatterR;
+    public final float[] inScatterG;
+    public final float[] inScatterB;
+    public final float[] attenuationR;
+    public final float[] attenuationG;
+    public final float[] attenuationB;
+
+    // Per-block working storage
+    private final float[] sampleX = new float[LANES];
+    private final float[] sampleY = new float[LANES];
+    private final float[] sampleZ = new float[LANES];
+    private final float[] stepX = new float[LANES];
+    private final float[] stepY = new float[LANES];
+    private final float[] stepZ = new float[LANES];
+    private final float[] startOffset = new float[LANES];
+    private final float[] scaledLength = new float[LANES];
+    private final float[] depth = new float[LANES];
+    private final float[] scatter = new float[LANES];
+    private final float[] lightAngle = new float[LANES];
+    private final float[] cameraAngle = new float[LANES];
+
+    public GroundScatteringBatch( int capacity ) {
+        // Round up to a whole number of blocks so that the block loops
+        // never need a remainder case
+        this.capacity = ((capacity + LANES - 1) / LANES) * LANES;
+        this.dirX = new float[this.capacity];
+        this.dirY = new float[this.capacity];
+        this.dirZ = new float[this.capacity];
+        this.distance = new float[this.capacity];
+        this.elevation = new float[this.capacity];
+        this.inScatterR = new float[this.capacity];
+        this.inScatterG = new float[this.capacity];
+        this.inScatterB = new float[this.capacity];
+        this.attenuationR = new float[this.capacity];
+        this.attenuationG = new float[this.capacity];
+        this.attenuationB = new float[this.capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setSize( int size ) {
+        if( size < 0 || size > capacity ) {
+            throw new IllegalArgumentException("Size out of range 0 to " + capacity + ":" + size);
+        }
+        this.size = size;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     *  Convenience method for setting the inputs of a single ray.
+     */
+    public void setRay( int i, float dx, float dy, float dz, float distance, float elevation ) {
+        this.dirX[i] = dx;
+        this.dirY[i] = dy;
+        this.dirZ[i] = dz;
+        this.distance[i] = distance;
+        this.elevation[i] = elevation;
+    }
+
+    /**
+     *  Evaluates all size rays against the specified snapshot.
+     */
+    public void calculate( AtmosphericSnapshot s ) {
+        for( int base = 0; base < size; base += LANES ) {
+            calculateBlock(s, base);
+        }
+    }
+
+    private void calculateBlock( AtmosphericSnapshot s, int base ) {
+        float innerRadius = s.getInnerRadius();
+        float averageDensityScale = s.getAverageDensityScale();
+        float scaleOverScaleDepth = s.getScaleOverScaleDepth();
+        float radiusScale = s.getRadiusScale();
+        int sampleCount = s.getSampleCount();
+        float invSamples = 1f / sampleCount;
+        float sunX = s.getSunX();
+        float sunY = s.getSunY();
+        float sunZ = s.getSunZ();
+        float k4PIr = s.getKWavelengths4PIx();
+        float k4PIg = s.getKWavelengths4PIy();
+        float k4PIb = s.getKWavelengths4PIz();
+
+        // Setup: the rays are run backwards from the far point to the camera
+        // so the ray direction is the negated input direction.
+        for( int l = 0; l < LANES; l++ ) {
+            int i = base + l;
+            float d = distance[i];
+            float dx = -dirX[i];
+            float dy = -dirY[i];
+            float dz = -dirZ[i];
+            float startX = -dx * d;
+            float startY = innerRadius + elevation[i] - dy * d;
+            float startZ = -dz * d;
+            float sampleLength = d * invSamples;
+
+            stepX[l] = dx * sampleLength;
+            stepY[l] = dy * sampleLength;
+            stepZ[l] = dz * sampleLength;
+            sampleX[l] = startX + stepX[l] * 0.5f;
+            sampleY[l] = startY + stepY[l] * 0.5f;
+            sampleZ[l] = startZ + stepZ[l] * 0.5f;
+            scaledLength[l] = sampleLength * radiusScale;
+            depth[l] = scaleOverScaleDepth * (innerRadius - startY);
+            cameraAngle[l] = (dx * startX + dy * startY + dz * startZ) / startY;
+        }
+        for( int l = 0; l < LANES; l++ ) {
+            startOffset[l] = FastMath.exp(depth[l]) * AtmosphericSnapshot.scale(averageDensityScale, cameraAngle[l]);
+        }
+
+        // Clear the accumulators
+        for( int l = 0; l < LANES; l++ ) {
+            inScatterR[base + l] = 0;
+            inScatterG[base + l] = 0;
+            inScatterB[base + l] = 0;
+        }
+
+        for( int n = 0; n < sampleCount; n++ ) {
+            for( int l = 0; l < LANES; l++ ) {
+                int i = base + l;
+                float height = sampleY[l];
+                float dx = -dirX[i];
+                float dy = -dirY[i];
+                float dz = -dirZ[i];
+                depth[l] = scaleOverScaleDepth * (innerRadius - height);
+                lightAngle[l] = (sunX * sampleX[l] + sunY * sampleY[l] + sunZ * sampleZ[l]) / height;
+                cameraAngle[l] = (dx * sampleX[l] + dy * sampleY[l] + dz * sampleZ[l]) / height;
+            }
+            for( int l = 0; l < LANES; l++ ) {
+                depth[l] = FastMath.exp(depth[l]);
+                float lightScale = AtmosphericSnapshot.scale(averageDensityScale, lightAngle[l]);
+                float cameraScale = AtmosphericSnapshot.scale(averageDensityScale, cameraAngle[l]);
+                scatter[l] = startOffset[l] + depth[l] * (lightScale - cameraScale);
+            }
+            for( int l = 0; l < LANES; l++ ) {
+                int i = base + l;
+                float weight = depth[l] * scaledLength[l];
+                float ar = FastMath.exp(-scatter[l] * k4PIr);
+                float ag = FastMath.exp(-scatter[l] * k4PIg);
+                float ab = FastMath.exp(-scatter[l] * k4PIb);
+                attenuationR[i] = ar;
+                attenuationG[i] = ag;
+                attenuationB[i] = ab;
+                inScatterR[i] += ar * weight;
+                inScatterG[i] += ag * weight;
+                inScatterB[i] += ab * weight;
+            }
+            for( int l = 0; l < LANES; l++ ) {
+                sampleX[l] += stepX[l];
+                sampleY[l] += stepY[l];
+                sampleZ[l] += stepZ[l];
+            }
+        }
+
+        // Rayleigh color = accumulator * (invWavelengthsKrESun + mESun)
+        float mESun = s.getMESun();
+        float kr = s.getInvWavelengthsKrESunX() + mESun;
+        float kg = s.getInvWavelengthsKrESunY() + mESun;
+        float kb = s.getInvWavelengthsKrESunZ() + mESun;
+        for( int l = 0; l < LANES; l++ ) {
+            inScatterR[base + l] *= kr;
+            inScatterG[base + l] *= kg;
+            inScatterB[base + l] *= kb;
+        }
+    }
+}
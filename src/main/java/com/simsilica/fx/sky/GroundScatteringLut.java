@@ -0,0 +1,343 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx.sky;
+
+import java.nio.ByteBuffer;
+
+import com.jme3.material.Material;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector4f;
+import com.jme3.texture.Image;
+import com.jme3.texture.Image.Format;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+
+
+/**
+ *  Tabulates the ground scattering model of an AtmosphericSnapshot into
+ *  two small RGB16F textures, one for the in-scatter (Rayleigh) color and
+ *  one for the attenuation, so that ground materials can replace the 
+ *  per-vertex sample loop with two texture fetches.  Materials pick it up
+ *  through the GROUND_LUT define that is set when the GroundInScatterLut 
+ *  parameter is present.
+ *
+ *  <p>The horizontal axis is the scattering-model distance from the camera
+ *  with a square root mapping so that nearby points get most of the texels.
+ *  The vertical axis is the cosine of the view ray's angle from straight up,
+ *  from -1 at the bottom to 1 at the top.  The sun direction and the camera
+ *  elevation are baked into the table.  The table is regenerated when the
+ *  atmosphere changes, when the sun moves more than the angle threshold, or
+ *  when the camera elevation moves more than the elevation threshold.  Each
+ *  ray is taken in the vertical plane perpendicular to the sun's azimuth which
+ *  is the average over all azimuths of the small horizontal term that the
+ *  table ignores.</p>
+ *
+ *  <p>The shaders pass the unnormalized scaled offset as the ray direction
+ *  and the table does the same so that both paths produce the same colors.</p>
+ *
+ *  @author    Paul Speed
+ */
+public class GroundScatteringLut {
+
+    private static final int BYTES_PER_PIXEL = 6;
+
+    private final int distanceSize;
+    private final int angleSize;
+    private final Texture2D inScatter;
+    private final Texture2D attenuation;
+    private final Vector4f lutParams = new Vector4f();
+    private final GroundScatteringBatch batch;
+
+    private float maxDistance;
+    private float cosThreshold;
+    private float elevationThreshold;
+
+    private AtmosphericSnapshot source;
+    private float sourceElevation;
+    private boolean invalid = true;
+    private int generationCount;
+
+    /**
+     *  Creates a 64x32 table covering 1 scattering-model unit which
+     *  includes the whole default SkyState ground disc and, at SkyState's 
+     *  planet scale, objects out to about 6000 geometry units.  It is 
+     *  regenerated when the sun moves more than one degree or the camera 
+     *  elevation moves more than one geometry unit.
+     */
+    public GroundScatteringLut() {
+        this(64, 32, 1);
+    }
+
+    public GroundScatteringLut( int distanceSize, int angleSize, float maxDistance ) {
+        this.distanceSize = distanceSize;
+        this.angleSize = angleSize;
+        this.maxDistance = maxDistance;
+        this.cosThreshold = FastMath.cos(FastMath.DEG_TO_RAD);
+        this.elevationThreshold = 1;
+        this.inScatter = createTexture("GroundInScatterLut");
+        this.attenuation = createTexture("GroundAttenuationLut");
+        this.batch = new GroundScatteringBatch(distanceSize * angleSize);
+        updateLutParams();
+    }
+
+    private Texture2D createTexture( String name ) {
+        ByteBuffer data = BufferUtils.createByteBuffer(distanceSize * angleSize * BYTES_PER_PIXEL);
+        Image image = new Image(Format.RGB16F, distanceSize, angleSize, data, ColorSpace.Linear);
+        Texture2D result = new Texture2D(image);
+        result.setName(name);
+        result.setMagFilter(Texture.MagFilter.Bilinear);
+        result.setMinFilter(Texture.MinFilter.BilinearNoMipMaps);
+        result.setWrap(Texture.WrapMode.EdgeClamp);
+        return result;
+    }
+
+    public Texture2D getInScatterTexture() {
+        return inScatter;
+    }
+
+    public Texture2D getAttenuationTexture() {
+        return attenuation;
+    }
+
+    public int getDistanceSize() {
+        return distanceSize;
+    }
+
+    public int getAngleSize() {
+        return angleSize;
+    }
+
+    /**
+     *  Returns the vector that the shaders use to map a ray onto the table:
+     *  (1 / maxDistance, half a texel in u, half a texel in v, 0).  It is 
+     *  shared by reference with the materials.
+     */
+    public Vector4f getLutParams() {
+        return lutParams;
+    }
+
+    /**
+     *  Sets the largest scattering-model distance covered by the table.  
+     *  Farther points use the values at this distance.  Scattering-model 
+     *  distance is the geometry distance times the ground planet scale 
+     *  (and times the GroundScale for GroundAtmospherics materials).
+     *  Because the shaders scale the ray by its own length, distances much
+     *  past the square root of the inner radius run below the planet and
+     *  give meaningless colors.
+     */
+    public void setMaxDistance( float maxDistance ) {
+        if( this.maxDistance == maxDistance ) {
+            return;
+        }
+        this.maxDistance = maxDistance;
+        updateLutParams();
+        invalid = true;
+    }
+
+    public float getMaxDistance() {
+        return maxDistance;
+    }
+
+    public void setAngleThreshold( float radians ) {
+        this.cosThreshold = FastMath.cos(radians);
+    }
+
+    public float getAngleThreshold() {
+        return FastMath.acos(cosThreshold);
+    }
+
+    /**
+     *  Sets how far in geometry units the camera elevation can move before
+     *  the table is regenerated.
+     */
+    public void setElevationThreshold( float elevationThreshold ) {
+        this.elevationThreshold = elevationThreshold;
+    }
+
+    public float getElevationThreshold() {
+        return elevationThreshold;
+    }
+
+    /**
+     *  Returns the number of times the table has been generated.
+     */
+    public int getGenerationCount() {
+        return generationCount;
+    }
+
+    /**
+     *  Sets the table textures and mapping parameters on the specified
+     *  material if its definition supports them.
+     */
+    public void applyParameters( Material m ) {
+        if( m.getMaterialDef().getMaterialParam("GroundInScatterLut") == null ) {
+            return;
+        }
+        m.setTexture("GroundInScatterLut", inScatter);
+        m.setTexture("GroundAttenuationLut", attenuation);
+        m.setVector4("GroundLutParams", lutParams);
+    }
+
+    /**
+     *  Removes the table parameters from the specified material so that
+     *  it goes back to calculating the scattering per vertex.
+     */
+    public static void clearParameters( Material m ) {
+        if( m.getMaterialDef().getMaterialParam("GroundInScatterLut") == null ) {
+            return;
+        }
+        m.clearParam("GroundInScatterLut");
+        m.clearParam("GroundAttenuationLut");
+        m.clearParam("GroundLutParams");
+    }
+
+    /**
+     *  Regenerates the table if the snapshot or camera elevation have changed 
+     *  enough since the last time.  The camera elevation is in geometry units.
+     *  Returns true if the table was regenerated.
+     */
+    public boolean update( AtmosphericSnapshot current, float cameraElevation ) {
+        if( !needsUpdate(current, cameraElevation) ) {
+            return false;
+        }
+        source = current;
+        sourceElevation = cameraElevation;
+        invalid = false;
+        generate(current, cameraElevation * current.getGroundPlanetScale());
+        return true;
+    }
+
+    protected boolean needsUpdate( AtmosphericSnapshot current, float cameraElevation ) {
+        if( invalid || source == null ) {
+            return true;
+        }
+        if( Math.abs(cameraElevation - sourceElevation) > elevationThreshold ) {
+            return true;
+        }
+        if( current.getVersion() == source.getVersion() ) {
+            return false;
+        }
+        if( !current.hasSameAtmosphere(source) ) {
+            return true;
+        }
+        return current.sunCos(source) < cosThreshold;
+    }
+
+    private void updateLutParams() {
+        lutParams.set(1 / maxDistance, 0.5f / distanceSize, 0.5f / angleSize, 0);
+    }
+
+    /**
+     *  Returns the scattering-model distance sampled by the specified 
+     *  column of the table.
+     */
+    public float getColumnDistance( int x ) {
+        float u = (float)x / (distanceSize - 1);
+        return u * u * maxDistance;
+    }
+
+    /**
+     *  Returns the cosine of the view angle sampled by the specified row 
+     *  of the table.
+     */
+    public float getRowCosine( int y ) {
+        return (float)y / (angleSize - 1) * 2 - 1;
+    }
+
+    /**
+     *  Fills the tables for the specified snapshot and scattering-model 
+     *  camera elevation.
+     */
+    protected void generate( AtmosphericSnapshot s, float elevation ) {
+
+        // Pick the horizontal direction perpendicular to the sun's azimuth
+        float hx = -s.getSunZ();
+        float hz = s.getSunX();
+        float hLength = FastMath.sqrt(hx * hx + hz * hz);
+        if( hLength < FastMath.ZERO_TOLERANCE ) {
+            hx = 1;
+            hz = 0;
+        } else {
+            hx /= hLength;
+            hz /= hLength;
+        }
+
+        int i = 0;
+        for( int y = 0; y < angleSize; y++ ) {
+            float cos = getRowCosine(y);
+            float sin = FastMath.sqrt(Math.max(0, 1 - cos * cos));
+            for( int x = 0; x < distanceSize; x++ ) {
+                float d = getColumnDistance(x);
+                batch.setRay(i++, hx * sin * d, cos * d, hz * sin * d, d, elevation);
+            }
+        }
+        batch.setSize(i);
+        s.calculateGroundInAtmosphere(batch);
+
+        ByteBuffer scatterData = inScatter.getImage().getData(0);
+        ByteBuffer attenuationData = attenuation.getImage().getData(0);
+        scatterData.clear();
+        attenuationData.clear();
+        for( int n = 0; n < i; n++ ) {
+            scatterData.putShort(toHalf(batch.inScatterR[n]));
+            scatterData.putShort(toHalf(batch.inScatterG[n]));
+            scatterData.putShort(toHalf(batch.inScatterB[n]));
+            attenuationData.putShort(toHalf(batch.attenuationR[n]));
+            attenuationData.putShort(toHalf(batch.attenuationG[n]));
+            attenuationData.putShort(toHalf(batch.attenuationB[n]));
+        }
+        scatterData.flip();
+        attenuationData.flip();
+        inScatter.getImage().setUpdateNeeded();
+        attenuation.getImage().setUpdateNeeded();
+        generationCount++;
+    }
+ 
+    /**
+     *  Converts to half float, clamping to the half float range.  Rays that
+     *  go below the planet can produce NaN and those are stored as 0.
+     */   
+    private static short toHalf( float f ) {
+        if( f != f ) {
+            f = 0;
+        }
+        return FastMath.convertFloatToHalf(Math.max(-65504f, Math.min(65504f, f)));
+    }
+}
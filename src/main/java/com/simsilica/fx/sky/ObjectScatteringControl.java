@@ -0,0 +1,218 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx.sky;
+
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.material.MatParamOverride;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.control.AbstractControl;
+import com.jme3.shader.VarType;
+
+
+/**
+ *  Evaluates the ground scattering once per object at the center of the 
+ *  spatial's world bound and hands the result to its ScatteredLighting 
+ *  materials as material parameter overrides.  The OBJECT_SCATTERING
+ *  define that the overrides set skips the per-vertex scattering loop,
+ *  so distant props cost the same per vertex no matter how the atmosphere
+ *  is configured.  Added to a node, one evaluation covers all of its 
+ *  children.
+ *
+ *  <p>The scattering is only recalculated when the camera-to-object offset
+ *  has changed by more than the offset threshold (relative to the distance),
+ *  when the sun has moved more than the angle threshold, or when the rest
+ *  of the atmosphere has changed.  Closer than the minimum distance, the 
+ *  overrides are disabled and the materials go back to per-vertex 
+ *  scattering.</p>
+ *
+ *  <p>The scattering is evaluated against the camera of whatever viewport
+ *  renders the spatial and so it is meant for objects in the main view.</p>
+ *
+ *  @author    Paul Speed
+ */
+public class ObjectScatteringControl extends AbstractControl {
+
+    private final AtmosphericParameters parms;
+    private final Vector3f inScatter = new Vector3f();
+    private final Vector3f attenuation = new Vector3f();
+    private final MatParamOverride inScatterOverride;
+    private final MatParamOverride attenuationOverride;
+
+    private float minDistance = 100;
+    private float offsetThreshold = 0.05f;
+    private float cosThreshold = FastMath.cos(FastMath.DEG_TO_RAD);
+
+    private AtmosphericSnapshot source;
+    private final Vector3f lastOffset = new Vector3f();
+    private final Vector3f offset = new Vector3f();
+    private final Vector3f[] results = { inScatter, attenuation };
+    private int evaluationCount;
+
+    public ObjectScatteringControl( AtmosphericParameters parms ) {
+        this.parms = parms;
+        this.inScatterOverride = new MatParamOverride(VarType.Vector3, "ObjectInScatter", inScatter);
+        this.attenuationOverride = new MatParamOverride(VarType.Vector3, "ObjectAttenuation", attenuation);
+        setOverridesEnabled(false);
+    }
+
+    /**
+     *  Sets the camera distance in geometry units inside of which the
+     *  materials use per-vertex scattering.  Defaults to 100.
+     */
+    public void setMinDistance( float minDistance ) {
+        this.minDistance = minDistance;
+    }
+
+    public float getMinDistance() {
+        return minDistance;
+    }
+
+    /**
+     *  Sets how far the camera-to-object offset can move, as a fraction of
+     *  the distance, before the scattering is recalculated.  Defaults to 0.05.
+     */
+    public void setOffsetThreshold( float offsetThreshold ) {
+        this.offsetThreshold = offsetThreshold;
+    }
+
+    public float getOffsetThreshold() {
+        return offsetThreshold;
+    }
+
+    public void setAngleThreshold( float radians ) {
+        this.cosThreshold = FastMath.cos(radians);
+    }
+
+    public float getAngleThreshold() {
+        return FastMath.acos(cosThreshold);
+    }
+
+    /**
+     *  Returns the number of times the scattering has been calculated for
+     *  this object.
+     */
+    public int getEvaluationCount() {
+        return evaluationCount;
+    }
+
+    /**
+     *  Returns true if the materials are currently using the per-object
+     *  values.
+     */
+    public boolean isActive() {
+        return inScatterOverride.isEnabled();
+    }
+
+    @Override
+    public void setSpatial( Spatial spatial ) {
+        if( this.spatial != null ) {
+            this.spatial.removeMatParamOverride(inScatterOverride);
+            this.spatial.removeMatParamOverride(attenuationOverride);
+        }
+        super.setSpatial(spatial);
+        source = null;
+        setOverridesEnabled(false);
+        if( spatial != null ) {
+            spatial.addMatParamOverride(inScatterOverride);
+            spatial.addMatParamOverride(attenuationOverride);
+        }
+    }
+
+    private void setOverridesEnabled( boolean b ) {
+        inScatterOverride.setEnabled(b);
+        attenuationOverride.setEnabled(b);
+    }
+
+    @Override
+    protected void controlUpdate( float tpf ) {
+    }
+
+    @Override
+    protected void controlRender( RenderManager rm, ViewPort vp ) {
+        BoundingVolume bound = spatial.getWorldBound();
+        if( bound == null ) {
+            return;
+        }
+        Camera cam = vp.getCamera();
+        offset.set(bound.getCenter()).subtractLocal(cam.getLocation());
+        float distSq = offset.lengthSquared();
+        if( distSq < minDistance * minDistance ) {
+            setOverridesEnabled(false);
+            source = null;
+            return;
+        }
+
+        AtmosphericSnapshot current = parms.getSnapshot();
+        if( needsUpdate(current, distSq) ) {
+            lastOffset.set(offset);
+            source = current;
+            
+            // Same inputs as the shader: the scaled offset, unnormalized,
+            // and its length.
+            float planetScale = current.getGroundPlanetScale();
+            offset.multLocal(planetScale);
+            current.calculateGroundInAtmosphere(offset, offset.length(), 
+                                                cam.getLocation().y * planetScale, 
+                                                results);
+            evaluationCount++;
+        }
+        setOverridesEnabled(true);
+    }
+
+    protected boolean needsUpdate( AtmosphericSnapshot current, float distSq ) {
+        if( source == null ) {
+            return true;
+        }
+        float threshold = offsetThreshold * offsetThreshold * distSq;
+        if( offset.distanceSquared(lastOffset) > threshold ) {
+            return true;
+        }
+        if( current.getVersion() == source.getVersion() ) {
+            return false;
+        }
+        if( !current.hasSameAtmosphere(source) ) {
+            return true;
+        }
+        return current.sunCos(source) < cosThreshold;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx.sky;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.BaseAppState;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector3f;
+
+import com.simsilica.fx.LightingState;
+
+
+/**
+ *  Drives the LightingState's ambient light from the sky model of the
+ *  SkyState's AtmosphericParameters, so that the ambient follows the
+ *  sky through dawn, day, dusk and night.  The irradiance is integrated
+ *  incrementally by a SkyIrradiance over several frames and only when
+ *  the sun or the atmosphere has changed enough to matter.
+ *
+ *  <p>The original ambient color is restored when this state is
+ *  disabled.</p>
+ *
+ *  @author    Paul Speed
+ */
+public class SkyAmbientState extends BaseAppState {
+
+    private SkyIrradiance irradiance;
+    private AtmosphericParameters atmosphericParms;
+    private LightingState lighting;
+    private float ambientScale = 1;
+
+    private final ColorRGBA ambient = new ColorRGBA();
+    private final ColorRGBA originalAmbient = new ColorRGBA();
+
+    public SkyAmbientState() {
+        this(new SkyIrradiance());
+    }
+
+    public SkyAmbientState( SkyIrradiance irradiance ) {
+        this.irradiance = irradiance;
+    }
+
+    public SkyIrradiance getSkyIrradiance() {
+        return irradiance;
+    }
+
+    /**
+     *  Sets a scale applied to the calculated ambient before it is
+     *  passed to the LightingState.  Defaults to 1.
+     */
+    public void setAmbientScale( float f ) {
+        this.ambientScale = f;
+    }
+
+    public float getAmbientScale() {
+        return ambientScale;
+    }
+
+    /**
+     *  Returns the current spherical harmonics irradiance coefficients for
+     *  callers that want to pass them on to their own materials.
+     */
+    public Vector3f[] getCoefficients( Vector3f[] target ) {
+        return irradiance.getCoefficients(target);
+    }
+
+    @Override
+    protected void initialize( Application app ) {
+        lighting = getState(LightingState.class);
+        atmosphericParms = getState(SkyState.class).getAtmosphericParameters();
+    }
+
+    @Override
+    protected void cleanup( Application app ) {
+    }
+
+    @Override
+    protected void onEnable() {
+        originalAmbient.set(lighting.getAmbient());
+        
+        // The irradiance may not change again until the sun moves so
+        // put back the last result, if there is one, right away.
+        if( irradiance.getResultVersion() >= 0 ) {
+            applyAmbient();
+        }
+    }
+
+    @Override
+    protected void onDisable() {
+        lighting.setAmbient(originalAmbient);
+    }
+
+    @Override
+    public void update( float tpf ) {
+        if( irradiance.update(atmosphericParms.getSnapshot()) ) {
+            applyAmbient();
+        }
+    }
+    
+    protected void applyAmbient() {
+        irradiance.getAmbient(ambient);
+        ambient.r *= ambientScale;
+        ambient.g *= ambientScale;
+        ambient.b *= ambientScale;
+        lighting.setAmbient(ambient);
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx.sky;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.*;
+
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.texture.Image;
+import com.jme3.texture.Image.Format;
+import com.jme3.texture.Texture;
+import com.jme3.texture.TextureCubeMap;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+
+
+/**
+ *  Bakes the sky model of an AtmosphericSnapshot into a small RGB16F
+ *  cube map.  The result can be used as a cheap sky for low end hardware
+ *  or as an environment map for reflections.
+ *
+ *  <p>Baking happens on a background thread one face at a time.  Each 
+ *  update() call uploads a finished face, if there is one, and queues the
+ *  next.  A new pass starts when the atmosphere has changed or the sun has
+ *  moved more than the angle threshold since the last pass.  The very
+ *  first pass is done synchronously so that the cube map never shows up 
+ *  empty.</p>
+ *
+ *  <p>Directions below the horizon use the horizon color of the same
+ *  azimuth.</p>
+ *
+ *  @author    Paul Speed
+ */
+public class SkyCubeBaker {
+
+    static Logger log = LoggerFactory.getLogger(SkyCubeBaker.class);
+
+    private static final int BYTES_PER_PIXEL = 6;
+
+    private final int size;
+    private final Image image;
+    private final TextureCubeMap texture;
+    private final ExecutorService executor;
+    private float cosThreshold;
+
+    // Only touched by the worker while a job is outstanding and only
+    // touched by the update thread otherwise.
+    private final ByteBuffer scratch;
+
+    private AtmosphericSnapshot source;
+    private int nextFace = -1;
+    private Future<?> pending;
+    private int pendingFace;
+    private boolean hasContent;
+
+    /**
+     *  Creates a 64x64 per face baker that re-bakes when the sun moves more than
+     *  two degrees.
+     */
+    public SkyCubeBaker() {
+        this(64, 2 * FastMath.DEG_TO_RAD);
+    }
+
+    public SkyCubeBaker( int size, float angleThreshold ) {
+        this.size = size;
+        this.cosThreshold = FastMath.cos(angleThreshold);
+
+        ArrayList<ByteBuffer> faces = new ArrayList<ByteBuffer>(6);
+        for( int i = 0; i < 6; i++ ) {
+            faces.add(BufferUtils.createByteBuffer(size * size * BYTES_PER_PIXEL));
+        }
+        this.image = new Image(Format.RGB16F, size, size, 0, faces, ColorSpace.Linear);
+        this.texture = new TextureCubeMap(image);
+        texture.setMagFilter(Texture.MagFilter.Bilinear);
+        texture.setMinFilter(Texture.MinFilter.BilinearNoMipMaps);
+        texture.setWrap(Texture.WrapMode.EdgeClamp);
+
+        this.scratch = BufferUtils.createByteBuffer(size * size * BYTES_PER_PIXEL);
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread( Runnable r ) {
+                    Thread t = new Thread(r, "SkyCubeBaker");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+    }
+
+    public TextureCubeMap getTexture() {
+        return texture;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setAngleThreshold( float radians ) {
+        this.cosThreshold = FastMath.cos(radians);
+    }
+
+    public float getAngleThreshold() {
+        return FastMath.acos(cosThreshold);
+    }
+
+    /**
+     *  Returns true if a bake pass is in progress.
+     */
+    public boolean isBaking() {
+        return nextFace >= 0 || pending != null;
+    }
+
+    /**
+     *  Advances the progressive bake.  This should be called once per frame from
+     *  the render thread.  Returns true if a face of the cube map was updated.
+     */
+    public boolean update( AtmosphericSnapshot current ) {
+        if( !hasContent ) {
+            // Bake everything right now so there is something to see
+            source = current;
+            for( int face = 0; face < 6; face++ ) {
+                bakeFace(current, face, scratch);
+                uploadFace(face);
+            }
+            hasContent = true;
+            return true;
+        }
+
+        boolean updated = false;
+        if( pending != null ) {
+            if( !pending.isDone() ) {
+                return false;
+            }
+            try {
+                // Also guarantees we see the worker's writes
+                pending.get();
+                uploadFace(pendingFace);
+                updated = true;
+            } catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch( ExecutionException e ) {
+                log.error("Error baking sky face:" + pendingFace, e.getCause());
+            }
+            pending = null;
+        }
+
+        if( nextFace < 0 ) {
+            if( !needsRebake(current) ) {
+                return updated;
+            }
+            source = current;
+            nextFace = 0;
+        }
+
+        final AtmosphericSnapshot s = source;
+        final int face = nextFace;
+        pendingFace = face;
+        pending = executor.submit(new Runnable() {
+                public void run() {
+                    bakeFace(s, face, scratch);
+                }
+            });
+        nextFace++;
+        if( nextFace >= 6 ) {
+            nextFace = -1;
+        }
+        return updated;
+    }
+
+    /**
+     *  Stops the background thread.  The baker can't be used afterwards.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    protected boolean needsRebake( AtmosphericSnapshot current ) {
+        if( current.getVersion() == source.getVersion() ) {
+            return false;
+        }
+        if( !current.hasSameAtmosphere(source) ) {
+            return true;
+        }
+        return current.sunCos(source) < cosThreshold;
+    }
+
+    private void uploadFace( int face ) {
+        ByteBuffer data = image.getData(face);
+        data.clear();
+        scratch.clear();
+        data.put(scratch);
+        data.flip();
+        image.setUpdateNeeded();
+    }
+
+    /**
+     *  Bakes one face of the cube map into the target buffer using the standard
+     *  OpenGL face orientations: +X, -X, +Y, -Y, +Z, -Z.
+     */
+    protected void bakeFace( AtmosphericSnapshot s, int face, ByteBuffer target ) {
+        target.clear();
+        ColorRGBA color = new ColorRGBA();
+        float invSize = 2f / size;
+        for( int y = 0; y < size; y++ ) {
+            float tc = (y + 0.5f) * invSize - 1;
+            for( int x = 0; x < size; x++ ) {
+                float sc = (x + 0.5f) * invSize - 1;
+                float dx, dy, dz;
+                switch( face ) {
+                    case 0: dx = 1; dy = -tc; dz = -sc; break;
+                    case 1: dx = -1; dy = -tc; dz = sc; break;
+                    case 2: dx = sc; dy = 1; dz = tc; break;
+                    case 3: dx = sc; dy = -1; dz = -tc; break;
+                    case 4: dx = sc; dy = -tc; dz = 1; break;
+                    default: dx = -sc; dy = -tc; dz = -1; break;
+                }
+                float invLength = 1f / FastMath.sqrt(dx * dx + dy * dy + dz * dz);
+                dx *= invLength;
+                dy *= invLength;
+                dz *= invLength;
+
+                if( dy < 0 ) {
+                    // Use the horizon color below the horizon
+                    float len = FastMath.sqrt(dx * dx + dz * dz);
+                    if( len > 0 ) {
+                        dx /= len;
+                        dz /= len;
+                    } else {
+                        dx = 1;
+                    }
+                    dy = 0;
+                }
+                s.calculateSkyColor(dx, dy, dz, color);
+                target.putShort(FastMath.convertFloatToHalf(color.r));
+                target.putShort(FastMath.convertFloatToHalf(color.g));
+                target.putShort(FastMath.convertFloatToHalf(color.b));
+            }
+        }
+        target.flip();
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx.sky;
+
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+
+
+/**
+ *  Projects the sky model of an AtmosphericSnapshot onto 2nd order (9
+ *  coefficient) spherical harmonics and convolves it into irradiance.
+ *  The integration is spread out over several update() calls, evaluating
+ *  at most samplesPerUpdate directions each time.  This keeps the per-frame
+ *  cost bounded.
+ *
+ *  <p>A new pass only starts when the atmosphere parameters have changed
+ *  or the sun has moved more than the angle threshold since the last pass
+ *  started.  A pass in progress always runs to completion before a newer
+ *  snapshot is picked up.  That way a continuously moving sun still
+ *  produces a steady stream of results, at most one pass behind.</p>
+ *
+ *  <p>Directions below the horizon see the ground.  Its radiance is 
+ *  approximated as the horizon sky color in the same azimuth multiplied
+ *  by the ground albedo.</p>
+ *
+ *  @author    Paul Speed
+ */
+public class SkyIrradiance {
+
+    private static final int COEFFS = 9;
+
+    // Cosine lobe convolution factors per band
+    private static final float A0 = FastMath.PI;
+    private static final float A1 = FastMath.TWO_PI / 3f;
+    private static final float A2 = FastMath.PI / 4f;
+
+    private final float[] dirs;
+    private final int sampleCount;
+    private int samplesPerUpdate;
+    private float cosThreshold;
+    private ColorRGBA groundAlbedo = new ColorRGBA(0.3f, 0.3f, 0.3f, 1);
+
+    // The snapshot of the pass in progress or last finished
+    private AtmosphericSnapshot source;
+    private int next = -1;
+
+    // RGB interleaved coefficients
+    private final float[] work = new float[COEFFS * 3];
+    private final float[] irradiance = new float[COEFFS * 3];
+    private final float[] basis = new float[COEFFS];
+    private final ColorRGBA radiance = new ColorRGBA();
+    private long resultVersion = -1;
+
+    /**
+     *  Creates an irradiance integrator using 256 sample directions, 32 per
+     *  update, that restarts when the sun moves more than one degree.
+     */
+    public SkyIrradiance() {
+        this(256, 32, FastMath.DEG_TO_RAD);
+    }
+
+    public SkyIrradiance( int sampleCount, int samplesPerUpdate, float angleThreshold ) {
+        this.sampleCount = sampleCount;
+        this.samplesPerUpdate = samplesPerUpdate;
+        this.cosThreshold = FastMath.cos(angleThreshold);
+
+        // Evenly distribute the directions on a Fibonacci sphere
+        this.dirs = new float[sampleCount * 3];
+        float golden = FastMath.PI * (3 - FastMath.sqrt(5));
+        for( int i = 0; i < sampleCount; i++ ) {
+            float y = 1 - 2 * (i + 0.5f) / sampleCount;
+            float r = FastMath.sqrt(1 - y * y);
+            float phi = i * golden;
+            dirs[i * 3] = FastMath.cos(phi) * r;
+            dirs[i * 3 + 1] = y;
+            dirs[i * 3 + 2] = FastMath.sin(phi) * r;
+        }
+    }
+
+    public void setSamplesPerUpdate( int count ) {
+        this.samplesPerUpdate = Math.max(1, count);
+    }
+
+    public int getSamplesPerUpdate() {
+        return samplesPerUpdate;
+    }
+
+    public void setAngleThreshold( float radians ) {
+        this.cosThreshold = FastMath.cos(radians);
+    }
+
+    public float getAngleThreshold() {
+        return FastMath.acos(cosThreshold);
+    }
+
+    public void setGroundAlbedo( ColorRGBA color ) {
+        this.groundAlbedo.set(color);
+    }
+
+    public ColorRGBA getGroundAlbedo() {
+        return groundAlbedo;
+    }
+
+    /**
+     *  Returns the version of the snapshot that the current irradiance
+     *  result was calculated from or -1 if there is no result yet.
+     */
+    public long getResultVersion() {
+        return resultVersion;
+    }
+
+    /**
+     *  Returns true if a pass is currently in progress.
+     */
+    public boolean isIntegrating() {
+        return next >= 0;
+    }
+
+    /**
+     *  Advances the integration by up to samplesPerUpdate directions, starting
+     *  a new pass first if nothing is in progress and the current snapshot
+     *  differs enough from the last one.  Returns true if this call finished
+     *  a pass and a new irradiance result is available.
+     */
+    public boolean update( AtmosphericSnapshot current ) {
+        if( next < 0 ) {
+            if( !needsRefresh(current) ) {
+                return false;
+            }
+            source = current;
+            next = 0;
+            for( int i = 0; i < work.length; i++ ) {
+                work[i] = 0;
+            }
+        }
+
+        int end = Math.min(sampleCount, next + samplesPerUpdate);
+        for( int i = next; i < end; i++ ) {
+            accumulate(dirs[i * 3], dirs[i * 3 + 1], dirs[i * 3 + 2]);
+        }
+        next = end;
+
+        if( next < sampleCount ) {
+            return false;
+        }
+        finishPass();
+        return true;
+    }
+
+    /**
+     *  Integrates all of the sample directions for the specified snapshot
+     *  at once, abandoning any pass that was in progress.  For callers that
+     *  precompute irradiance for many snapshots up front.
+     */
+    public void integrate( AtmosphericSnapshot snapshot ) {
+        source = snapshot;
+        for( int i = 0; i < work.length; i++ ) {
+            work[i] = 0;
+        }
+        for( int i = 0; i < sampleCount; i++ ) {
+            accumulate(dirs[i * 3], dirs[i * 3 + 1], dirs[i * 3 + 2]);
+        }
+        finishPass();
+    }
+
+    private void finishPass() {
+        // Finish the pass: normalize the Monte Carlo estimate and convolve
+        // with the cosine lobe to go from radiance to irradiance
+        float weight = 4 * FastMath.PI / sampleCount;
+        for( int i = 0; i < COEFFS; i++ ) {
+            float a = i == 0 ? A0 : (i < 4 ? A1 : A2);
+            for( int c = 0; c < 3; c++ ) {
+                irradiance[i * 3 + c] = work[i * 3 + c] * weight * a;
+            }
+        }
+        resultVersion = source.getVersion();
+        next = -1;
+    }
+
+    protected boolean needsRefresh( AtmosphericSnapshot current ) {
+        if( source == null || resultVersion < 0 ) {
+            return true;
+        }
+        if( current.getVersion() == source.getVersion() ) {
+            return false;
+        }
+        if( !current.hasSameAtmosphere(source) ) {
+            return true;
+        }
+        return current.sunCos(source) < cosThreshold;
+    }
+
+    private void accumulate( float x, float y, float z ) {
+        if( y >= 0 ) {
+            source.calculateSkyColor(x, y, z, radiance);
+        } else {
+            // Look at the horizon in the same azimuth and reflect it off
+            // of the ground
+            float len = FastMath.sqrt(x * x + z * z);
+            if( len > 0 ) {
+                source.calculateSkyColor(x / len, 0, z / len, radiance);
+            } else {
+                source.calculateSkyColor(1, 0, 0, radiance);
+            }
+            radiance.r *= groundAlbedo.r;
+            radiance.g *= groundAlbedo.g;
+            radiance.b *= groundAlbedo.b;
+        }
+        evalBasis(x, y, z, basis);
+        for( int i = 0; i < COEFFS; i++ ) {
+            float b = basis[i];
+            work[i * 3] += radiance.r * b;
+            work[i * 3 + 1] += radiance.g * b;
+            work[i * 3 + 2] += radiance.b * b;
+        }
+    }
+
+    private static void evalBasis( float x, float y, float z, float[] result ) {
+        result[0] = 0.282095f;
+        result[1] = 0.488603f * y;
+        result[2] = 0.488603f * z;
+        result[3] = 0.488603f * x;
+        result[4] = 1.092548f * x * y;
+        result[5] = 1.092548f * y * z;
+        result[6] = 0.315392f * (3 * z * z - 1);
+        result[7] = 1.092548f * x * z;
+        result[8] = 0.546274f * (x * x - y * y);
+    }
+
+    /**
+     *  Copies the 9 RGB irradiance coefficients into the target, creating it
+     *  if necessary.  These are suitable for passing to a shader that evaluates
+     *  the standard 2nd order SH basis.
+     */
+    public Vector3f[] getCoefficients( Vector3f[] target ) {
+        if( target == null ) {
+            target = new Vector3f[COEFFS];
+        }
+        for( int i = 0; i < COEFFS; i++ ) {
+            if( target[i] == null ) {
+                target[i] = new Vector3f();
+            }
+            target[i].set(irradiance[i * 3], irradiance[i * 3 + 1], irradiance[i * 3 + 2]);
+        }
+        return target;
+    }
+
+    /**
+     *  Evaluates the irradiance for a surface with the specified unit normal.
+     */
+    public ColorRGBA getIrradiance( Vector3f normal, ColorRGBA target ) {
+        if( target == null ) {
+            target = new ColorRGBA(0, 0, 0, 1);
+        }
+        float r = 0, g = 0, b = 0;
+        float[] bs = basis;
+        evalBasis(normal.x, normal.y, normal.z, bs);
+        for( int i = 0; i < COEFFS; i++ ) {
+            r += irradiance[i * 3] * bs[i];
+            g += irradiance[i * 3 + 1] * bs[i];
+            b += irradiance[i * 3 + 2] * bs[i];
+        }
+        target.set(Math.max(0, r), Math.max(0, g), Math.max(0, b), 1);
+        return target;
+    }
+
+    /**
+     *  Returns an ambient color suitable for a jME AmbientLight.  This is the
+     *  irradiance seen by an upward facing surface divided by PI, such that a
+     *  uniformly lit sky of color c produces an ambient of c.
+     */
+    public ColorRGBA getAmbient( ColorRGBA target ) {
+        if( target == null ) {
+            target = new ColorRGBA(0, 0, 0, 1);
+        }
+
+        // Only the bands with a y term are non-zero straight up
+        // Y0 = 0.282095, Y1(up) = 0.488603, Y6(up) = 0.315392 * -1
+        // Y8(up) = 0.546274 * -1
+        float y0 = 0.282095f;
+        float y1 = 0.488603f;
+        float y6 = -0.315392f;
+        float y8 = -0.546274f;
+        float r = irradiance[0] * y0 + irradiance[3] * y1 + irradiance[18] * y6 + irradiance[24] * y8;
+        float g = irradiance[1] * y0 + irradiance[4] * y1 + irradiance[19] * y6 + irradiance[25] * y8;
+        float b = irradiance[2] * y0 + irradiance[5] * y1 + irradiance[20] * y6 + irradiance[26] * y8;
+        target.set(Math.max(0, r) / FastMath.PI, Math.max(0, g) / FastMath.PI, Math.max(0, b) / FastMath.PI, 1);
+        return target;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx.sky;
+
+import com.jme3.math.FastMath;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.control.AbstractControl;
+
+
+/**
+ *  Picks the LOD level of a sky geometry for each viewport that renders
+ *  it.  A fixed level can be set or the level can be chosen automatically
+ *  from the viewport's size so that low resolution render targets like
+ *  reflections and minimaps draw a cheaper sky.
+ *
+ *  <p>In automatic mode, each halving of the viewport height below the
+ *  reference height drops one LOD level.</p>
+ *
+ *  @author    Paul Speed
+ */
+public class SkyLodControl extends AbstractControl {
+
+    private int fixedLevel = -1;
+    private int referenceHeight = 720;
+
+    public SkyLodControl() {
+    }
+
+    /**
+     *  Sets a fixed LOD level to use for all viewports or -1 to pick the
+     *  level from the viewport size.  Defaults to -1.
+     */
+    public void setFixedLevel( int level ) {
+        this.fixedLevel = level;
+    }
+
+    public int getFixedLevel() {
+        return fixedLevel;
+    }
+
+    /**
+     *  Sets the viewport height at and above which the full detail level
+     *  is used in automatic mode.  Defaults to 720.
+     */
+    public void setReferenceHeight( int height ) {
+        this.referenceHeight = Math.max(1, height);
+    }
+
+    public int getReferenceHeight() {
+        return referenceHeight;
+    }
+
+    protected int selectLevel( ViewPort vp, int levelCount ) {
+        if( fixedLevel >= 0 ) {
+            return Math.min(fixedLevel, levelCount - 1);
+        }
+        int height = vp.getCamera().getHeight();
+        if( height >= referenceHeight || height <= 0 ) {
+            return 0;
+        }
+        int level = (int)FastMath.log((float)referenceHeight / height, 2);
+        return Math.min(level, levelCount - 1);
+    }
+
+    @Override
+    protected void controlUpdate( float tpf ) {
+    }
+
+    @Override
+    protected void controlRender( RenderManager rm, ViewPort vp ) {
+        if( !(spatial instanceof Geometry) ) {
+            return;
+        }
+        Geometry geom = (Geometry)spatial;
+        int levels = geom.getMesh().getNumLodLevels();
+        if( levels <= 1 ) {
+            return;
+        }
+        geom.setLodLevel(selectLevel(vp, levels));
+    }
+}
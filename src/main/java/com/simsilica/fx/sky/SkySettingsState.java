@@ -37,82 +37,252 @@
 package com.simsilica.fx.sky;
 
 import com.jme3.app.Application;
+import com.jme3.app.state.BaseAppState;
 import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
+import com.jme3.util.SafeArrayList;
 import com.simsilica.fx.LightingState;
+import com.simsilica.lemur.Checkbox;
+import com.simsilica.lemur.Container;
+import com.simsilica.lemur.DefaultRangedValueModel;
+import com.simsilica.lemur.Label;
+import com.simsilica.lemur.Slider;
+import com.simsilica.lemur.component.SpringGridLayout;
 import com.simsilica.lemur.core.VersionedReference;
-import com.simsilica.lemur.event.BaseAppState;
-import com.simsilica.lemur.props.PropertyPanel;
 
 
 /**
+ *  Presents a panel of sliders and checkboxes for the sky's atmospheric
+ *  parameters, the time of day, and the sky display options.  Each
+ *  setting is bound through a typed accessor instead of by reflection and
+ *  the widgets' versioned models are only checked for changes once per
+ *  frame.  All of the atmosphere edits made in a frame are committed
+ *  to the AtmosphericParameters as one batch.  That includes time of day
+ *  and orientation edits: the light direction they produce is published 
+ *  inside the batch even when the LightingState coalesces changes.
  *
+ *  <p>Changes made elsewhere are picked up selectively: each setting 
+ *  says what it follows, the atmosphere or the light direction, and is 
+ *  only re-read when that changes.  A day cycle moving the sun only 
+ *  re-reads the time and orientation, for example.  Value labels are 
+ *  only formatted when their value changed and the panel is attached
+ *  to the scene.</p>
  *
  *  @author    Paul Speed
  */
 public class SkySettingsState extends BaseAppState {
 
-    private AtmosphericParameters atmosphericParms;
+    /**
+     *  What a setting follows for changes made outside of the panel.
+     */
+    public enum Refresh {
+        /** Re-read when any atmospheric parameter other than the light direction changes. */
+        Atmosphere,
+        /** Re-read when the light direction changes. */
+        LightDirection,
+        /** Only re-read by refresh(), which is also called when the state is enabled. */
+        Manual
+    }
 
-    private float mieConstant;
-    private float rayleighConstant;
+    private AtmosphericParameters atmosphericParms;
+    private AtmosphericSnapshot atmosphereSnapshot;
+    private LightingState lighting;
 
     private VersionedReference<Vector3f> lightDir;
     
-    private PropertyPanel settings;
+    private Container settings;
+    private final SafeArrayList<FloatSetting> floats = new SafeArrayList<FloatSetting>(FloatSetting.class);
+    private final SafeArrayList<BooleanSetting> booleans = new SafeArrayList<BooleanSetting>(BooleanSetting.class);
 
     public SkySettingsState() {
     }
 
-    public PropertyPanel getSettings() {
+    /**
+     *  Returns the panel containing the settings' labels and widgets.
+     *  This is only available once the state is initialized.
+     */
+    public Container getSettings() {
         return settings;
     }
 
     public void setMieConstant( float f ) {
         atmosphericParms.setMieConstant(f / 10);
-        this.mieConstant = f / 10;
     }
     
     public float getMieConstant() {
-        return this.mieConstant * 10;
+        return atmosphericParms.getMieConstant() * 10;
     }
     
     public void setRayleighConstant( float f ) {
         atmosphericParms.setRayleighConstant(f / 10);
-        this.rayleighConstant = f / 10;
     }
     
     public float getRayleighConstant() {
-        return this.rayleighConstant * 10;
+        return atmosphericParms.getRayleighConstant() * 10;
+    }
+
+    /**
+     *  Adds a slider row to the settings panel that edits a float value
+     *  through the specified accessor and that is refreshed when the 
+     *  atmosphere changes.  Values set through the accessor during update() 
+     *  are part of the frame's atmosphere batch.
+     */
+    public void addFloatSetting( String name, FloatAccessor accessor, float min, float max, float step ) {
+        addFloatSetting(name, accessor, min, max, step, Refresh.Atmosphere);
+    }
+
+    /**
+     *  Adds a slider row to the settings panel that edits a float value
+     *  through the specified accessor and that is refreshed as specified.
+     *  Values set through the accessor during update() are part of the 
+     *  frame's atmosphere batch.
+     */
+    public void addFloatSetting( String name, FloatAccessor accessor, float min, float max, float step,
+                                 Refresh refresh ) {
+        FloatSetting setting = new FloatSetting(name, accessor, min, max, step, refresh);
+        floats.add(setting);
+        if( settings != null ) {
+            setting.attach(settings);
+        }
+    }
+
+    /**
+     *  Adds a checkbox row to the settings panel that edits a boolean value
+     *  through the specified accessor.  It is only refreshed manually.
+     */
+    public void addBooleanSetting( String name, BooleanAccessor accessor ) {
+        addBooleanSetting(name, accessor, Refresh.Manual);
+    }
+
+    /**
+     *  Adds a checkbox row to the settings panel that edits a boolean value
+     *  through the specified accessor and that is refreshed as specified.
+     */
+    public void addBooleanSetting( String name, BooleanAccessor accessor, Refresh refresh ) {
+        BooleanSetting setting = new BooleanSetting(name, accessor, refresh);
+        booleans.add(setting);
+        if( settings != null ) {
+            setting.attach(settings);
+        }
+    }
+
+    /**
+     *  Resets all of the widgets from their accessors' current values.
+     */
+    public void refresh() {
+        for( FloatSetting setting : floats.getArray() ) {
+            setting.refresh();
+        }
+        for( BooleanSetting setting : booleans.getArray() ) {
+            setting.refresh();
+        }
+        if( atmosphericParms != null ) {
+            atmosphereSnapshot = atmosphericParms.getSnapshot();
+        }
+    }
+
+    /**
+     *  Resets the widgets of the settings that follow the specified 
+     *  kind of change.
+     */
+    protected void refresh( Refresh type ) {
+        for( FloatSetting setting : floats.getArray() ) {
+            if( setting.refreshType == type ) {
+                setting.refresh();
+            }
+        }
+        for( BooleanSetting setting : booleans.getArray() ) {
+            if( setting.refreshType == type ) {
+                setting.refresh();
+            }
+        }
     }
     
     @Override
     protected void initialize( Application app ) {
     
-        lightDir = getState(LightingState.class).getLightDirRef();
+        lighting = getState(LightingState.class);
+        lightDir = lighting.getLightDirRef();
 
         atmosphericParms = getState(SkyState.class).getAtmosphericParameters();
+
+        final AtmosphericParameters parms = atmosphericParms;
+        final LightingState lighting = this.lighting;
+        final SkyState sky = getState(SkyState.class);
         
-        mieConstant = atmosphericParms.getMieConstant();
-        rayleighConstant = atmosphericParms.getRayleighConstant(); 
+        settings = new Container(new SpringGridLayout(), "glass");
         
-        settings = new PropertyPanel("glass");
-        settings.addFloatProperty("Intensity", atmosphericParms, "lightIntensity", 0, 100, 1);
-        settings.addFloatProperty("Sky Exposure", atmosphericParms, "skyExposure", 0, 10, 0.1f);
-        settings.addFloatProperty("Rayleigh Constant(x10)", this, "rayleighConstant", 0, 1, 0.001f);
-        settings.addFloatProperty("Scale Depth", atmosphericParms, "averageDensityScale", 0, 1, 0.001f);
-        settings.addFloatProperty("Mie Constant(x10)", this, "mieConstant", 0, 1, 0.001f);
-        settings.addFloatProperty("MPA Factor", atmosphericParms, "miePhaseAsymmetryFactor", -1.5f, 0, 0.001f);
-        settings.addFloatProperty("Flattening", atmosphericParms, "skyFlattening", 0, 1, 0.01f);
-        settings.addFloatProperty("Red Wavelength (nm)", atmosphericParms, "redWavelength", 0, 1, 0.001f);
-        settings.addFloatProperty("Green Wavelength (nm)", atmosphericParms, "greenWavelength", 0, 1, 0.001f);
-        settings.addFloatProperty("Blue Wavelength (nm)", atmosphericParms, "blueWavelength", 0, 1, 0.001f);
-
-        settings.addFloatProperty("Time", getState(LightingState.class), "timeOfDay", -0.1f, 1.1f, 0.01f);
-        settings.addFloatProperty("Orientation", getState(LightingState.class), "orientation", 0f, FastMath.TWO_PI, 0.01f);
+        addFloatSetting("Intensity", new FloatAccessor() {
+                public float get() { return parms.getLightIntensity(); }
+                public void set( float f ) { parms.setLightIntensity(f); }
+            }, 0, 100, 1);
+        addFloatSetting("Sky Exposure", new FloatAccessor() {
+                public float get() { return parms.getSkyExposure(); }
+                public void set( float f ) { parms.setSkyExposure(f); }
+            }, 0, 10, 0.1f);
+        addFloatSetting("Rayleigh Constant(x10)", new FloatAccessor() {
+                public float get() { return getRayleighConstant(); }
+                public void set( float f ) { setRayleighConstant(f); }
+            }, 0, 1, 0.001f);
+        addFloatSetting("Scale Depth", new FloatAccessor() {
+                public float get() { return parms.getAverageDensityScale(); }
+                public void set( float f ) { parms.setAverageDensityScale(f); }
+            }, 0, 1, 0.001f);
+        addFloatSetting("Mie Constant(x10)", new FloatAccessor() {
+                public float get() { return getMieConstant(); }
+                public void set( float f ) { setMieConstant(f); }
+            }, 0, 1, 0.001f);
+        addFloatSetting("MPA Factor", new FloatAccessor() {
+                public float get() { return parms.getMiePhaseAsymmetryFactor(); }
+                public void set( float f ) { parms.setMiePhaseAsymmetryFactor(f); }
+            }, -1.5f, 0, 0.001f);
+        addFloatSetting("Flattening", new FloatAccessor() {
+                public float get() { return parms.getSkyFlattening(); }
+                public void set( float f ) { parms.setSkyFlattening(f); }
+            }, 0, 1, 0.01f);
+        addFloatSetting("Red Wavelength (nm)", new FloatAccessor() {
+                public float get() { return parms.getRedWavelength(); }
+                public void set( float f ) { parms.setRedWavelength(f); }
+            }, 0, 1, 0.001f);
+        addFloatSetting("Green Wavelength (nm)", new FloatAccessor() {
+                public float get() { return parms.getGreenWavelength(); }
+                public void set( float f ) { parms.setGreenWavelength(f); }
+            }, 0, 1, 0.001f);
+        addFloatSetting("Blue Wavelength (nm)", new FloatAccessor() {
+                public float get() { return parms.getBlueWavelength(); }
+                public void set( float f ) { parms.setBlueWavelength(f); }
+            }, 0, 1, 0.001f);
+
+        addFloatSetting("Time", new FloatAccessor() {
+                public float get() { return lighting.getTimeOfDay(); }
+                public void set( float f ) { lighting.setTimeOfDay(f); }
+            }, -0.1f, 1.1f, 0.01f, Refresh.LightDirection);
+        addFloatSetting("Orientation", new FloatAccessor() {
+                public float get() { return lighting.getOrientation(); }
+                public void set( float f ) { lighting.setOrientation(f); }
+            }, 0f, FastMath.TWO_PI, 0.01f, Refresh.LightDirection);
         
-        settings.addBooleanProperty("Flat Shaded", getState(SkyState.class), "flatShaded");
-        settings.addBooleanProperty("Show Ground Disc", getState(SkyState.class), "showGroundDisc");
+        addBooleanSetting("Flat Shaded", new BooleanAccessor() {
+                public boolean get() { return sky.isFlatShaded(); }
+                public void set( boolean b ) { sky.setFlatShaded(b); }
+            });
+        addBooleanSetting("Show Ground Disc", new BooleanAccessor() {
+                public boolean get() { return sky.getShowGroundDisc(); }
+                public void set( boolean b ) { sky.setShowGroundDisc(b); }
+            });
+
+        // Settings added before initialization still need their rows        
+        for( FloatSetting setting : floats.getArray() ) {
+            if( !setting.isAttached() ) {
+                setting.attach(settings);
+            }
+        }
+        for( BooleanSetting setting : booleans.getArray() ) {
+            if( !setting.isAttached() ) {
+                setting.attach(settings);
+            }
+        }
+        atmosphereSnapshot = atmosphericParms.getSnapshot();
     }
 
     @Override
@@ -120,10 +290,182 @@ public class SkySettingsState extends BaseAppState {
     }
 
     @Override
-    protected void enable() {
+    protected void onEnable() {
+        refresh();
     }
 
     @Override
-    protected void disable() {
+    protected void onDisable() {
+    }
+
+    @Override
+    public void update( float tpf ) {
+        boolean batching = false;
+        for( FloatSetting setting : floats.getArray() ) {
+            if( !setting.needsApply() ) {
+                continue;
+            }
+            if( !batching ) {
+                atmosphericParms.beginBatch();
+                batching = true;
+            }
+            setting.apply();
+        }
+        for( BooleanSetting setting : booleans.getArray() ) {
+            if( setting.needsApply() ) {
+                setting.apply();
+            }
+        }
+        if( batching ) {
+            // A coalescing LightingState would otherwise publish a time
+            // or orientation edit later in the frame as a second commit
+            lighting.publishPending();
+            atmosphericParms.commitBatch();
+            atmosphereSnapshot = atmosphericParms.getSnapshot();
+            lightDir.update();
+        } else {
+            // Nothing was edited here so check for changes made elsewhere.
+            // Every light direction change is also a new snapshot so only
+            // the rest of the atmosphere is compared.
+            AtmosphericSnapshot current = atmosphericParms.getSnapshot();
+            if( current != atmosphereSnapshot ) {
+                if( !current.hasSameAtmosphere(atmosphereSnapshot) ) {
+                    refresh(Refresh.Atmosphere);
+                }
+                atmosphereSnapshot = current;
+            }
+            if( lightDir.update() ) {
+                refresh(Refresh.LightDirection);
+            }
+        }
+
+        // Only pay for formatting when someone can see the labels
+        if( settings.getParent() != null ) {
+            for( FloatSetting setting : floats.getArray() ) {
+                setting.updateLabel();
+            }
+        }
+    }
+
+    /**
+     *  Typed get/set access to a float setting.
+     */
+    public interface FloatAccessor {
+        public float get();
+        public void set( float f );
+    }
+
+    /**
+     *  Typed get/set access to a boolean setting.
+     */
+    public interface BooleanAccessor {
+        public boolean get();
+        public void set( boolean b );
+    }
+
+    private static class FloatSetting {
+        private final String name;
+        private final FloatAccessor accessor;
+        private final float step;
+        private final Refresh refreshType;
+        private final DefaultRangedValueModel model;
+        private final VersionedReference<Double> ref;
+        private Label value;
+        private boolean labelDirty;
+
+        public FloatSetting( String name, FloatAccessor accessor, float min, float max, float step,
+                             Refresh refreshType ) {
+            this.name = name;
+            this.accessor = accessor;
+            this.step = step;
+            this.refreshType = refreshType;
+            this.model = new DefaultRangedValueModel(min, max, accessor.get());
+            this.ref = model.createReference();
+        }
+
+        public boolean isAttached() {
+            return value != null;
+        }
+
+        public void attach( Container panel ) {
+            Slider slider = new Slider(model, "glass");
+            slider.setDelta(step);
+            panel.addChild(new Label(name, "glass"));
+            panel.addChild(slider, 1);
+            value = panel.addChild(new Label("", "glass"), 2);
+            labelDirty = true;
+        }
+
+        public boolean needsApply() {
+            return ref.needsUpdate();
+        }
+
+        public void apply() {
+            ref.update();
+            accessor.set((float)model.getValue());
+            labelDirty = true;
+        }
+
+        public void refresh() {
+            float f = accessor.get();
+            if( (float)model.getValue() != f ) {
+                model.setValue(f);
+                labelDirty = true;
+            }
+            ref.update();
+        }
+
+        public void updateLabel() {
+            if( !labelDirty || value == null ) {
+                return;
+            }
+            labelDirty = false;
+            value.setText(String.format("%.3f", model.getValue()));
+        }
+    }
+
+    private static class BooleanSetting {
+        private final String name;
+        private final BooleanAccessor accessor;
+        private final Refresh refreshType;
+        private final Checkbox checkbox;
+        private final VersionedReference<Boolean> ref;
+        private boolean attached;
+
+        public BooleanSetting( String name, BooleanAccessor accessor, Refresh refreshType ) {
+            this.name = name;
+            this.accessor = accessor;
+            this.refreshType = refreshType;
+            this.checkbox = new Checkbox("", "glass");
+            checkbox.setChecked(accessor.get());
+            this.ref = checkbox.getModel().createReference();
+        }
+
+        public boolean isAttached() {
+            return attached;
+        }
+
+        public void attach( Container panel ) {
+            panel.addChild(new Label(name, "glass"));
+            panel.addChild(checkbox, 1);
+            attached = true;
+        }
+
+        public boolean needsApply() {
+            return ref.needsUpdate();
+        }
+
+        public void apply() {
+            ref.update();
+            accessor.set(checkbox.isChecked());
+        }
+
+        public void refresh() {
+            boolean b = accessor.get();
+            if( checkbox.isChecked() != b ) {
+                checkbox.setChecked(b);
+            }
+            ref.update();
+        }
     }
 }
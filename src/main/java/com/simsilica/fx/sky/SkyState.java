@@ -50,11 +50,16 @@ import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial.CullHint;
 import com.jme3.scene.shape.Sphere;
+import com.jme3.texture.TextureCubeMap;
 
+import com.simsilica.fx.LightDirectionListener;
+import com.simsilica.fx.FxMetrics;
+import com.simsilica.fx.LightingModel;
 import com.simsilica.fx.LightingState;
 import com.simsilica.fx.geom.TruncatedDome;
+import com.simsilica.fx.geom.TruncatedDome.SliceDistribution;
+import com.simsilica.fx.geom.TruncatedDomeCache;
 import com.simsilica.lemur.GuiGlobals;
-import com.simsilica.lemur.core.VersionedReference;
 
 
 /**
@@ -64,24 +69,69 @@ import com.simsilica.lemur.core.VersionedReference;
  */
 public class SkyState extends BaseAppState {
 
+    /**
+     *  The different ways the non-flat sky can be rendered.
+     */
+    public enum SkyMode {
+        /**
+         *  Evaluates atmospheric scattering per vertex on the GPU every frame.
+         */
+        Scattered,
+        
+        /**
+         *  Displays a cube map baked on a background thread from the 
+         *  atmospheric parameters.  Re-baked a face at a time when the sun
+         *  or atmosphere changes.
+         */
+        BakedCubeMap,
+        
+        /**
+         *  Displays the sky dome with scattering colors calculated on the CPU
+         *  per vertex and drawn with an unshaded vertex color material.  
+         *  Re-baked a band of slices at a time when the sun or atmosphere 
+         *  changes.
+         */
+        BakedVertexColors
+    }
+
     private Node rootNode;
 
     private Geometry sky;
     private Geometry sun;
     private float domeInnerRadius = 2000;
     private float domeOuterRadius = 2000 * 1.025f;
+    
+    // Slices spaced at equal view angles with the same angular step
+    // as the radials.  This matches the worst case error of the old 
+    // 50 parabolic slices with about half the vertexes.
+    private int domeRadials = 100;
+    private int domeSlices = TruncatedDome.getSliceCount(FastMath.TWO_PI / domeRadials);
+    
+    // Extra dome tessellations held in the cache for quick switching
+    private int[] reservedRadials = new int[0];
+    private TruncatedDome[] reservedDomes = new TruncatedDome[0];
+    
+    private int sunZSamples = 6;
+    private int sunRadialSamples = 12;
  
     private Geometry groundDisc;
     private boolean showGround = true;
  
     private boolean flat = false;
+    private SkyMode skyMode = SkyMode.Scattered;
+    
+    private Geometry bakedSky;
+    private SkyCubeBaker cubeBaker;
+    
+    private TruncatedDome skyDome;
+    private TruncatedDome groundDome;
+    private Geometry vertexSky;
+    private SkyVertexBaker vertexBaker;
     
     // Colors used for flat shading   
     private ColorRGBA skyColor;
     private ColorRGBA sunColor;
  
-    // Color calculated from current atmospheric parms
-    private ColorRGBA lightingColor = new ColorRGBA(1, 1, 1, 1);
  
     private Material flatMaterial;
     private Material atmosphericMaterial;
@@ -91,7 +141,12 @@ public class SkyState extends BaseAppState {
     
     private AtmosphericParameters atmosphericParms;
     
-    private VersionedReference<Vector3f> lightDir;
+    private AtmosphereModel atmosphere;
+    private LightingState lighting;
+    private SunObserver sunObserver = new SunObserver();
+    
+    private SkyLodControl skyLod = new SkyLodControl();
+    private SkyLodControl groundLod = new SkyLodControl();
 
     public SkyState() {
         this(null, false);
@@ -119,9 +174,15 @@ public class SkyState extends BaseAppState {
         this.domeInnerRadius = 2000;
         this.domeOuterRadius = 2000 * 1.025f;
  
-        atmosphericParms = new AtmosphericParameters();
-        atmosphericParms.setSkyDomeRadius(domeOuterRadius);
-        atmosphericParms.setPlanetRadius(earthRadius * 0.01f);         
+        atmosphere = new AtmosphereModel(domeOuterRadius, earthRadius * 0.01f);
+        atmosphericParms = atmosphere.getAtmosphericParameters();
+    }
+ 
+    /**
+     *  Returns the render-free model that this state displays.
+     */   
+    public AtmosphereModel getAtmosphereModel() {
+        return atmosphere;
     }
 
     public AtmosphericParameters getAtmosphericParameters() {
@@ -147,6 +208,45 @@ public class SkyState extends BaseAppState {
     public boolean isFlatShaded() {
         return flat;
     }
+ 
+    /**
+     *  Sets how the sky is rendered when it is not flat shaded.
+     */   
+    public void setSkyMode( SkyMode mode ) {
+        if( mode == null ) {
+            throw new IllegalArgumentException("Sky mode cannot be null");
+        }
+        if( this.skyMode == mode ) {
+            return;
+        }
+        this.skyMode = mode;
+        resetMaterials();
+    }
+    
+    public SkyMode getSkyMode() {
+        return skyMode;
+    }
+ 
+    /**
+     *  Returns the baker that renders the sky model into a cube map, creating
+     *  it if necessary.  Once created, it is kept up to date every frame even
+     *  if the sky mode is not BakedCubeMap so that it can be used as an 
+     *  environment map.  The baker is shut down when this state is detached
+     *  and a new one is created the next time it is needed.
+     */   
+    public SkyCubeBaker getSkyCubeBaker() {
+        if( cubeBaker == null ) {
+            cubeBaker = new SkyCubeBaker();
+        }
+        return cubeBaker;
+    }
+    
+    /**
+     *  Convenience method that returns the baked sky cube map. 
+     */
+    public TextureCubeMap getSkyCubeMap() {
+        return getSkyCubeBaker().getTexture();
+    }
     
     public void setShowGroundDisc( boolean b ) {
         if( showGround == b ) {
@@ -159,6 +259,92 @@ public class SkyState extends BaseAppState {
     public boolean getShowGroundDisc() {
         return showGround;
     }
+ 
+    /**
+     *  Set to true to have the ground disc and the other ground materials
+     *  look up their scattering in a GroundScatteringLut instead of calculating
+     *  it per vertex.  The table is regenerated by this state as the sun
+     *  and camera elevation change.
+     */   
+    public void setUseGroundScatteringLut( boolean b ) {
+        if( getUseGroundScatteringLut() == b ) {
+            return;
+        }
+        atmosphericParms.setGroundScatteringLut(b ? new GroundScatteringLut() : null);
+    }
+    
+    public boolean getUseGroundScatteringLut() {
+        return atmosphericParms.getGroundScatteringLut() != null;
+    }
+    
+    /**
+     *  Sets the number of radial segments of the sky dome and ground disc.
+     *  The number of slices follows from it so that slices and radials have
+     *  the same angular step.  This can be changed at runtime and the new 
+     *  meshes come from the TruncatedDomeCache.  Defaults to 100.
+     */
+    public void setDomeRadials( int radials ) {
+        radials = Math.max(3, radials);
+        if( this.domeRadials == radials ) {
+            return;
+        }
+        this.domeRadials = radials;
+        this.domeSlices = TruncatedDome.getSliceCount(FastMath.TWO_PI / radials);
+        if( sky != null ) {
+            resetDomes();
+        }
+    }
+    
+    public int getDomeRadials() {
+        return domeRadials;
+    }
+    
+    /**
+     *  Keeps the dome meshes for the specified radial counts in the 
+     *  TruncatedDomeCache while this state is attached so that switching
+     *  to one of them with setDomeRadials() doesn't have to build a new 
+     *  dome and its LOD levels on the render thread.  Replaces any previously 
+     *  reserved counts and calling it with no counts releases them all.  
+     *  FrameBudgetState uses this to reserve the domes of all of its steps.
+     */
+    public void reserveDomeRadials( int... radials ) {
+        this.reservedRadials = radials.clone();
+        if( isInitialized() ) {
+            acquireReservedDomes();
+        }
+    }
+    
+    public int[] getReservedDomeRadials() {
+        return reservedRadials.clone();
+    }
+    
+    public int getDomeSlices() {
+        return domeSlices;
+    }
+ 
+    /**
+     *  Sets the tessellation of the sun sphere.  Defaults to 6 z samples
+     *  and 12 radial samples.
+     */
+    public void setSunSamples( int zSamples, int radialSamples ) {
+        if( this.sunZSamples == zSamples && this.sunRadialSamples == radialSamples ) {
+            return;
+        }
+        this.sunZSamples = zSamples;
+        this.sunRadialSamples = radialSamples;
+        if( sun != null ) {
+            ((Sphere)sun.getMesh()).updateGeometry(sunZSamples, sunRadialSamples, 50);
+            sun.updateModelBound();
+        }
+    }
+    
+    public int getSunZSamples() {
+        return sunZSamples;
+    }
+    
+    public int getSunRadialSamples() {
+        return sunRadialSamples;
+    }
     
     public Material getGroundDiscMaterial() {
         return groundMaterial;
@@ -169,7 +355,49 @@ public class SkyState extends BaseAppState {
     }
 
     public ColorRGBA getLightingColor() {
-        return lightingColor;
+        return atmosphere.getLightingColor();
+    }
+ 
+    /**
+     *  Sets an optional precomputed timeline that is used to look up the
+     *  sun direction and lighting color (and the ambient if the timeline 
+     *  includes it) instead of recalculating them every time the sun moves.  
+     *  Set to null to go back to direct calculation.
+     */
+    public void setDayCycleTimeline( DayCycleTimeline timeline ) {
+        atmosphere.setDayCycleTimeline(timeline);
+    }
+    
+    public DayCycleTimeline getDayCycleTimeline() {
+        return atmosphere.getDayCycleTimeline();
+    }
+ 
+    /**
+     *  Sets the LOD level of the sky dome and ground disc, 0 being full detail,
+     *  or -1 to pick the level from the size of each viewport that renders them.
+     *  Defaults to -1.
+     */
+    public void setSkyLodLevel( int level ) {
+        skyLod.setFixedLevel(level);
+        groundLod.setFixedLevel(level);
+    }
+    
+    public int getSkyLodLevel() {
+        return skyLod.getFixedLevel();
+    }
+ 
+    /**
+     *  Sets the viewport height at and above which the automatic LOD selection
+     *  uses full detail.  Each halving of the height below this drops a level.
+     *  Defaults to 720.
+     */
+    public void setSkyLodReferenceHeight( int height ) {
+        skyLod.setReferenceHeight(height);
+        groundLod.setReferenceHeight(height);
+    }
+    
+    public int getSkyLodReferenceHeight() {
+        return skyLod.getReferenceHeight();
     }
     
     protected void resetMaterials() {
@@ -186,6 +414,118 @@ public class SkyState extends BaseAppState {
                 groundMaterial.setBoolean("UseScattering", true);
             }
         }
+        resetSky();
+    }
+ 
+    protected Geometry getVisibleSky() {
+        if( flat ) {
+            return sky;
+        }
+        switch( skyMode ) {
+            case BakedCubeMap:
+                return getBakedSky();
+            case BakedVertexColors:
+                return getVertexSky();
+            case Scattered:
+            default:
+                return sky;
+        }
+    }
+    
+    protected void resetSky() {
+        if( sky == null || !isEnabled() ) {
+            return;
+        }
+        Geometry visible = getVisibleSky();
+        for( Geometry geom : new Geometry[] { sky, bakedSky, vertexSky } ) {
+            if( geom != null && geom != visible ) {
+                geom.removeFromParent();
+            }
+        }
+        rootNode.attachChild(visible);
+    }
+ 
+    protected Geometry getVertexSky() {
+        if( vertexSky == null ) {
+            vertexBaker = new SkyVertexBaker(skyDome);
+            vertexSky = new Geometry("VertexSky", vertexBaker.getMesh());
+            vertexSky.setQueueBucket(Bucket.Sky);
+            vertexSky.setCullHint(CullHint.Never);
+            vertexSky.setModelBound(new BoundingSphere(Float.POSITIVE_INFINITY, Vector3f.ZERO));
+            
+            Material mat = new Material(getApplication().getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
+            mat.setBoolean("VertexColor", true);
+            vertexSky.setMaterial(mat);
+        }
+        return vertexSky;
+    }
+ 
+    protected Geometry getBakedSky() {
+        if( bakedSky == null ) {
+            // A simple low-poly sphere is enough since all of the detail
+            // is in the cube map
+            Sphere sphere = new Sphere(10, 10, 10, false, true);
+            bakedSky = new Geometry("BakedSky", sphere);
+            bakedSky.setQueueBucket(Bucket.Sky);
+            bakedSky.setCullHint(CullHint.Never);
+            bakedSky.setModelBound(new BoundingSphere(Float.POSITIVE_INFINITY, Vector3f.ZERO));
+            
+            Material mat = new Material(getApplication().getAssetManager(), "Common/MatDefs/Misc/Sky.j3md");
+            mat.setTexture("Texture", getSkyCubeMap());
+            
+            // The sphere's normals point inward and we want the view direction
+            mat.setVector3("NormalScale", new Vector3f(-1, -1, -1));
+            bakedSky.setMaterial(mat);
+        }
+        return bakedSky;
+    }
+    
+    /**
+     *  Acquires a dome with the specified number of radials and the
+     *  matching number of slices from the TruncatedDomeCache.
+     */
+    protected TruncatedDome acquireDome( int radials ) {
+        int slices = TruncatedDome.getSliceCount(FastMath.TWO_PI / radials);
+        return TruncatedDomeCache.acquire(domeInnerRadius, domeOuterRadius, radials, slices, 
+                                          true, SliceDistribution.ViewAngle);
+    }
+    
+    protected void acquireReservedDomes() {
+        // Acquire the new ones before releasing the old ones so that
+        // domes in both sets stay cached
+        TruncatedDome[] old = reservedDomes;
+        reservedDomes = new TruncatedDome[reservedRadials.length];
+        for( int i = 0; i < reservedRadials.length; i++ ) {
+            reservedDomes[i] = acquireDome(Math.max(3, reservedRadials[i]));
+        }
+        releaseDomes(old);
+    }
+    
+    private static void releaseDomes( TruncatedDome[] domes ) {
+        for( TruncatedDome dome : domes ) {
+            TruncatedDomeCache.release(dome);
+        }
+    }
+    
+    protected void resetDomes() {
+        TruncatedDome oldSky = skyDome;
+        TruncatedDome oldGround = groundDome;
+        
+        skyDome = acquireDome(domeRadials);
+        sky.setMesh(skyDome);
+        sky.setModelBound(new BoundingSphere(Float.POSITIVE_INFINITY, Vector3f.ZERO));        
+        groundDome = acquireDome(domeRadials);
+        groundDisc.setMesh(groundDome);
+        
+        if( vertexSky != null ) {
+            // The baker shares the dome's buffers so it needs to start over
+            vertexBaker = new SkyVertexBaker(skyDome);
+            vertexSky.setMesh(vertexBaker.getMesh());
+            vertexSky.setModelBound(new BoundingSphere(Float.POSITIVE_INFINITY, Vector3f.ZERO));
+        }
+        
+        TruncatedDomeCache.release(oldSky);
+        TruncatedDomeCache.release(oldGround);
     }
     
     protected void resetGround() {
@@ -207,18 +547,18 @@ public class SkyState extends BaseAppState {
             rootNode = ((SimpleApplication)app).getRootNode();
         }
         
-        lightDir = getState(LightingState.class).getLightDirRef();
-        atmosphericParms.setLightDirection(lightDir.get());
+        lighting = getState(LightingState.class);
+        atmosphere.setLightingModel(lighting.getLightingModel());
         
  
         // Add a sun sphere
-        Sphere orb = new Sphere(6, 12, 50);
+        Sphere orb = new Sphere(sunZSamples, sunRadialSamples, 50);
         sun = new Geometry("Sun", orb);        
         Material mat = GuiGlobals.getInstance().createMaterial(sunColor, false).getMaterial(); 
         sun.setMaterial(mat);
-        sun.move(lightDir.get().mult(-900));
+        sun.move(lighting.getLightDirection().mult(-900));
 
-        TruncatedDome skyDome = new TruncatedDome(domeInnerRadius, domeOuterRadius, 100, 50, true);
+        skyDome = acquireDome(domeRadials);
         sky = new Geometry("Sky", skyDome); 
         sky.setModelBound(new BoundingSphere(Float.POSITIVE_INFINITY, Vector3f.ZERO));        
         flatMaterial = GuiGlobals.getInstance().createMaterial(skyColor, false).getMaterial();
@@ -229,14 +569,17 @@ public class SkyState extends BaseAppState {
         sky.setMaterial(atmosphericMaterial); 
         sky.setQueueBucket(Bucket.Sky);
         sky.setCullHint(CullHint.Never);
+        sky.addControl(skyLod);
         
         AssetManager assets = app.getAssetManager();
         
-        TruncatedDome ground = new TruncatedDome(domeInnerRadius, domeOuterRadius, 100, 50, true);
-        groundDisc = new Geometry("ground", ground);
+        // The ground disc is the same dome flipped over
+        groundDome = acquireDome(domeRadials);
+        groundDisc = new Geometry("ground", groundDome);
         groundDisc.rotate(FastMath.PI, 0, 0);
         groundDisc.setQueueBucket(Bucket.Sky);
         groundDisc.setCullHint(CullHint.Never);
+        groundDisc.addControl(groundLod);
         groundMaterial = mat = new Material(assets, "MatDefs/GroundAtmospherics.j3md");
         mat.setColor("GroundColor", groundColor);
         mat.setBoolean("FollowCamera", true);
@@ -246,31 +589,84 @@ public class SkyState extends BaseAppState {
         groundDisc.setMaterial(mat);
         //groundDisc.setMaterial(GuiGlobals.getInstance().createMaterial(ColorRGBA.Red, false).getMaterial());
         atmosphericParms.applyGroundParameters(mat, true);
-           
-        atmosphericParms.calculateGroundColor(ColorRGBA.White, Vector3f.UNIT_X, 1f, 0, lightingColor);
+        
+        acquireReservedDomes();
+        
+        lighting.addLightDirectionListener(sunObserver);
     }
 
     @Override
     protected void cleanup( Application app ) {
+        lighting.removeLightDirectionListener(sunObserver);
+        atmosphere.setLightingModel(null);
+        
+        // The vertex baked sky shares the sky dome's buffers which are
+        // destroyed when the last reference is released
+        if( vertexSky != null ) {
+            vertexSky.removeFromParent();
+            vertexSky = null;
+            vertexBaker = null;
+        }
+        TruncatedDomeCache.release(skyDome);
+        TruncatedDomeCache.release(groundDome);
+        skyDome = null;
+        groundDome = null;
+        
+        // The geometries still reference the released meshes so they 
+        // are recreated if the state is attached again
+        sky.removeControl(skyLod);
+        groundDisc.removeControl(groundLod);
+        sky = null;
+        groundDisc = null;
+        sun = null;
+        atmosphericParms.removeGroundMaterial(groundMaterial);
+        groundMaterial = null;
+        releaseDomes(reservedDomes);
+        reservedDomes = new TruncatedDome[0];
+        if( cubeBaker != null ) {
+            cubeBaker.shutdown();
+            cubeBaker = null;
+        }
+        
+        // The baked sky displays the old baker's texture
+        bakedSky = null;
     }
 
     @Override
     public void update( float tpf ) {
-        if( lightDir.update() ) {
-            sun.setLocalTranslation(lightDir.get().mult(-900));
-            atmosphericParms.setLightDirection(lightDir.get());
-            atmosphericParms.calculateGroundColor(ColorRGBA.White, Vector3f.UNIT_X, 1f, 0, lightingColor);
-        }
+        long start = FxMetrics.start();
+        FxMetrics.increment(FxMetrics.Counter.SkyUpdates);
+        
+        // Pick up any atmosphere changes handed over from other threads
+        atmosphere.update();
         
         if( flat ) {
             sky.setLocalTranslation(getApplication().getCamera().getLocation());
         }
+ 
+        if( vertexSky != null && vertexSky.getParent() != null ) {
+            // Unlike the scattering shader, the unshaded material doesn't
+            // ignore the camera translation
+            vertexSky.setLocalTranslation(getApplication().getCamera().getLocation());
+            if( vertexBaker.update(atmosphericParms.getSnapshot()) ) {
+                FxMetrics.increment(FxMetrics.Counter.SkyBakes);
+            }
+        }
+        
+        if( cubeBaker != null ) {
+            if( cubeBaker.update(atmosphericParms.getSnapshot()) ) {
+                FxMetrics.increment(FxMetrics.Counter.SkyBakes);
+            }
+        }
+        
+        if( atmosphericParms.updateGroundScatteringLut(getApplication().getCamera().getLocation().y) ) {
+            FxMetrics.increment(FxMetrics.Counter.SkyBakes);
+        }
+        FxMetrics.stop(FxMetrics.Timer.SkyUpdate, start);
     }
 
     @Override
     protected void onEnable() {
-        rootNode.attachChild(sky);
-        
         resetMaterials();
         resetGround();
     }
@@ -278,6 +674,19 @@ public class SkyState extends BaseAppState {
     @Override
     protected void onDisable() {
         sky.removeFromParent();
+        if( bakedSky != null ) {
+            bakedSky.removeFromParent();
+        }
+        if( vertexSky != null ) {
+            vertexSky.removeFromParent();
+        }
         groundDisc.removeFromParent();
+    }
+    
+    private class SunObserver implements LightDirectionListener {
+        @Override
+        public void lightDirectionChanged( LightingModel source, Vector3f direction ) {
+            sun.setLocalTranslation(direction.x * -900, direction.y * -900, direction.z * -900);
+        }
     }    
 }
@@ -0,0 +1,190 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx.sky;
+
+import java.nio.FloatBuffer;
+
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.util.BufferUtils;
+
+import com.simsilica.fx.geom.TruncatedDome;
+
+
+/**
+ *  Calculates the atmospheric sky color for each vertex of a sky
+ *  TruncatedDome on the CPU and keeps it in a vertex color buffer so
+ *  that the sky can be drawn with a plain unshaded vertex color material.
+ *
+ *  <p>The baked mesh shares the dome's position and index buffers and
+ *  only adds its own color buffer.  Re-baking happens incrementally, 
+ *  slicesPerUpdate rings of the dome per update() call.  It only happens
+ *  when the atmosphere has changed or the sun has moved more than the
+ *  angle threshold since the last bake started.</p>
+ *
+ *  @author    Paul Speed
+ */
+public class SkyVertexBaker {
+
+    private final TruncatedDome dome;
+    private final Mesh mesh;
+    private final VertexBuffer colors;
+    private final int vertexCount;
+    private final int ringSize;
+    private int slicesPerUpdate;
+    private float cosThreshold;
+
+    private AtmosphericSnapshot source;
+    private int next = -1;
+    private final ColorRGBA color = new ColorRGBA();
+
+    /**
+     *  Creates a baker that bakes 5 slices per update and re-bakes
+     *  when the sun moves more than half a degree.
+     */
+    public SkyVertexBaker( TruncatedDome dome ) {
+        this(dome, 5, 0.5f * FastMath.DEG_TO_RAD);
+    }
+
+    public SkyVertexBaker( TruncatedDome dome, int slicesPerUpdate, float angleThreshold ) {
+        this.dome = dome;
+        this.slicesPerUpdate = Math.max(1, slicesPerUpdate);
+        this.cosThreshold = FastMath.cos(angleThreshold);
+        this.vertexCount = dome.getVertexCount();
+        this.ringSize = dome.getRadials() + 1;
+
+        this.mesh = new Mesh();
+        mesh.setBuffer(dome.getBuffer(Type.Position));
+        mesh.setBuffer(dome.getBuffer(Type.Index));
+        FloatBuffer fb = BufferUtils.createFloatBuffer(vertexCount * 4);
+        mesh.setBuffer(Type.Color, 4, fb);
+        this.colors = mesh.getBuffer(Type.Color);
+        mesh.updateBound();
+        mesh.updateCounts();
+    }
+
+    /**
+     *  Returns the vertex colored mesh that shares the dome's geometry.
+     */
+    public Mesh getMesh() {
+        return mesh;
+    }
+
+    public TruncatedDome getDome() {
+        return dome;
+    }
+
+    public void setSlicesPerUpdate( int count ) {
+        this.slicesPerUpdate = Math.max(1, count);
+    }
+
+    public int getSlicesPerUpdate() {
+        return slicesPerUpdate;
+    }
+
+    public void setAngleThreshold( float radians ) {
+        this.cosThreshold = FastMath.cos(radians);
+    }
+
+    public float getAngleThreshold() {
+        return FastMath.acos(cosThreshold);
+    }
+
+    public boolean isBaking() {
+        return next >= 0;
+    }
+
+    /**
+     *  Bakes the next band of slices, starting a new bake first if none is
+     *  in progress and the snapshot has changed enough.  The very first bake 
+     *  is done all at once.  Returns true if any colors changed.
+     */
+    public boolean update( AtmosphericSnapshot current ) {
+        if( next < 0 ) {
+            if( !needsRebake(current) ) {
+                return false;
+            }
+            boolean first = source == null;
+            source = current;
+            next = 0;
+            if( first ) {
+                bake(0, vertexCount);
+                next = -1;
+                return true;
+            }
+        }
+
+        int end = Math.min(vertexCount, next + ringSize * slicesPerUpdate);
+        bake(next, end);
+        next = end < vertexCount ? end : -1;
+        return true;
+    }
+
+    protected boolean needsRebake( AtmosphericSnapshot current ) {
+        if( source == null ) {
+            return true;
+        }
+        if( current.getVersion() == source.getVersion() ) {
+            return false;
+        }
+        if( !current.hasSameAtmosphere(source) ) {
+            return true;
+        }
+        return current.sunCos(source) < cosThreshold;
+    }
+
+    private void bake( int start, int end ) {
+        FloatBuffer pos = (FloatBuffer)dome.getBuffer(Type.Position).getData();
+        FloatBuffer fb = (FloatBuffer)colors.getData();
+        for( int i = start; i < end; i++ ) {
+            float x = pos.get(i * 3);
+            float y = pos.get(i * 3 + 1);
+            float z = pos.get(i * 3 + 2);
+            float invLength = 1f / FastMath.sqrt(x * x + y * y + z * z);
+            source.calculateSkyColor(x * invLength, y * invLength, z * invLength, color);
+            fb.put(i * 4, color.r);
+            fb.put(i * 4 + 1, color.g);
+            fb.put(i * 4 + 2, color.b);
+            fb.put(i * 4 + 3, 1);
+        }
+        colors.setUpdateNeeded();
+    }
+}
@@ -1,14 +1,10 @@
 #define ATTENUATION
 //#define HQ_ATTENUATION
 
+#import "Common/ShaderLib/Instancing.glsllib"
 #import "Common/ShaderLib/Skinning.glsllib"
 #import "MatDefs/VertScattering.glsllib"
 
-uniform mat4 g_WorldViewProjectionMatrix;
-uniform mat4 g_WorldViewMatrix;
-uniform mat4 g_WorldMatrix;
-uniform mat3 g_NormalMatrix;
-uniform mat4 g_ViewMatrix;
 uniform vec3 g_CameraPosition;
 
 uniform vec4 m_Ambient;
@@ -56,9 +52,6 @@ varying vec3 lightVec;
 #endif
 
 #ifdef USE_REFLECTION
-    uniform vec3 g_CameraPosition;
-    uniform mat4 g_WorldMatrix;
-
     uniform vec3 m_FresnelParams;
     varying vec4 refVec;
 
@@ -67,17 +60,17 @@ varying vec3 lightVec;
      * Input:
      * attribute inPosition
      * attribute inNormal
-     * uniform g_WorldMatrix
+     * instance or uniform world transform
      * uniform g_CameraPosition
      *
      * Output:
      * varying refVec
      */
     void computeRef(in vec4 modelSpacePos){
-        vec3 worldPos = (g_WorldMatrix * modelSpacePos).xyz;
+        vec3 worldPos = TransformWorld(modelSpacePos).xyz;
 
         vec3 I = normalize( g_CameraPosition - worldPos  ).xyz;
-        vec3 N = normalize( (g_WorldMatrix * vec4(inNormal, 0.0)).xyz );
+        vec3 N = normalize( TransformWorldNormal(inNormal) );
 
         refVec.xyz = reflect(I, N);
         refVec.w   = m_FresnelParams.x + m_FresnelParams.y * pow(1.0 + dot(I, N), m_FresnelParams.z);
@@ -152,18 +145,18 @@ void main(){
    #endif
 
    #ifdef USE_SCATTERING
-        vec4 wPos = g_WorldMatrix * modelSpacePos;
+        vec4 wPos = TransformWorld(modelSpacePos);
         calculateVertexGroundScattering(wPos.xyz, g_CameraPosition);
    #endif
 
-   gl_Position = g_WorldViewProjectionMatrix * modelSpacePos;
+   gl_Position = TransformWorldViewProjection(modelSpacePos);
    texCoord = inTexCoord;
    #ifdef SEPARATE_TEXCOORD
       texCoord2 = inTexCoord2;
    #endif
 
-   vec3 wvPosition = (g_WorldViewMatrix * modelSpacePos).xyz;
-   vec3 wvNormal  = normalize(g_NormalMatrix * modelSpaceNorm);
+   vec3 wvPosition = TransformWorldView(modelSpacePos).xyz;
+   vec3 wvNormal  = normalize(TransformNormal(modelSpaceNorm));
    vec3 viewDir = normalize(-wvPosition);
   
        //vec4 lightColor = g_LightColor[gl_InstanceID];
@@ -176,7 +169,7 @@ void main(){
    vec4 lightColor = g_LightColor;
 
    #if defined(NORMALMAP) && !defined(VERTEX_LIGHTING)
-     vec3 wvTangent = normalize(g_NormalMatrix * modelSpaceTan);
+     vec3 wvTangent = normalize(TransformNormal(modelSpaceTan));
      vec3 wvBinormal = cross(wvNormal, wvTangent);
 
      mat3 tbnMat = mat3(wvTangent, wvBinormal * -inTangent.w,wvNormal);
@@ -195,7 +188,7 @@ void main(){
      lightComputeDir(wvPosition, lightColor, wvLightPos, vLightDir);
 
      #ifdef V_TANGENT
-        vNormal = normalize(g_NormalMatrix * inTangent.xyz);
+        vNormal = normalize(TransformNormal(inTangent.xyz));
         vNormal = -cross(cross(vLightDir.xyz, vNormal), vNormal);
      #endif
    #endif
@@ -26,6 +26,7 @@ varying vec3 vBackDirection;
 varying vec4 vRayleighColor;
 varying vec4 vMieColor;
 
+// Must match AtmosphericParameters.SHADER_SAMPLE_COUNT
 const int nSamples = 2;
 const float fSamples = 2.0;
 
@@ -0,0 +1,283 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+/**
+ *  Drives the FrameBudgetGovernor with a simulated clock to check its
+ *  degrade and improve delays, cooldown, hysteresis, rejection of 
+ *  long frames, and clocks that start out negative.
+ *
+ *  @author    Paul Speed
+ */
+public class FrameBudgetGovernorTest {
+
+    private static final long MS = 1000000L;
+    private static final long SECOND = 1000 * MS;
+
+    private FrameBudgetGovernor governor;
+    private final List<FrameBudgetGovernor.Decision> decisions = new ArrayList<FrameBudgetGovernor.Decision>();
+    private long time;
+
+    @Before
+    public void setUp() {
+        // 60 FPS: over budget above 18.3 ms, headroom below 12.5 ms
+        governor = new FrameBudgetGovernor(1 / 60f);
+        governor.addFrameBudgetListener(new FrameBudgetListener() {
+            @Override
+            public void stepChanged( FrameBudgetGovernor source, FrameBudgetGovernor.Decision decision ) {
+                assertSame(governor, source);
+                decisions.add(decision);
+            }
+        });
+        time = 1000 * SECOND;
+        governor.update(time);
+    }
+
+    /**
+     *  Runs frames of the specified length until the specified amount
+     *  of time has passed.
+     */
+    private void run( long frame, long duration ) {
+        long end = time + duration;
+        while( time < end ) {
+            time += frame;
+            governor.update(time);
+        }
+    }
+
+    /**
+     *  Runs frames of the specified length until the step changes and
+     *  returns how long that took.  Fails if it doesn't change within
+     *  the limit.
+     */
+    private long runUntilChange( long frame, long limit ) {
+        long start = time;
+        int step = governor.getStep();
+        while( governor.getStep() == step ) {
+            assertTrue("No step change within:" + limit, time - start < limit);
+            time += frame;
+            governor.update(time);
+        }
+        return time - start;
+    }
+
+    @Test
+    public void testDegrade() {
+        long elapsed = runUntilChange(30 * MS, 5 * SECOND);
+        assertEquals(1, governor.getStep());
+
+        // The first sample starts the over budget period and then it 
+        // has to last the degrade delay
+        assertTrue("Degraded after:" + elapsed, elapsed >= 530 * MS && elapsed <= 560 * MS);
+
+        assertEquals(1, decisions.size());
+        FrameBudgetGovernor.Decision decision = decisions.get(0);
+        assertTrue(decision.isDegrade());
+        assertEquals(0, decision.getFromStep());
+        assertEquals(1, decision.getToStep());
+        assertEquals(time, decision.getTime());
+        assertEquals(0.030f, decision.getAverageFrameTime(), 0.0001f);
+
+        // The cooldown keeps the next step from coming before the new 
+        // settings could have had an effect and then the over budget
+        // period starts over
+        elapsed = runUntilChange(30 * MS, 5 * SECOND);
+        assertEquals(2, governor.getStep());
+        assertTrue("Degraded again after:" + elapsed, elapsed >= 1500 * MS && elapsed <= 1530 * MS);
+
+        // And it stops at the max step
+        run(30 * MS, 20 * SECOND);
+        assertEquals(governor.getMaxStep(), governor.getStep());
+        assertEquals(governor.getMaxStep(), decisions.size());
+    }
+
+    @Test
+    public void testImprove() {
+        run(30 * MS, 2500 * MS);
+        assertEquals(2, governor.getStep());
+        decisions.clear();
+
+        // The average has to drop below the lower threshold and then
+        // stay there for the longer improve delay
+        long elapsed = runUntilChange(5 * MS, 10 * SECOND);
+        assertEquals(1, governor.getStep());
+        assertTrue("Improved after:" + elapsed, elapsed >= 3 * SECOND && elapsed < 4 * SECOND);
+
+        assertEquals(1, decisions.size());
+        assertFalse(decisions.get(0).isDegrade());
+        assertEquals(2, decisions.get(0).getFromStep());
+        assertEquals(1, decisions.get(0).getToStep());
+
+        // Cooldown and then the improve delay
+        elapsed = runUntilChange(5 * MS, 10 * SECOND);
+        assertEquals(0, governor.getStep());
+        assertTrue("Improved again after:" + elapsed, elapsed >= 4 * SECOND && elapsed <= 4 * SECOND + 5 * MS);
+
+        // Nothing better than full quality
+        run(5 * MS, 10 * SECOND);
+        assertEquals(0, governor.getStep());
+        assertEquals(2, decisions.size());
+    }
+
+    @Test
+    public void testJitterInsideBandDoesNotChange() {
+        // Frames alternate on either side of the target but the average
+        // stays between the thresholds
+        for( int i = 0; i < 2000; i++ ) {
+            time += (i % 2 == 0 ? 10 : 24) * MS;
+            governor.update(time);
+        }
+        assertEquals(0, governor.getStep());
+        assertTrue(decisions.isEmpty());
+        assertEquals(0.017f, governor.getAverageFrameTime(), 0.002f);
+    }
+
+    @Test
+    public void testShortSpikesDoNotDegrade() {
+        // Over budget for less than the degrade delay, then back to
+        // normal long enough to reset the over budget period
+        for( int i = 0; i < 10; i++ ) {
+            run(40 * MS, 300 * MS);
+            run(10 * MS, 700 * MS);
+        }
+        assertEquals(0, governor.getStep());
+        assertTrue(decisions.isEmpty());
+    }
+
+    @Test
+    public void testShortHeadroomDoesNotImprove() {
+        run(30 * MS, 600 * MS);
+        assertEquals(1, governor.getStep());
+
+        // Headroom shorter than the improve delay, interrupted by frames
+        // that are in the band
+        for( int i = 0; i < 10; i++ ) {
+            run(5 * MS, 2 * SECOND);
+            run(16 * MS, SECOND);
+        }
+        assertEquals(1, governor.getStep());
+        assertEquals(1, decisions.size());
+    }
+
+    @Test
+    public void testLongFramesAreIgnored() {
+        run(16 * MS, SECOND);
+        float average = governor.getAverageFrameTime();
+
+        // A paused window or loading hitch
+        for( int i = 0; i < 10; i++ ) {
+            time += 2 * SECOND;
+            assertFalse(governor.update(time));
+            assertEquals(average, governor.getAverageFrameTime(), 0);
+        }
+        assertEquals(0, governor.getStep());
+        assertTrue(decisions.isEmpty());
+
+        // Right at the limit is still sampled
+        time += 250 * MS;
+        governor.update(time);
+        assertTrue(governor.getAverageFrameTime() > average);
+    }
+
+    @Test
+    public void testResetForgetsHistory() {
+        run(30 * MS, 2 * SECOND);
+        assertTrue(governor.getStep() > 0);
+
+        governor.reset();
+        assertEquals(0, governor.getStep());
+        assertEquals(-1, governor.getAverageFrameTime(), 0);
+
+        // The first update after the reset only records the time
+        time += 10 * SECOND;
+        assertFalse(governor.update(time));
+        assertEquals(-1, governor.getAverageFrameTime(), 0);
+    }
+
+    @Test
+    public void testNegativeTimes() {
+        // System.nanoTime() can be negative and the clock can cross 0
+        // while the governor is running
+        governor.reset();
+        time = -2 * SECOND;
+        assertFalse(governor.update(time));
+
+        long elapsed = runUntilChange(30 * MS, 5 * SECOND);
+        assertEquals(1, governor.getStep());
+        assertTrue("Degraded after:" + elapsed, elapsed >= 530 * MS && elapsed <= 560 * MS);
+        assertTrue(time < 0);
+        assertEquals(0.030f, governor.getAverageFrameTime(), 0.0001f);
+
+        // The cooldown started at a negative time and ends at a positive one
+        elapsed = runUntilChange(30 * MS, 5 * SECOND);
+        assertEquals(2, governor.getStep());
+        assertTrue("Degraded again after:" + elapsed, elapsed >= 1500 * MS && elapsed <= 1530 * MS);
+        assertTrue(time > 0);
+
+        // Cooldown and then the improve delay
+        elapsed = runUntilChange(5 * MS, 10 * SECOND);
+        assertEquals(1, governor.getStep());
+        assertTrue("Improved after:" + elapsed, elapsed >= 4 * SECOND && elapsed <= 4 * SECOND + 5 * MS);
+        assertEquals(3, decisions.size());
+    }
+
+    @Test
+    public void testMaxStepClampNotifies() {
+        run(30 * MS, 7 * SECOND);
+        assertEquals(4, governor.getStep());
+        decisions.clear();
+
+        governor.setMaxStep(2);
+        assertEquals(2, governor.getStep());
+        assertEquals(1, decisions.size());
+        assertEquals(4, decisions.get(0).getFromStep());
+        assertEquals(2, decisions.get(0).getToStep());
+        assertEquals(time, decisions.get(0).getTime());
+
+        // Raising the max doesn't change the step
+        governor.setMaxStep(6);
+        assertEquals(2, governor.getStep());
+        assertEquals(1, decisions.size());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import com.simsilica.fx.sky.AtmosphericParameters;
+
+
+/**
+ *  Checks that FxMetricsState leaves the global metrics setup the way it
+ *  found it and that turning metrics on picks up the current gauge values.
+ *
+ *  @author    Paul Speed
+ */
+public class FxMetricsStateTest {
+
+    private HeadlessApplication app;
+    private FxMetricsState state;
+
+    @Before
+    public void setUp() {
+        FxMetrics.setEnabled(false);
+        app = new HeadlessApplication();
+        state = new FxMetricsState();
+    }
+
+    @After
+    public void tearDown() {
+        FxMetrics.setEnabled(false);
+    }
+
+    private void attach() {
+        app.getStateManager().attach(state);
+        app.step(0.016f);
+        assertTrue(FxMetrics.isEnabled());
+        assertTrue(app.getAppProfiler() instanceof FxMetricsProfiler);
+    }
+
+    private void detach() {
+        app.getStateManager().detach(state);
+        app.step(0.016f);
+    }
+
+    @Test
+    public void testTurnsMetricsOffAgain() {
+        attach();
+        detach();
+        assertFalse(FxMetrics.isEnabled());
+        assertNull(app.getAppProfiler());
+    }
+
+    @Test
+    public void testLeavesMetricsOnIfTheyWere() {
+        FxMetrics.setEnabled(true);
+        FxMetricsProfiler profiler = FxMetricsProfiler.install(app);
+        attach();
+        assertSame(profiler, app.getAppProfiler());
+        detach();
+        assertTrue(FxMetrics.isEnabled());
+        assertSame(profiler, app.getAppProfiler());
+    }
+
+    @Test
+    public void testEnableReseedsMaterialGauge() {
+        // Whatever other tests have left alive
+        FxMetrics.setEnabled(true);
+        FxMetrics.endFrame();
+        long base = FxMetrics.getCount(FxMetrics.Counter.AtmosphereMaterials);
+        FxMetrics.setEnabled(false);
+
+        // Added while metrics were off so nothing has counted it
+        AtmosphericParameters parms = new AtmosphericParameters();
+        parms.getSkyMaterial(app.getAssetManager());
+
+        attach();
+        FxMetrics.endFrame();
+        assertEquals(base + 1, FxMetrics.getCount(FxMetrics.Counter.AtmosphereMaterials));
+
+        // Resetting while on counts them again instead of dropping them
+        FxMetrics.reset();
+        FxMetrics.endFrame();
+        assertEquals(base + 1, FxMetrics.getCount(FxMetrics.Counter.AtmosphereMaterials));
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx;
+
+import java.io.IOException;
+import java.net.URL;
+
+import com.jme3.app.SimpleApplication;
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetLoadException;
+import com.jme3.asset.AssetLoader;
+import com.jme3.asset.AssetLocator;
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.asset.plugins.UrlAssetInfo;
+import com.jme3.font.plugins.BitmapFontLoader;
+import com.jme3.material.plugins.J3MLoader;
+import com.jme3.renderer.Camera;
+import com.jme3.shader.plugins.GLSLLoader;
+import com.jme3.system.NullContext;
+import com.jme3.texture.Image;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+
+import com.simsilica.lemur.GuiGlobals;
+
+
+/**
+ *  A SimpleApplication that is never started but that has what the 
+ *  app states need to be attached and updated in a test: a headless
+ *  context, a camera, an asset manager that finds the class path assets,
+ *  and Lemur's GuiGlobals in headless mode.  Tests drive it one frame
+ *  at a time with step().
+ *
+ *  @author    Paul Speed
+ */
+public class HeadlessApplication extends SimpleApplication {
+
+    public HeadlessApplication() {
+        super((com.jme3.app.state.AppState[])null);
+        this.context = new NullContext();
+        this.cam = new Camera(640, 480);
+        this.assetManager = createAssetManager();
+        GuiGlobals.initialize(this);
+    }
+
+    /**
+     *  Creates an asset manager with just what the materials need.  The 
+     *  default config needs the jme3-desktop system delegate which isn't
+     *  available to the tests.
+     */
+    public static AssetManager createAssetManager() {
+        DesktopAssetManager assets = new DesktopAssetManager(false);
+        assets.registerLocator("/", ClassLoaderLocator.class);
+        assets.registerLoader(J3MLoader.class, "j3md", "j3m");
+        assets.registerLoader(GLSLLoader.class, "vert", "frag", "glsl", "glsllib");
+        assets.registerLoader(BitmapFontLoader.class, "fnt");
+        assets.registerLoader(BlankImageLoader.class, "png", "jpg");
+        return assets;
+    }
+
+    @Override
+    public void simpleInitApp() {
+    }
+
+    /**
+     *  Runs the app states and the logical scene update for one frame.
+     */
+    public void step( float tpf ) {
+        stateManager.update(tpf);
+        rootNode.updateLogicalState(tpf);
+        rootNode.updateGeometricState();
+    }
+
+    /**
+     *  Stands in for the desktop image loaders.  Nothing is rendered so 
+     *  every image is a single white texel.
+     */
+    public static class BlankImageLoader implements AssetLoader {
+        @Override
+        public Object load( AssetInfo info ) {
+            Image image = new Image(Image.Format.RGBA8, 1, 1, BufferUtils.createByteBuffer(4), ColorSpace.sRGB);
+            image.getData(0).put(new byte[] { -1, -1, -1, -1 }).flip();
+            return image;
+        }
+    }
+
+    /**
+     *  Finds assets on the test's class path, both this library's and the
+     *  jME core's.
+     */
+    public static class ClassLoaderLocator implements AssetLocator {
+        @Override
+        public void setRootPath( String rootPath ) {
+        }
+
+        @Override
+        public AssetInfo locate( AssetManager manager, AssetKey key ) {
+            String name = key.getName();
+            if( name.startsWith("/") ) {
+                // Lemur loads its icons by absolute path
+                name = name.substring(1);
+            }
+            URL url = ClassLoaderLocator.class.getClassLoader().getResource(name);
+            if( url == null ) {
+                return null;
+            }
+            try {
+                return UrlAssetInfo.create(manager, key, url);
+            } catch( IOException e ) {
+                throw new AssetLoadException("Error opening:" + url, e);
+            }
+        }
+    }
+}
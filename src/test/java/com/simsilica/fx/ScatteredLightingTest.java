@@ -0,0 +1,113 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetManager;
+import com.jme3.material.Material;
+import com.jme3.material.TechniqueDef;
+import com.jme3.material.TechniqueDef.LightMode;
+import com.jme3.renderer.RenderManager;
+import com.jme3.system.NullRenderer;
+
+
+/**
+ *  Loads ScatteredLighting.j3md headlessly and checks that the Default
+ *  technique follows the render manager's preferred light mode.
+ *
+ *  @author    Paul Speed
+ */
+public class ScatteredLightingTest {
+
+    private AssetManager assets;
+
+    @Before
+    public void setUp() {
+        assets = HeadlessApplication.createAssetManager();
+    }
+
+    private TechniqueDef selectDefault( LightMode lightMode ) {
+        Material m = new Material(assets, "MatDefs/ScatteredLighting.j3md");
+        m.setBoolean("UseScattering", true);
+        RenderManager rm = new RenderManager(new NullRenderer());
+        rm.setPreferredLightMode(lightMode);
+        m.selectTechnique(TechniqueDef.DEFAULT_TECHNIQUE_NAME, rm);
+        return m.getActiveTechnique().getDef();
+    }
+
+    private void assertShadersLoad( TechniqueDef def ) {
+        for( String name : def.getShaderProgramNames().values() ) {
+            // Also resolves the shader's imports
+            Object source = assets.loadAsset(new AssetKey<Object>(name));
+            assertNotNull(name, source);
+        }
+    }
+
+    @Test
+    public void testSinglePass() {
+        TechniqueDef def = selectDefault(LightMode.SinglePass);
+        assertEquals(LightMode.SinglePass, def.getLightMode());
+        assertTrue(def.getShaderProgramNames().toString(), 
+                   def.getShaderProgramNames().containsValue("MatDefs/SPScatteredLighting.vert"));
+        assertTrue(def.getShaderProgramNames().toString(), 
+                   def.getShaderProgramNames().containsValue("MatDefs/SPScatteredLighting.frag"));
+        assertShadersLoad(def);
+
+        // QualityState's LowQuality override has to reach the single pass
+        // shaders.  HighQuality is what single pass already does.
+        assertEquals("LOW_QUALITY", def.getShaderParamDefine("LowQuality"));
+        assertNull(def.getShaderParamDefine("HighQuality"));
+        for( String name : def.getShaderProgramNames().values() ) {
+            String source = (String)assets.loadAsset(new AssetKey<Object>(name));
+            assertTrue(name, source.contains("LOW_QUALITY"));
+        }
+    }
+
+    @Test
+    public void testMultiPass() {
+        TechniqueDef def = selectDefault(LightMode.MultiPass);
+        assertEquals(LightMode.MultiPass, def.getLightMode());
+        assertTrue(def.getShaderProgramNames().toString(), 
+                   def.getShaderProgramNames().containsValue("MatDefs/ScatteredLighting.vert"));
+        assertTrue(def.getShaderProgramNames().toString(), 
+                   def.getShaderProgramNames().containsValue("MatDefs/ScatteredLighting.frag"));
+        assertShadersLoad(def);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx.geom;
+
+import java.nio.FloatBuffer;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import com.jme3.math.FastMath;
+import com.jme3.scene.VertexBuffer.Type;
+
+import com.simsilica.fx.geom.TruncatedDome.SliceDistribution;
+
+
+/**
+ *  Checks the view angle slice distribution against the original 
+ *  parabolic one.
+ *
+ *  @author    Paul Speed
+ */
+public class TruncatedDomeTest {
+
+    private static final float INNER_RADIUS = 2000;
+    private static final float OUTER_RADIUS = 2000 * 1.025f;
+    private static final int RADIALS = 100;
+
+    // The SkyState's dome before the view angle distribution
+    private static final int PARABOLIC_SLICES = 50;
+
+    @Test
+    public void testSliceCount() {
+        assertEquals(25, TruncatedDome.getSliceCount(FastMath.TWO_PI / RADIALS));
+        assertEquals(90, TruncatedDome.getSliceCount(FastMath.DEG_TO_RAD));
+        
+        // Never fewer than 2
+        assertEquals(2, TruncatedDome.getSliceCount(FastMath.PI));
+    }
+
+    @Test
+    public void testViewAngleReducesVertexCount() {
+        TruncatedDome parabolic = new TruncatedDome(INNER_RADIUS, OUTER_RADIUS, RADIALS, PARABOLIC_SLICES, 
+                                                    true, SliceDistribution.Parabolic);
+        int slices = TruncatedDome.getSliceCount(FastMath.TWO_PI / RADIALS);
+        TruncatedDome viewAngle = new TruncatedDome(INNER_RADIUS, OUTER_RADIUS, RADIALS, slices, 
+                                                    true, SliceDistribution.ViewAngle);
+
+        assertEquals((RADIALS + 1) * PARABOLIC_SLICES + 1, parabolic.getVertexCount());
+        assertEquals((RADIALS + 1) * slices + 1, viewAngle.getVertexCount());
+
+        // About half of the vertexes and triangles...
+        assertTrue("Vertex count " + viewAngle.getVertexCount() + " vs " + parabolic.getVertexCount(),
+                   viewAngle.getVertexCount() <= parabolic.getVertexCount() / 2 + 1);
+        assertTrue(viewAngle.getTriangleCount() < parabolic.getTriangleCount());
+
+        // ...for a worst case view angle step that is no worse
+        float parabolicStep = maxElevationStep(parabolic);
+        float viewAngleStep = maxElevationStep(viewAngle);
+        assertTrue("Max step " + viewAngleStep + " vs " + parabolicStep, viewAngleStep <= parabolicStep);
+        assertEquals(FastMath.HALF_PI / slices, viewAngleStep, 0.01f);
+    }
+
+    /**
+     *  Returns the largest elevation angle between adjacent slices as seen
+     *  from the eye point at the center of the dome's base.
+     */
+    private static float maxElevationStep( TruncatedDome dome ) {
+        FloatBuffer pos = dome.getFloatBuffer(Type.Position);
+        int ring = dome.getRadials() + 1;
+        float last = 0;
+        float max = 0;
+        for( int i = 1; i <= dome.getSlices(); i++ ) {
+            // The last slice is the single vertex at the top
+            int v = i < dome.getSlices() ? i * ring : dome.getVertexCount() - 1;
+            float x = pos.get(v * 3);
+            float y = pos.get(v * 3 + 1);
+            float z = pos.get(v * 3 + 2);
+            float elevation = FastMath.atan2(y, FastMath.sqrt(x * x + z * z));
+            max = Math.max(max, elevation - last);
+            last = elevation;
+        }
+        return max;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx.geom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import com.jme3.math.FastMath;
+import com.jme3.scene.mesh.IndexBuffer;
+
+import com.simsilica.fx.geom.TruncatedDome.SliceDistribution;
+
+
+/**
+ *  Measures the VertexCacheOptimizer by the average cache miss ratio 
+ *  of the domes that it optimizes.
+ *
+ *  @author    Paul Speed
+ */
+public class VertexCacheOptimizerTest {
+
+    private static TruncatedDome createDome( int radials ) {
+        // Same shape as the SkyState's dome
+        return new TruncatedDome(2000, 2000 * 1.025f, radials, 
+                                 TruncatedDome.getSliceCount(FastMath.TWO_PI / radials), 
+                                 true, SliceDistribution.ViewAngle);
+    }
+
+    @Test
+    public void testAcmrOfKnownOrders() {
+        // Two triangles sharing an edge transform 4 vertexes
+        assertEquals(2f, VertexCacheOptimizer.calculateAcmr(new int[] { 0, 1, 2, 2, 1, 3 }, 16), 0);
+        
+        // The same triangle over and over only transforms 3
+        assertEquals(1f, VertexCacheOptimizer.calculateAcmr(new int[] { 0, 1, 2, 0, 1, 2, 0, 1, 2 }, 16), 0);
+    }
+
+    @Test
+    public void testOptimizeLowersAcmr() {
+        for( int radials : new int[] { 32, 100, 160 } ) {
+            TruncatedDome dome = createDome(radials);
+            float before16 = VertexCacheOptimizer.calculateAcmr(dome, 16);
+            float before32 = VertexCacheOptimizer.calculateAcmr(dome, 32);
+
+            VertexCacheOptimizer.optimize(dome);
+
+            float after16 = VertexCacheOptimizer.calculateAcmr(dome, 16);
+            float after32 = VertexCacheOptimizer.calculateAcmr(dome, 32);
+            String msg = "radials:" + radials + " ACMR16 " + before16 + " -> " + after16
+                         + " ACMR32 " + before32 + " -> " + after32;
+
+            // The generated order is roughly one vertex per triangle while
+            // a good order on a grid-like mesh gets close to 0.5
+            assertTrue(msg, after16 < before16 * 0.8f);
+            assertTrue(msg, after32 < before32 * 0.8f);
+            assertTrue(msg, after32 < 0.75f);
+            assertTrue(msg, after32 >= 0.5f);
+        }
+    }
+
+    @Test
+    public void testOptimizeKeepsTriangles() {
+        TruncatedDome dome = createDome(100);
+        List<String> before = triangles(dome.getIndexBuffer());
+        VertexCacheOptimizer.optimize(dome);
+        List<String> after = triangles(dome.getIndexBuffer());
+        assertEquals(dome.getTriangleCount(), after.size());
+        Collections.sort(before);
+        Collections.sort(after);
+        assertEquals(before, after);
+    }
+
+    /**
+     *  Returns the triangles as strings that keep their winding but start
+     *  from their lowest index so that they can be compared independent of
+     *  the order of the vertexes within them.
+     */
+    private static List<String> triangles( IndexBuffer ib ) {
+        List<String> result = new ArrayList<String>();
+        for( int i = 0; i < ib.size(); i += 3 ) {
+            int a = ib.get(i);
+            int b = ib.get(i + 1);
+            int c = ib.get(i + 2);
+            int min = Math.min(a, Math.min(b, c));
+            if( min == a ) {
+                result.add(a + "," + b + "," + c);
+            } else if( min == b ) {
+                result.add(b + "," + c + "," + a);
+            } else {
+                result.add(c + "," + a + "," + b);
+            }
+        }
+        return result;
+    }
+}
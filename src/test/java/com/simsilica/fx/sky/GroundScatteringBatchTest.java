@@ -0,0 +1,139 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx.sky;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+
+
+/**
+ *  Checks the structure-of-arrays GroundScatteringBatch against the scalar
+ *  AtmosphericSnapshot.calculateGroundInAtmosphere() that it replaces.
+ *
+ *  @author    Paul Speed
+ */
+public class GroundScatteringBatchTest {
+
+    private static final float TOLERANCE = 1e-4f;
+
+    private AtmosphericSnapshot snapshot;
+
+    @Before
+    public void setUp() {
+        AtmosphericParameters parms = new AtmosphericParameters();
+        parms.setSkyDomeRadius(2000 * 1.025f);
+        parms.setPlanetRadius(6378100 * 0.01f);
+        parms.setLightDirection(new Vector3f(-0.3f, -0.8f, 0.2f).normalizeLocal());
+        snapshot = parms.getSnapshot();
+    }
+
+    @Test
+    public void testCapacityRoundsUpToLanes() {
+        GroundScatteringBatch batch = new GroundScatteringBatch(GroundScatteringBatch.LANES * 2 + 1);
+        assertEquals(GroundScatteringBatch.LANES * 3, batch.getCapacity());
+    }
+
+    @Test
+    public void testMatchesScalarPath() {
+        float scale = snapshot.getGroundPlanetScale();
+        float[] distances = { 1, 50, 500, 2000 };
+        float[] elevations = { 0, 10, 250 };
+        int azimuths = 12;
+        int pitches = 5;
+
+        // 12 * 5 * 4 * 3 = 720 rays, checked again with an odd size below
+        int count = azimuths * pitches * distances.length * elevations.length;
+        GroundScatteringBatch batch = new GroundScatteringBatch(count);
+        Vector3f[] dirs = new Vector3f[count];
+        int i = 0;
+        for( int a = 0; a < azimuths; a++ ) {
+            float yaw = FastMath.TWO_PI * a / azimuths;
+            for( int p = 0; p < pitches; p++ ) {
+                // From looking slightly up to looking straight down
+                float pitch = 0.1f - (FastMath.HALF_PI + 0.1f) * p / (pitches - 1);
+                Vector3f dir = new Vector3f(FastMath.cos(yaw) * FastMath.cos(pitch),
+                                            FastMath.sin(pitch),
+                                            FastMath.sin(yaw) * FastMath.cos(pitch));
+                for( float distance : distances ) {
+                    for( float elevation : elevations ) {
+                        dirs[i] = dir;
+                        batch.setRay(i, dir.x, dir.y, dir.z, distance * scale, elevation * scale);
+                        i++;
+                    }
+                }
+            }
+        }
+        batch.setSize(count);
+        batch.calculate(snapshot);
+        assertMatches(batch, dirs, count);
+
+        // A size that isn't a whole number of blocks leaves a partial
+        // last block
+        int odd = GroundScatteringBatch.LANES * 7 + 3;
+        assertTrue(odd % GroundScatteringBatch.LANES != 0);
+        GroundScatteringBatch oddBatch = new GroundScatteringBatch(odd);
+        for( int j = 0; j < odd; j++ ) {
+            oddBatch.setRay(j, dirs[j].x, dirs[j].y, dirs[j].z, batch.distance[j], batch.elevation[j]);
+        }
+        oddBatch.setSize(odd);
+        oddBatch.calculate(snapshot);
+        assertMatches(oddBatch, dirs, odd);
+    }
+
+    private void assertMatches( GroundScatteringBatch batch, Vector3f[] dirs, int count ) {
+        Vector3f[] expected = { new Vector3f(), new Vector3f() };
+        for( int i = 0; i < count; i++ ) {
+            snapshot.calculateGroundInAtmosphere(dirs[i], batch.distance[i], batch.elevation[i], expected);
+            String ray = "ray:" + i + " dir:" + dirs[i] + " distance:" + batch.distance[i]
+                         + " elevation:" + batch.elevation[i];
+            assertClose(ray + " in-scatter r", expected[0].x, batch.inScatterR[i]);
+            assertClose(ray + " in-scatter g", expected[0].y, batch.inScatterG[i]);
+            assertClose(ray + " in-scatter b", expected[0].z, batch.inScatterB[i]);
+            assertClose(ray + " attenuation r", expected[1].x, batch.attenuationR[i]);
+            assertClose(ray + " attenuation g", expected[1].y, batch.attenuationG[i]);
+            assertClose(ray + " attenuation b", expected[1].z, batch.attenuationB[i]);
+        }
+    }
+
+    private static void assertClose( String message, float expected, float actual ) {
+        assertFalse(message + " is NaN", Float.isNaN(actual));
+        assertEquals(message, expected, actual, TOLERANCE * Math.max(1, Math.abs(expected)));
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx.sky;
+
+import java.nio.ByteBuffer;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.texture.Image;
+
+
+/**
+ *  Checks the texel layout of the GroundScatteringLut textures, how far
+ *  the filtered lookups that the shaders do stray from the scalar
+ *  AtmosphericSnapshot.calculateGroundInAtmosphere(), and when the table
+ *  is regenerated.
+ *
+ *  @author    Paul Speed
+ */
+public class GroundScatteringLutTest {
+
+    // Half floats have 10 bits of mantissa
+    private static final float TOLERANCE = 1e-3f;
+
+    // Largest absolute color error allowed for filtered lookups of real
+    // ground rays in the plane the table was built in.  Measured at
+    // about 0.004 for both in-scattering and attenuation.
+    private static final float GROUND_ERROR = 0.01f;
+
+    // Largest absolute color error allowed for filtered lookups halfway
+    // between texels on downward rays anywhere in the table.  Measured at
+    // about 0.034, mostly where the near columns are still far apart.
+    private static final float MIDPOINT_ERROR = 0.05f;
+
+    // Largest absolute color error allowed for ground rays toward and away
+    // from the sun, where the table drops the sun azimuth term.  Measured
+    // at about 0.014 with the sun just above the horizon.
+    private static final float AZIMUTH_ERROR = 0.025f;
+
+    private static final float ELEVATION = 10;
+
+    // The sun elevations (as light direction y) checked for the error bounds,
+    // from high in the sky to just above the horizon
+    private static final float[] SUN_HEIGHTS = { -0.8f, -0.3f, -0.05f };
+
+    private AtmosphericParameters parms;
+    private AtmosphericSnapshot snapshot;
+
+    @Before
+    public void setUp() {
+        parms = new AtmosphericParameters();
+        parms.setSkyDomeRadius(2000 * 1.025f);
+        parms.setPlanetRadius(6378100 * 0.01f);
+        parms.setLightDirection(new Vector3f(-0.3f, -0.8f, 0.2f).normalizeLocal());
+        snapshot = parms.getSnapshot();
+    }
+
+    @Test
+    public void testTexelLayout() {
+        GroundScatteringLut lut = new GroundScatteringLut(16, 8, 0.5f);
+        assertTrue(lut.update(snapshot, ELEVATION));
+
+        for( Image image : new Image[] { lut.getInScatterTexture().getImage(),
+                                         lut.getAttenuationTexture().getImage() } ) {
+            assertEquals(Image.Format.RGB16F, image.getFormat());
+            assertEquals(16, image.getWidth());
+            assertEquals(8, image.getHeight());
+            ByteBuffer data = image.getData(0);
+            assertEquals(0, data.position());
+            assertEquals(16 * 8 * 6, data.limit());
+        }
+
+        // Distance runs along u with a square mapping, view cosine along v
+        // from straight down to straight up
+        assertEquals(0, lut.getColumnDistance(0), 0);
+        assertEquals(0.5f / 225, lut.getColumnDistance(1), 1e-7f);
+        assertEquals(0.5f, lut.getColumnDistance(15), 1e-6f);
+        assertEquals(-1, lut.getRowCosine(0), 0);
+        assertEquals(1, lut.getRowCosine(7), 0);
+
+        assertEquals(2, lut.getLutParams().x, 0);
+        assertEquals(0.5f / 16, lut.getLutParams().y, 0);
+        assertEquals(0.5f / 8, lut.getLutParams().z, 0);
+    }
+
+    @Test
+    public void testTexelsMatchScalarPath() {
+        GroundScatteringLut lut = new GroundScatteringLut();
+        assertTrue(lut.update(snapshot, ELEVATION));
+
+        ByteBuffer scatterData = lut.getInScatterTexture().getImage().getData(0);
+        ByteBuffer attenuationData = lut.getAttenuationTexture().getImage().getData(0);
+
+        // The table takes its rays in the vertical plane perpendicular
+        // to the sun's azimuth
+        Vector3f side = new Vector3f(-snapshot.getSunZ(), 0, snapshot.getSunX()).normalizeLocal();
+        float elevation = ELEVATION * snapshot.getGroundPlanetScale();
+
+        Vector3f dir = new Vector3f();
+        Vector3f[] expected = { new Vector3f(), new Vector3f() };
+        int checked = 0;
+        for( int y = 0; y < lut.getAngleSize(); y++ ) {
+            float cos = lut.getRowCosine(y);
+            float sin = FastMath.sqrt(Math.max(0, 1 - cos * cos));
+            for( int x = 0; x < lut.getDistanceSize(); x++ ) {
+                float d = lut.getColumnDistance(x);
+
+                // Like the shaders, the direction is the unnormalized offset
+                dir.set(side.x * sin * d, cos * d, side.z * sin * d);
+                snapshot.calculateGroundInAtmosphere(dir, d, elevation, expected);
+
+                int index = (y * lut.getDistanceSize() + x) * 6;
+                String texel = "texel:" + x + ", " + y;
+                assertTexel(texel + " in-scatter", expected[0], scatterData, index);
+                assertTexel(texel + " attenuation", expected[1], attenuationData, index);
+                checked++;
+            }
+        }
+        assertEquals(64 * 32, checked);
+    }
+
+    @Test
+    public void testRegeneratesOnlyPastThresholds() {
+        GroundScatteringLut lut = new GroundScatteringLut(16, 8, 1);
+        assertTrue(lut.update(snapshot, ELEVATION));
+        assertFalse(lut.update(snapshot, ELEVATION + 0.5f));
+        assertTrue(lut.update(snapshot, ELEVATION + 2));
+        assertEquals(2, lut.getGenerationCount());
+
+        lut.setMaxDistance(0.5f);
+        assertTrue(lut.update(snapshot, ELEVATION + 2));
+        assertEquals(3, lut.getGenerationCount());
+    }
+
+    @Test
+    public void testGroundRayInterpolationError() {
+        for( float height : SUN_HEIGHTS ) {
+            setSunHeight(height);
+            GroundScatteringLut lut = new GroundScatteringLut();
+            lut.update(snapshot, ELEVATION);
+
+            // Ground points from the near edge of the ground disc out to the
+            // sky dome, in the plane the table was built in
+            Vector3f side = new Vector3f(-snapshot.getSunZ(), 0, snapshot.getSunX()).normalizeLocal();
+            float error = maxGroundRayError(lut, side);
+            assertTrue("sun:" + height + " error:" + error, error <= GROUND_ERROR);
+        }
+    }
+
+    @Test
+    public void testMidpointInterpolationError() {
+        for( float height : SUN_HEIGHTS ) {
+            setSunHeight(height);
+            GroundScatteringLut lut = new GroundScatteringLut();
+            lut.update(snapshot, ELEVATION);
+
+            Vector3f side = new Vector3f(-snapshot.getSunZ(), 0, snapshot.getSunX()).normalizeLocal();
+            float elevation = ELEVATION * snapshot.getGroundPlanetScale();
+            int width = lut.getDistanceSize();
+            int rows = lut.getAngleSize();
+
+            // Halfway between texels in both directions, which is as far from
+            // the generated rays as a lookup can get.  Only downward rays are
+            // checked because long upward rays leave the atmosphere model and 
+            // nothing in the scene looks those up.
+            Vector3f dir = new Vector3f();
+            Vector3f[] expected = { new Vector3f(), new Vector3f() };
+            float error = 0;
+            int checked = 0;
+            for( int y = 0; y < rows / 2 - 1; y++ ) {
+                float v = (y + 0.5f) / (rows - 1);
+                float cos = v * 2 - 1;
+                float sin = FastMath.sqrt(1 - cos * cos);
+                for( int x = 0; x < width - 1; x++ ) {
+                    float u = (x + 0.5f) / (width - 1);
+                    float d = u * u * lut.getMaxDistance();
+                    dir.set(side.x * sin * d, cos * d, side.z * sin * d);
+                    snapshot.calculateGroundInAtmosphere(dir, d, elevation, expected);
+                    error = Math.max(error, lookupError(lut, u, v, expected));
+                    checked++;
+                }
+            }
+            assertEquals((rows / 2 - 1) * (width - 1), checked);
+            assertTrue("sun:" + height + " error:" + error, error <= MIDPOINT_ERROR);
+        }
+    }
+
+    @Test
+    public void testSunAzimuthError() {
+        for( float height : SUN_HEIGHTS ) {
+            setSunHeight(height);
+            GroundScatteringLut lut = new GroundScatteringLut();
+            lut.update(snapshot, ELEVATION);
+
+            // Toward the sun, away from it, and in between
+            Vector3f toward = new Vector3f(snapshot.getSunX(), 0, snapshot.getSunZ()).normalizeLocal();
+            Vector3f side = new Vector3f(-toward.z, 0, toward.x);
+            Vector3f[] azimuths = {
+                toward,
+                toward.negate(),
+                toward.add(side).normalizeLocal(),
+                toward.negate().subtractLocal(side).normalizeLocal()
+            };
+            for( Vector3f azimuth : azimuths ) {
+                float error = maxGroundRayError(lut, azimuth);
+                assertTrue("sun:" + height + " azimuth:" + azimuth + " error:" + error,
+                           error <= AZIMUTH_ERROR);
+            }
+        }
+    }
+
+    @Test
+    public void testRegenerationTriggers() {
+        GroundScatteringLut lut = new GroundScatteringLut(16, 8, 1);
+        assertTrue(lut.update(snapshot, ELEVATION));
+
+        // Same snapshot
+        assertFalse(lut.update(snapshot, ELEVATION));
+
+        // A version bump that moves the sun less than the threshold
+        parms.setLightDirection(rotateUp(parms.getLightDirection(), 0.5f));
+        AtmosphericSnapshot next = parms.getSnapshot();
+        assertTrue(next.getVersion() != snapshot.getVersion());
+        assertFalse(lut.update(next, ELEVATION));
+
+        // Moving the sun's elevation past the threshold from where the 
+        // table was built
+        parms.setLightDirection(rotateUp(parms.getLightDirection(), 0.75f));
+        assertTrue(lut.update(parms.getSnapshot(), ELEVATION));
+        assertEquals(2, lut.getGenerationCount());
+
+        // Version bumps that end up back where they started
+        Vector3f current = parms.getLightDirection();
+        parms.setLightDirection(Vector3f.UNIT_X);
+        parms.setLightDirection(current);
+        next = parms.getSnapshot();
+        assertFalse(lut.update(next, ELEVATION));
+
+        // An atmosphere change with the same sun
+        parms.setRedWavelength(parms.getRedWavelength() + 0.01f);
+        assertTrue(lut.update(parms.getSnapshot(), ELEVATION));
+        assertEquals(3, lut.getGenerationCount());
+
+        parms.setGroundExposure(parms.getGroundExposure() * 2);
+        assertTrue(lut.update(parms.getSnapshot(), ELEVATION));
+        assertEquals(4, lut.getGenerationCount());
+    }
+
+    private void setSunHeight( float height ) {
+        parms.setLightDirection(new Vector3f(-0.3f, height, 0.2f).normalizeLocal());
+        snapshot = parms.getSnapshot();
+    }
+
+    /**
+     *  Returns the light direction rotated the specified number of degrees
+     *  toward straight up.
+     */
+    private static Vector3f rotateUp( Vector3f dir, float degrees ) {
+        Vector3f axis = dir.cross(Vector3f.UNIT_Y).normalizeLocal();
+        Quaternion rot = new Quaternion().fromAngleAxis(degrees * FastMath.DEG_TO_RAD, axis);
+        return rot.mult(dir).normalizeLocal();
+    }
+
+    /**
+     *  Walks ground points out along the specified horizontal direction from
+     *  a camera at ELEVATION and returns the largest error between the
+     *  filtered lookup and the scalar path.
+     */
+    private float maxGroundRayError( GroundScatteringLut lut, Vector3f horizontal ) {
+        float scale = snapshot.getGroundPlanetScale();
+        float elevation = ELEVATION * scale;
+        Vector3f dir = new Vector3f();
+        Vector3f[] expected = { new Vector3f(), new Vector3f() };
+        float error = 0;
+        for( float range = 20; range <= 2000; range *= 1.07f ) {
+            // Like the shaders, the direction is the unnormalized scaled offset
+            dir.set(horizontal).multLocal(range).addLocal(0, -ELEVATION, 0).multLocal(scale);
+            float d = dir.length();
+            snapshot.calculateGroundInAtmosphere(dir, d, elevation, expected);
+
+            // The same uv the vertex shaders compute
+            float u = FastMath.sqrt(Math.min(1, d / lut.getMaxDistance()));
+            float v = dir.y / d * 0.5f + 0.5f;
+            error = Math.max(error, lookupError(lut, u, v, expected));
+        }
+        return error;
+    }
+
+    private static float lookupError( GroundScatteringLut lut, float u, float v, Vector3f[] expected ) {
+        ByteBuffer scatterData = lut.getInScatterTexture().getImage().getData(0);
+        ByteBuffer attenuationData = lut.getAttenuationTexture().getImage().getData(0);
+        float error = 0;
+        for( int c = 0; c < 3; c++ ) {
+            error = Math.max(error, Math.abs(expected[0].get(c) - sample(lut, scatterData, u, v, c)));
+            error = Math.max(error, Math.abs(expected[1].get(c) - sample(lut, attenuationData, u, v, c)));
+        }
+        return error;
+    }
+
+    /**
+     *  Bilinearly filters one channel of the table the way the texture unit
+     *  does for a uv that has been remapped onto the texel centers.
+     */
+    private static float sample( GroundScatteringLut lut, ByteBuffer data, float u, float v, int channel ) {
+        int width = lut.getDistanceSize();
+        int height = lut.getAngleSize();
+        float fx = u * (width - 1);
+        float fy = v * (height - 1);
+        int x = Math.min((int)fx, width - 2);
+        int y = Math.min((int)fy, height - 2);
+        float tx = fx - x;
+        float ty = fy - y;
+        float v00 = texel(data, width, x, y, channel);
+        float v10 = texel(data, width, x + 1, y, channel);
+        float v01 = texel(data, width, x, y + 1, channel);
+        float v11 = texel(data, width, x + 1, y + 1, channel);
+        return (v00 * (1 - tx) + v10 * tx) * (1 - ty) + (v01 * (1 - tx) + v11 * tx) * ty;
+    }
+
+    private static float texel( ByteBuffer data, int width, int x, int y, int channel ) {
+        return FastMath.convertHalfToFloat(data.getShort((y * width + x) * 6 + channel * 2));
+    }
+
+    private static void assertTexel( String message, Vector3f expected, ByteBuffer data, int index ) {
+        assertHalf(message + " r", expected.x, data.getShort(index));
+        assertHalf(message + " g", expected.y, data.getShort(index + 2));
+        assertHalf(message + " b", expected.z, data.getShort(index + 4));
+    }
+
+    private static void assertHalf( String message, float expected, short half ) {
+        float actual = FastMath.convertHalfToFloat(half);
+        if( Float.isNaN(expected) ) {
+            // Stored as 0 so that bad rays don't poison the filtering
+            assertEquals(message, 0, actual, 0);
+            return;
+        }
+        expected = Math.max(-65504f, Math.min(65504f, expected));
+        assertEquals(message, expected, actual, TOLERANCE * Math.max(1, Math.abs(expected)));
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx.sky;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import com.jme3.material.MatParamOverride;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.shape.Box;
+
+
+/**
+ *  Checks when ObjectScatteringControl recalculates its per-object
+ *  scattering and when it hands the materials back to per-vertex 
+ *  scattering.
+ *
+ *  @author    Paul Speed
+ */
+public class ObjectScatteringControlTest {
+
+    private AtmosphericParameters parms;
+    private Camera cam;
+    private ViewPort viewPort;
+    private Geometry geom;
+    private ObjectScatteringControl control;
+
+    @Before
+    public void setUp() {
+        parms = new AtmosphericParameters();
+        parms.setSkyDomeRadius(2000 * 1.025f);
+        parms.setPlanetRadius(6378100 * 0.01f);
+        parms.setLightDirection(new Vector3f(-0.3f, -0.8f, 0.2f).normalizeLocal());
+
+        cam = new Camera(640, 480);
+        cam.setLocation(new Vector3f(0, 10, 0));
+        viewPort = new ViewPort("test", cam);
+
+        geom = new Geometry("box", new Box(1, 1, 1));
+        control = new ObjectScatteringControl(parms);
+        geom.addControl(control);
+        moveObject(1000);
+    }
+
+    @Test
+    public void testMinDistanceCutoff() {
+        moveObject(50);
+        render();
+        assertFalse(control.isActive());
+        assertEquals(0, control.getEvaluationCount());
+
+        moveObject(150);
+        render();
+        assertTrue(control.isActive());
+        assertEquals(1, control.getEvaluationCount());
+
+        // Coming back inside the cutoff drops the old values so that
+        // leaving it again always recalculates
+        moveObject(99);
+        render();
+        assertFalse(control.isActive());
+        moveObject(150);
+        render();
+        assertTrue(control.isActive());
+        assertEquals(2, control.getEvaluationCount());
+    }
+
+    @Test
+    public void testFirstRenderMatchesScalarPath() {
+        render();
+        assertTrue(control.isActive());
+        assertEquals(1, control.getEvaluationCount());
+
+        AtmosphericSnapshot snapshot = parms.getSnapshot();
+        float scale = snapshot.getGroundPlanetScale();
+        Vector3f offset = geom.getWorldBound().getCenter().subtract(cam.getLocation()).multLocal(scale);
+        Vector3f[] expected = { new Vector3f(), new Vector3f() };
+        snapshot.calculateGroundInAtmosphere(offset, offset.length(), cam.getLocation().y * scale, expected);
+
+        assertEquals(expected[0], getOverride("ObjectInScatter"));
+        assertEquals(expected[1], getOverride("ObjectAttenuation"));
+    }
+
+    @Test
+    public void testOffsetThreshold() {
+        render();
+        assertEquals(1, control.getEvaluationCount());
+
+        // 4% of the 1000 unit distance
+        cam.setLocation(cam.getLocation().add(40, 0, 0));
+        render();
+        assertEquals(1, control.getEvaluationCount());
+
+        // 6% from where it was last evaluated
+        cam.setLocation(cam.getLocation().add(20, 0, 0));
+        render();
+        assertEquals(2, control.getEvaluationCount());
+
+        // Same offset, no matter where the camera is
+        cam.setLocation(cam.getLocation().add(0, 0, 500));
+        geom.move(0, 0, 500);
+        geom.updateGeometricState();
+        render();
+        assertEquals(2, control.getEvaluationCount());
+        assertTrue(control.isActive());
+    }
+
+    @Test
+    public void testSunAngleThreshold() {
+        render();
+
+        // Less than a degree
+        parms.setLightDirection(rotateUp(parms.getLightDirection(), 0.5f));
+        render();
+        assertEquals(1, control.getEvaluationCount());
+
+        // More than a degree from where it was last evaluated
+        parms.setLightDirection(rotateUp(parms.getLightDirection(), 0.75f));
+        render();
+        assertEquals(2, control.getEvaluationCount());
+    }
+
+    @Test
+    public void testAtmosphereVersion() {
+        render();
+
+        // Version bumps that end up back where they started
+        Vector3f dir = parms.getLightDirection();
+        long version = parms.getSnapshot().getVersion();
+        parms.setLightDirection(Vector3f.UNIT_X);
+        parms.setLightDirection(dir);
+        assertTrue(parms.getSnapshot().getVersion() != version);
+        render();
+        assertEquals(1, control.getEvaluationCount());
+
+        // Any atmosphere change, even with the sun where it was
+        parms.setRedWavelength(parms.getRedWavelength() + 0.01f);
+        render();
+        assertEquals(2, control.getEvaluationCount());
+
+        // And nothing new after that
+        render();
+        assertEquals(2, control.getEvaluationCount());
+    }
+
+    private void moveObject( float distance ) {
+        geom.setLocalTranslation(distance, 0, 0);
+        geom.updateGeometricState();
+    }
+
+    private void render() {
+        control.render(null, viewPort);
+    }
+
+    private Vector3f getOverride( String name ) {
+        for( MatParamOverride override : geom.getLocalMatParamOverrides() ) {
+            if( name.equals(override.getName()) ) {
+                return (Vector3f)override.getValue();
+            }
+        }
+        fail("No override:" + name);
+        return null;
+    }
+
+    /**
+     *  Returns the light direction rotated the specified number of degrees
+     *  toward straight up.
+     */
+    private static Vector3f rotateUp( Vector3f dir, float degrees ) {
+        Vector3f axis = dir.cross(Vector3f.UNIT_Y).normalizeLocal();
+        Quaternion rot = new Quaternion().fromAngleAxis(degrees * FastMath.DEG_TO_RAD, axis);
+        return rot.mult(dir).normalizeLocal();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package com.simsilica.fx.sky;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+
+import com.simsilica.fx.FxMetrics;
+import com.simsilica.fx.HeadlessApplication;
+import com.simsilica.fx.LightingState;
+import com.simsilica.lemur.Label;
+import com.simsilica.lemur.Slider;
+
+
+/**
+ *  Checks that the settings panel commits everything edited in a frame
+ *  to the atmosphere at once, including the time of day.
+ *
+ *  @author    Paul Speed
+ */
+public class SkySettingsStateTest {
+
+    private HeadlessApplication app;
+    private LightingState lighting;
+    private SkySettingsState settings;
+
+    @Before
+    public void setUp() {
+        app = new HeadlessApplication();
+        lighting = new LightingState();
+        settings = new SkySettingsState();
+        app.getStateManager().attach(lighting);
+        app.getStateManager().attach(new SkyState());
+        app.getStateManager().attach(settings);
+        app.step(0.016f);
+        assertTrue(settings.isInitialized());
+        FxMetrics.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        FxMetrics.setEnabled(false);
+    }
+
+    private Slider getSlider( String name ) {
+        boolean found = false;
+        for( Spatial child : settings.getSettings().getChildren() ) {
+            if( found ) {
+                return (Slider)child;
+            }
+            found = child instanceof Label && name.equals(((Label)child).getText());
+        }
+        fail("No setting:" + name);
+        return null;
+    }
+
+    private long stepAndCountCommits() {
+        app.step(0.016f);
+        FxMetrics.endFrame();
+        return FxMetrics.getCount(FxMetrics.Counter.AtmosphereCommits);
+    }
+
+    @Test
+    public void testTimeEditIsInTheBatch() {
+        // Coalescing would normally hold the new direction until the
+        // LightingState's own update
+        lighting.setMaxUpdateRate(1);
+        stepAndCountCommits();
+        Vector3f before = lighting.getLightDirection().clone();
+
+        getSlider("Time").getModel().setValue(0.3);
+        getSlider("Intensity").getModel().setValue(30);
+        assertEquals(1, stepAndCountCommits());
+        assertEquals(0.3f, lighting.getTimeOfDay(), 0);
+        assertEquals(30, sky().getAtmosphericParameters().getLightIntensity(), 0);
+        assertFalse(before.equals(lighting.getLightDirection()));
+        assertEquals(lighting.getLightDirection(), sky().getAtmosphericParameters().getLightDirection());
+
+        // Nothing left over for the next frame
+        assertEquals(0, stepAndCountCommits());
+    }
+
+    @Test
+    public void testOutsideChangesRefreshTheSliders() {
+        lighting.setTimeOfDay(0.7f);
+        sky().getAtmosphericParameters().setLightIntensity(40);
+        stepAndCountCommits();
+        assertEquals(0.7, getSlider("Time").getModel().getValue(), 1e-6);
+        assertEquals(40, getSlider("Intensity").getModel().getValue(), 1e-6);
+
+        // And refreshing doesn't echo the values back as edits
+        assertEquals(0, stepAndCountCommits());
+    }
+
+    private SkyState sky() {
+        return app.getStateManager().getState(SkyState.class);
+    }
+}
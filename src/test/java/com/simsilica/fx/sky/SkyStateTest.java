@@ -0,0 +1,110 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx.sky;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import com.simsilica.fx.HeadlessApplication;
+import com.simsilica.fx.LightingState;
+
+
+/**
+ *  Checks that a SkyState can be detached, reconfigured, and attached 
+ *  again.
+ *
+ *  @author    Paul Speed
+ */
+public class SkyStateTest {
+
+    private HeadlessApplication app;
+    private LightingState lighting;
+    private SkyState sky;
+
+    @Before
+    public void setUp() {
+        app = new HeadlessApplication();
+        lighting = new LightingState();
+        sky = new SkyState();
+        app.getStateManager().attach(lighting);
+        app.getStateManager().attach(sky);
+        app.step(0.016f);
+        assertTrue(sky.isInitialized());
+    }
+
+    private void detach() {
+        app.getStateManager().detach(sky);
+        app.step(0.016f);
+        assertFalse(sky.isInitialized());
+        assertNull(app.getRootNode().getChild("Sky"));
+        assertNull(app.getRootNode().getChild("ground"));
+    }
+
+    @Test
+    public void testChangesWhileDetached() {
+        detach();
+
+        // None of these should touch the released meshes
+        sky.setDomeRadials(64);
+        sky.setSunSamples(4, 8);
+        sky.setFlatShaded(true);
+        sky.setFlatShaded(false);
+        sky.setShowGroundDisc(false);
+        sky.setShowGroundDisc(true);
+
+        app.getStateManager().attach(sky);
+        app.step(0.016f);
+        assertTrue(sky.isInitialized());
+        assertEquals(64, sky.getDomeRadials());
+        assertNotNull(app.getRootNode().getChild("Sky"));
+        assertNotNull(app.getRootNode().getChild("ground"));
+    }
+
+    @Test
+    public void testReattachCreatesNewGroundMaterial() {
+        AtmosphericParameters parms = sky.getAtmosphericParameters();
+        Object first = sky.getGroundDiscMaterial();
+        detach();
+        assertNull(sky.getGroundDiscMaterial());
+
+        app.getStateManager().attach(sky);
+        app.step(0.016f);
+        assertNotNull(sky.getGroundDiscMaterial());
+        assertNotSame(first, sky.getGroundDiscMaterial());
+        assertSame(parms, sky.getAtmosphericParameters());
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * $Id$
+ * 
+ * Copyright (c) 2026, Simsilica, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright 
+ *    notice, this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright 
+ *    notice, this list of conditions and the following disclaimer in 
+ *    the documentation and/or other materials provided with the 
+ *    distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its 
+ *    contributors may be used to endorse or promote products derived 
+ *    from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.simsilica.fx.sky;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import com.simsilica.fx.HeadlessApplication;
+import com.simsilica.fx.LightingModel;
+import com.simsilica.fx.LightingState;
+
+
+/**
+ *  Checks that animating the time of day doesn't create garbage in the
+ *  steady state.  The one exception is the AtmosphericSnapshot that 
+ *  AtmosphericParameters publishes for every committed change.  Snapshots
+ *  are immutable and handed to other threads, so they can't be pooled or
+ *  reused.  The atmosphere paths, up to a full SkyState frame, are checked
+ *  to allocate nothing besides those snapshots.
+ *
+ *  @author    Paul Speed
+ */
+public class SunAllocationTest {
+
+    private static final int WARMUP = 200000;
+    private static final int CHANGES = 100000;
+    
+    // Allowance for the measurement itself
+    private static final long SLACK = 1024;
+
+    private com.sun.management.ThreadMXBean threads;
+    private float time;
+    
+    // Keeps the reference snapshots from being optimized away
+    private AtmosphericSnapshot sink;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(mx instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean)mx;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     *  Returns the number of bytes that it takes to create the specified number
+     *  of snapshots on their own.
+     */
+    private long snapshotBytes( AtmosphericParameters parms, long count ) {
+        for( int i = 0; i < WARMUP; i++ ) {
+            sink = new AtmosphericSnapshot(parms, i);
+        }
+        long start = allocatedBytes();
+        for( long i = 0; i < count; i++ ) {
+            sink = new AtmosphericSnapshot(parms, i);
+        }
+        return allocatedBytes() - start;
+    }
+
+    /**
+     *  Creates a LightingState that is initialized, and so is tracking its
+     *  model, but is not enabled and so needs no Application.
+     */
+    private LightingState createLighting() {
+        LightingState lighting = new LightingState();
+        lighting.setEnabled(false);
+        lighting.initialize(null, null);
+        return lighting;
+    }
+
+    private void animate( LightingState lighting, AtmosphereModel atmosphere, int count ) {
+        for( int i = 0; i < count; i++ ) {
+            time += 0.0001f;
+            if( time > 1.1f ) {
+                time = -0.1f;
+            }
+            lighting.setTimeOfDay(time);
+            lighting.update(0.016f);
+            if( atmosphere != null ) {
+                atmosphere.update();
+            }
+        }
+    }
+
+    @Test
+    public void testLightingStateAllocatesNothing() {
+        LightingState lighting = createLighting();
+        animate(lighting, null, WARMUP);
+
+        long start = allocatedBytes();
+        animate(lighting, null, CHANGES);
+        long bytes = allocatedBytes() - start;
+
+        assertTrue("Allocated " + bytes + " bytes for " + CHANGES + " changes", bytes <= SLACK);
+    }
+
+    @Test
+    public void testAtmosphereOnlyAllocatesSnapshots() {
+        LightingState lighting = createLighting();
+        AtmosphereModel atmosphere = new AtmosphereModel();
+        atmosphere.setLightingModel(lighting.getLightingModel());
+        animate(lighting, atmosphere, WARMUP);
+
+        AtmosphericParameters parms = atmosphere.getAtmosphericParameters();
+        long version = parms.getVersion();
+        long start = allocatedBytes();
+        animate(lighting, atmosphere, CHANGES);
+        long bytes = allocatedBytes() - start;
+        long snapshots = parms.getVersion() - version;
+        assertEquals(CHANGES, snapshots);
+
+        long snapshotBytes = snapshotBytes(parms, snapshots);
+        assertTrue(snapshotBytes > 0);
+
+        assertTrue("Allocated " + bytes + " bytes for " + CHANGES + " changes, " 
+                   + snapshotBytes + " of which would be snapshots", 
+                   bytes <= snapshotBytes + SLACK);
+    }
+
+    @Test
+    public void testDayCycleTimelineAllocatesOnlySnapshots() {
+        LightingState lighting = createLighting();
+        AtmosphereModel atmosphere = new AtmosphereModel();
+        atmosphere.setLightingModel(lighting.getLightingModel());
+        atmosphere.setDayCycleTimeline(new DayCycleTimeline());
+        animate(lighting, atmosphere, WARMUP);
+
+        AtmosphericParameters parms = atmosphere.getAtmosphericParameters();
+        long version = parms.getVersion();
+        long start = allocatedBytes();
+        animate(lighting, atmosphere, CHANGES);
+        long bytes = allocatedBytes() - start;
+        long snapshotBytes = snapshotBytes(parms, parms.getVersion() - version);
+
+        assertTrue("Allocated " + bytes + " bytes for " + CHANGES + " changes, " 
+                   + snapshotBytes + " of which would be snapshots", 
+                   bytes <= snapshotBytes + SLACK);
+    }
+
+    private void animate( HeadlessApplication app, LightingState lighting, int count ) {
+        for( int i = 0; i < count; i++ ) {
+            time += 0.0001f;
+            if( time > 1.1f ) {
+                time = -0.1f;
+            }
+            lighting.setTimeOfDay(time);
+            app.step(0.016f);
+        }
+    }
+
+    @Test
+    public void testSkyStateUpdateAllocatesOnlySnapshots() {
+        // The whole frame: LightingState, the atmosphere, SkyState's sun 
+        // observer and update() including the ground scattering table 
+        HeadlessApplication app = new HeadlessApplication();
+        LightingState lighting = new LightingState();
+        SkyState sky = new SkyState();
+        sky.setUseGroundScatteringLut(true);
+        app.getStateManager().attach(lighting);
+        app.getStateManager().attach(sky);
+
+        animate(app, lighting, WARMUP / 4);
+ 
+        AtmosphericParameters parms = sky.getAtmosphericParameters();
+        GroundScatteringLut lut = parms.getGroundScatteringLut();
+        long version = parms.getVersion();
+        int generations = lut.getGenerationCount();
+        long start = allocatedBytes();
+        animate(app, lighting, CHANGES);
+        long bytes = allocatedBytes() - start;
+
+        // One snapshot per frame and the sun moved far enough to
+        // regenerate the table many times
+        long snapshots = parms.getVersion() - version;
+        assertEquals(CHANGES, snapshots);
+        assertTrue(lut.getGenerationCount() - generations > 10);
+
+        long snapshotBytes = snapshotBytes(parms, snapshots);
+        assertTrue("Allocated " + bytes + " bytes for " + CHANGES + " frames, " 
+                   + snapshotBytes + " of which would be snapshots", 
+                   bytes <= snapshotBytes + SLACK);
+    }
+}